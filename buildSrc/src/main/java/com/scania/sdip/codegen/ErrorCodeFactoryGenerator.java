@@ -0,0 +1,401 @@
+package com.scania.sdip.codegen;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The ErrorCodeFactoryGenerator class reads the constants of the SdipErrorCode enum from its source
+ * and generates the SdipErrorBindings class with a typed factory method per error code, e.g.
+ * {@code SdipErrorBindings.documentNotJson(Object arg0, Object arg1)}. The number of parameters is
+ * the number of arguments of the Http and Log message templates, so a call with the wrong number
+ * of arguments does not compile and the bindings it creates are not validated again at runtime.
+ * A template that can not be parsed fails the build.
+ */
+public class ErrorCodeFactoryGenerator {
+
+  private static final String ENUM_DECLARATION = "enum SdipErrorCode";
+  private static final String GENERATED_CLASS = "SdipErrorBindings";
+
+  /**
+   * Generates the factory class.
+   *
+   * @param enumSource the source file of the SdipErrorCode enum.
+   * @param outputDir  the root directory of the generated sources.
+   * @throws IOException if the source can not be read or the class can not be written.
+   */
+  public void generate(Path enumSource, Path outputDir) throws IOException {
+    String source = new String(Files.readAllBytes(enumSource), StandardCharsets.UTF_8);
+    List<ErrorCodeDefinition> definitions = parse(source);
+    Path packageDir = outputDir.resolve("com/scania/sdip/exceptions");
+    Files.createDirectories(packageDir);
+    Files.write(packageDir.resolve(GENERATED_CLASS + ".java"),
+        render(definitions).getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Generates the factory class, used to run the generator outside of Gradle.
+   *
+   * @param args the enum source file and the output directory.
+   * @throws IOException if the source can not be read or the class can not be written.
+   */
+  public static void main(String[] args) throws IOException {
+    new ErrorCodeFactoryGenerator().generate(Path.of(args[0]), Path.of(args[1]));
+  }
+
+  static List<ErrorCodeDefinition> parse(String source) {
+    int start = source.indexOf(ENUM_DECLARATION);
+    if (start < 0) {
+      throw new IllegalStateException("No " + ENUM_DECLARATION + " declaration found.");
+    }
+    Tokenizer tokenizer = new Tokenizer(source, source.indexOf('{', start) + 1);
+    List<ErrorCodeDefinition> definitions = new ArrayList<>();
+    while (true) {
+      Token name = tokenizer.next();
+      if (name.is(";") || name.is("}")) {
+        return definitions;
+      }
+      if (name.type != TokenType.IDENTIFIER) {
+        throw tokenizer.error("Expected an enum constant but found " + name.text);
+      }
+      tokenizer.expect("(");
+      List<Object> arguments = new ArrayList<>();
+      Token token;
+      do {
+        arguments.add(parseArgument(tokenizer));
+        token = tokenizer.next();
+      } while (token.is(","));
+      if (!token.is(")")) {
+        throw tokenizer.error("Expected ) after the arguments of " + name.text);
+      }
+      definitions.add(ErrorCodeDefinition.of(name.text, arguments));
+      Token separator = tokenizer.next();
+      if (separator.is(";") || separator.is("}")) {
+        return definitions;
+      }
+      if (!separator.is(",")) {
+        throw tokenizer.error("Expected , or ; after " + name.text);
+      }
+    }
+  }
+
+  private static Object parseArgument(Tokenizer tokenizer) {
+    Token token = tokenizer.next();
+    if (token.type == TokenType.NUMBER) {
+      return Integer.valueOf(token.text);
+    }
+    if (token.type != TokenType.STRING) {
+      throw tokenizer.error("Expected a number or a string but found " + token.text);
+    }
+    StringBuilder value = new StringBuilder(token.text);
+    while (tokenizer.peek().is("+")) {
+      tokenizer.next();
+      Token next = tokenizer.next();
+      if (next.type != TokenType.STRING) {
+        throw tokenizer.error("Only string literals can be concatenated, found " + next.text);
+      }
+      value.append(next.text);
+    }
+    return value.toString();
+  }
+
+  /**
+   * Returns the number of arguments of a message template, following the rules of
+   * {@link java.text.MessageFormat}: the highest argument index plus one.
+   */
+  static int countArguments(String template) {
+    int count = 0;
+    boolean quoted = false;
+    for (int i = 0; i < template.length(); i++) {
+      char c = template.charAt(i);
+      if (c == '\'') {
+        if (i + 1 < template.length() && template.charAt(i + 1) == '\'') {
+          ++i;
+        } else {
+          quoted = !quoted;
+        }
+      } else if (c == '{' && !quoted) {
+        int end = i + 1;
+        while (end < template.length() && Character.isDigit(template.charAt(end))) {
+          ++end;
+        }
+        if (end == i + 1 || end == template.length()
+            || (template.charAt(end) != '}' && template.charAt(end) != ',')) {
+          throw new IllegalStateException("Invalid argument at position " + i + " in template '"
+              + template + "'.");
+        }
+        count = Math.max(count, Integer.parseInt(template.substring(i + 1, end)) + 1);
+        i = skipFormat(template, end);
+      }
+    }
+    return count;
+  }
+
+  private static int skipFormat(String template, int position) {
+    int depth = 1;
+    for (int i = position; i < template.length(); i++) {
+      char c = template.charAt(i);
+      if (c == '{') {
+        ++depth;
+      } else if (c == '}' && --depth == 0) {
+        return i;
+      }
+    }
+    throw new IllegalStateException("Unmatched braces in template '" + template + "'.");
+  }
+
+  static String toMethodName(String constant) {
+    StringBuilder name = new StringBuilder();
+    for (String part : constant.toLowerCase(Locale.ROOT).split("_")) {
+      if (part.isEmpty()) {
+        continue;
+      }
+      name.append(name.length() == 0 ? part
+          : Character.toUpperCase(part.charAt(0)) + part.substring(1));
+    }
+    return name.toString();
+  }
+
+  private static String render(List<ErrorCodeDefinition> definitions) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("package com.scania.sdip.exceptions;\n\n");
+    sb.append("/**\n");
+    sb.append(" * Typed factories for the error bindings of {@link SdipErrorCode}, generated from its\n");
+    sb.append(" * source by the build, do not edit. Each factory takes exactly the number of arguments\n");
+    sb.append(" * the templates of the error code require, so the bindings are not validated again at\n");
+    sb.append(" * runtime. Add a binding to an incident with\n");
+    sb.append(" * {@link IncidentException#addIncident(ErrorBinding)}.\n");
+    sb.append(" */\n");
+    sb.append("public final class ").append(GENERATED_CLASS).append(" {\n\n");
+    sb.append("  private ").append(GENERATED_CLASS).append("() {\n  }\n");
+    for (ErrorCodeDefinition definition : definitions) {
+      renderFactory(sb, definition, false);
+      renderFactory(sb, definition, true);
+    }
+    sb.append("}\n");
+    return sb.toString();
+  }
+
+  private static void renderFactory(StringBuilder sb, ErrorCodeDefinition definition,
+      boolean withCause) {
+    StringBuilder parameters = new StringBuilder();
+    StringBuilder arguments = new StringBuilder();
+    for (int i = 0; i < definition.argumentCount; i++) {
+      parameters.append(i == 0 ? "" : ", ").append("Object arg").append(i);
+      arguments.append(", arg").append(i);
+    }
+    if (withCause) {
+      parameters.append(definition.argumentCount == 0 ? "" : ", ").append("Throwable cause");
+      arguments.append(", cause");
+    }
+    sb.append("\n  /**\n");
+    sb.append("   * Creates a binding of {@link SdipErrorCode#").append(definition.name).append("}")
+        .append(withCause ? ",\n   * with the throwable that caused it.\n" : ".\n");
+    for (int i = 0; i < definition.argumentCount; i++) {
+      sb.append("   * @param arg").append(i).append(" the value of argument {").append(i)
+          .append("} of the message templates.\n");
+    }
+    if (withCause) {
+      sb.append("   * @param cause the throwable that caused the error, logged with the")
+          .append(" incident.\n");
+    }
+    sb.append("   * @return the error binding.\n");
+    sb.append("   */\n");
+    sb.append("  public static ErrorBinding ").append(toMethodName(definition.name)).append('(')
+        .append(parameters).append(") {\n");
+    sb.append("    return ErrorBinding.ofValidated(SdipErrorCode.").append(definition.name)
+        .append(arguments).append(");\n");
+    sb.append("  }\n");
+  }
+
+  static final class ErrorCodeDefinition {
+    private final String name;
+    private final int argumentCount;
+
+    private ErrorCodeDefinition(String name, int argumentCount) {
+      this.name = name;
+      this.argumentCount = argumentCount;
+    }
+
+    static ErrorCodeDefinition of(String name, List<Object> arguments) {
+      List<String> templates = new ArrayList<>();
+      for (Object argument : arguments) {
+        if (argument instanceof String) {
+          templates.add((String) argument);
+        }
+      }
+      if (templates.isEmpty()) {
+        throw new IllegalStateException(name + " has no message templates.");
+      }
+      int argumentCount = 0;
+      for (String template : templates) {
+        try {
+          argumentCount = Math.max(argumentCount, countArguments(template));
+        } catch (IllegalStateException e) {
+          throw new IllegalStateException(name + ": " + e.getMessage(), e);
+        }
+      }
+      return new ErrorCodeDefinition(name, argumentCount);
+    }
+
+    int getArgumentCount() {
+      return argumentCount;
+    }
+  }
+
+  private enum TokenType {
+    IDENTIFIER, NUMBER, STRING, SYMBOL, END
+  }
+
+  private static final class Token {
+    private final TokenType type;
+    private final String text;
+
+    private Token(TokenType type, String text) {
+      this.type = type;
+      this.text = text;
+    }
+
+    private boolean is(String symbol) {
+      return type == TokenType.SYMBOL && text.equals(symbol);
+    }
+  }
+
+  private static final class Tokenizer {
+    private final String source;
+    private int position;
+    private Token peeked;
+
+    private Tokenizer(String source, int position) {
+      this.source = source;
+      this.position = position;
+    }
+
+    private Token peek() {
+      if (peeked == null) {
+        peeked = read();
+      }
+      return peeked;
+    }
+
+    private Token next() {
+      Token token = peek();
+      peeked = null;
+      return token;
+    }
+
+    private void expect(String symbol) {
+      Token token = next();
+      if (!token.is(symbol)) {
+        throw error("Expected " + symbol + " but found " + token.text);
+      }
+    }
+
+    private IllegalStateException error(String message) {
+      int line = 1;
+      for (int i = 0; i < position && i < source.length(); i++) {
+        if (source.charAt(i) == '\n') {
+          ++line;
+        }
+      }
+      return new IllegalStateException(message + " at line " + line + " of SdipErrorCode.");
+    }
+
+    private Token read() {
+      skipWhitespaceAndComments();
+      if (position >= source.length()) {
+        return new Token(TokenType.END, "end of file");
+      }
+      char c = source.charAt(position);
+      if (c == '"') {
+        return readString();
+      }
+      int start = position;
+      if (Character.isDigit(c)) {
+        while (position < source.length() && Character.isDigit(source.charAt(position))) {
+          ++position;
+        }
+        return new Token(TokenType.NUMBER, source.substring(start, position));
+      }
+      if (Character.isJavaIdentifierStart(c)) {
+        while (position < source.length()
+            && Character.isJavaIdentifierPart(source.charAt(position))) {
+          ++position;
+        }
+        return new Token(TokenType.IDENTIFIER, source.substring(start, position));
+      }
+      ++position;
+      return new Token(TokenType.SYMBOL, String.valueOf(c));
+    }
+
+    private void skipWhitespaceAndComments() {
+      while (position < source.length()) {
+        char c = source.charAt(position);
+        if (Character.isWhitespace(c)) {
+          ++position;
+        } else if (source.startsWith("//", position)) {
+          int end = source.indexOf('\n', position);
+          position = end < 0 ? source.length() : end + 1;
+        } else if (source.startsWith("/*", position)) {
+          int end = source.indexOf("*/", position + 2);
+          if (end < 0) {
+            throw error("Unterminated comment");
+          }
+          position = end + 2;
+        } else {
+          return;
+        }
+      }
+    }
+
+    private Token readString() {
+      StringBuilder value = new StringBuilder();
+      ++position;
+      while (position < source.length()) {
+        char c = source.charAt(position++);
+        if (c == '"') {
+          return new Token(TokenType.STRING, value.toString());
+        }
+        if (c == '\n') {
+          break;
+        }
+        if (c != '\\') {
+          value.append(c);
+          continue;
+        }
+        char escaped = source.charAt(position++);
+        switch (escaped) {
+          case 'n':
+            value.append('\n');
+            break;
+          case 't':
+            value.append('\t');
+            break;
+          case 'r':
+            value.append('\r');
+            break;
+          case 'b':
+            value.append('\b');
+            break;
+          case 'f':
+            value.append('\f');
+            break;
+          case 'u':
+            while (source.charAt(position) == 'u') {
+              ++position;
+            }
+            value.append((char) Integer.parseInt(source.substring(position, position + 4), 16));
+            position += 4;
+            break;
+          default:
+            value.append(escaped);
+        }
+      }
+      throw error("Unterminated string literal");
+    }
+  }
+}
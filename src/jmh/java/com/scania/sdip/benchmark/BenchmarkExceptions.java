@@ -0,0 +1,12 @@
+package com.scania.sdip.benchmark;
+
+/**
+ * Exceptions shared by the benchmarks, created once so their construction is not measured.
+ */
+final class BenchmarkExceptions {
+
+  static final Exception CAUSE = new IllegalStateException("benchmark cause");
+
+  private BenchmarkExceptions() {
+  }
+}
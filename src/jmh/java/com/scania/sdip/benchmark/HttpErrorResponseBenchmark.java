@@ -0,0 +1,61 @@
+package com.scania.sdip.benchmark;
+
+import com.scania.sdip.exceptions.ErrorBinding;
+import com.scania.sdip.exceptions.Incident;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Measures creating the HTTP error response of an incident exception with a growing number of
+ * error bindings. A single binding without arguments takes the pre-serialized path.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HttpErrorResponseBenchmark {
+
+  @Param({"1", "10", "100"})
+  private int bindings;
+
+  private IncidentException withoutArguments;
+  private IncidentException withArguments;
+
+  @Setup
+  public void setUp() {
+    withoutArguments = new IncidentException(SdipErrorCode.NO_BODY, NOPLogger.NOP_LOGGER);
+    withArguments = new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON, NOPLogger.NOP_LOGGER,
+        "unexpected token", "{\"name\":");
+    for (int i = 1; i < bindings; i++) {
+      withoutArguments.addIncident(new ErrorBinding(SdipErrorCode.NO_BODY));
+      withArguments.addIncident(new ErrorBinding(SdipErrorCode.DOCUMENT_NOT_JSON,
+          "unexpected token " + i, "{\"name\":"));
+    }
+  }
+
+  @Benchmark
+  public ResponseEntity<Incident> bindingsWithoutArguments() {
+    return withoutArguments.createHttpErrorResponse();
+  }
+
+  @Benchmark
+  public ResponseEntity<Incident> bindingsWithArguments() {
+    return withArguments.createHttpErrorResponse();
+  }
+}
@@ -0,0 +1,84 @@
+package com.scania.sdip.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scania.sdip.exceptions.ErrorBinding;
+import com.scania.sdip.exceptions.Incident;
+import com.scania.sdip.exceptions.IncidentBinaryCodec;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+
+/**
+ * Compares encoding and decoding an incident in the binary format of {@link IncidentBinaryCodec}
+ * with Jackson, for incidents with a growing number of error codes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncidentCodecBenchmark {
+
+  @Param({"1", "10", "100"})
+  private int bindings;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final IncidentBinaryCodec codec = IncidentBinaryCodec.getInstance();
+  private Incident incident;
+  private byte[] json;
+  private byte[] binary;
+
+  @Setup
+  public void setUp() throws IOException {
+    IncidentException incidentException = new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON,
+        NOPLogger.NOP_LOGGER, "unexpected token", "{\"name\":");
+    for (int i = 1; i < bindings; i++) {
+      incidentException.addIncident(new ErrorBinding(SdipErrorCode.DOCUMENT_NOT_JSON,
+          "unexpected token " + i, "{\"name\":"));
+    }
+    incident = incidentException.createHttpErrorResponse().getBody();
+    json = objectMapper.writeValueAsBytes(incident);
+    binary = codec.encode(incident);
+  }
+
+  @Benchmark
+  public byte[] encodeJackson() throws IOException {
+    return objectMapper.writeValueAsBytes(incident);
+  }
+
+  @Benchmark
+  public byte[] encodeBinary() {
+    return codec.encode(incident);
+  }
+
+  @Benchmark
+  public Incident decodeJackson() throws IOException {
+    return objectMapper.readValue(json, Incident.class);
+  }
+
+  @Benchmark
+  public Incident decodeBinary() {
+    return codec.decode(ByteBuffer.wrap(binary));
+  }
+
+  @Benchmark
+  public List<ErrorBinding> decodeBinaryErrorBindings() {
+    return codec.decodeErrorBindings(ByteBuffer.wrap(binary));
+  }
+}
@@ -0,0 +1,54 @@
+package com.scania.sdip.benchmark;
+
+import com.scania.sdip.exceptions.ErrorBinding;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures constructing an incident exception, which includes validating the arguments of its
+ * error binding against the templates of the error code.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncidentCreationBenchmark {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(IncidentCreationBenchmark.class);
+
+  @Benchmark
+  public IncidentException withoutArguments() {
+    return new IncidentException(SdipErrorCode.NO_BODY, LOGGER);
+  }
+
+  @Benchmark
+  public IncidentException withArguments() {
+    return new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON, LOGGER, "unexpected token",
+        "{\"name\":");
+  }
+
+  @Benchmark
+  public IncidentException withArgumentsAndThrowable() {
+    return new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON, LOGGER, "unexpected token",
+        "{\"name\":", BenchmarkExceptions.CAUSE);
+  }
+
+  @Benchmark
+  public ErrorBinding errorBinding() {
+    return new ErrorBinding(SdipErrorCode.DOCUMENT_NOT_JSON, "unexpected token", "{\"name\":");
+  }
+}
@@ -0,0 +1,114 @@
+package com.scania.sdip.benchmark;
+
+import com.scania.sdip.exceptions.ErrorCode;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import com.scania.sdip.exceptions.SdipErrorParameter;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares the cost of constructing a stackless 4xx incident with a 4xx incident that fills in its
+ * stack trace and with a 5xx incident, at call stack depths similar to a Spring MVC request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncidentExceptionConstructionBenchmark {
+
+  private static final Logger LOGGER =
+      LoggerFactory.getLogger(IncidentExceptionConstructionBenchmark.class);
+
+  @Param({"10", "100", "300"})
+  private int stackDepth;
+
+  @Benchmark
+  public IncidentException clientErrorStackless() {
+    return createAtDepth(stackDepth, SdipErrorCode.NO_BODY);
+  }
+
+  @Benchmark
+  public IncidentException clientErrorWithStackTrace() {
+    return createAtDepth(stackDepth, TracedErrorCode.NO_BODY);
+  }
+
+  @Benchmark
+  public IncidentException serverError() {
+    return createAtDepth(stackDepth, SdipErrorCode.UNKNOWN_REASON_ERROR, "reason",
+        SdipErrorParameter.SUPPORTMAIL);
+  }
+
+  private IncidentException createAtDepth(int depth, ErrorCode errorCode, Object... args) {
+    if (depth == 0) {
+      return new IncidentException(errorCode, LOGGER, args);
+    }
+    return createAtDepth(depth - 1, errorCode, args);
+  }
+
+  /**
+   * A 4xx error code that keeps its stack trace, used as the baseline for the stackless mode.
+   */
+  public enum TracedErrorCode implements ErrorCode {
+    NO_BODY(SdipErrorCode.NO_BODY);
+
+    private final SdipErrorCode delegate;
+
+    TracedErrorCode(SdipErrorCode delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public int getHttpErrorCode() {
+      return delegate.getHttpErrorCode();
+    }
+
+    @Override
+    public int getSdipErrorCode() {
+      return delegate.getSdipErrorCode();
+    }
+
+    @Override
+    public String getLogMessage() {
+      return delegate.getLogMessage();
+    }
+
+    @Override
+    public String getHttpMessage() {
+      return delegate.getHttpMessage();
+    }
+
+    @Override
+    public int getExitCode() {
+      return delegate.getExitCode();
+    }
+
+    @Override
+    public void setHttpMessage(String httpMessage) {
+      delegate.setHttpMessage(httpMessage);
+    }
+
+    @Override
+    public void setLogMessage(String logMessage) {
+      delegate.setLogMessage(logMessage);
+    }
+
+    @Override
+    public boolean isStackTraceWritable() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,68 @@
+package com.scania.sdip.benchmark;
+
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.IncidentSink;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import com.scania.sdip.exceptions.StackTraceRenderCache;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+
+/**
+ * Measures rendering an incident for the log. The entries go to a no-op logger, so only the
+ * snapshot and the rendering are measured and not the appender. The stack trace of
+ * {@link #withThrowable()} is rendered in full when stack trace references are off, and as a
+ * reference to the trace rendered during warmup when they are on.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrintToLogBenchmark {
+
+  @Param({"false", "true"})
+  private boolean stackTraceReferences;
+
+  private IncidentException withoutArguments;
+  private IncidentException withArguments;
+  private IncidentException withThrowable;
+
+  @Setup
+  public void setUp() {
+    IncidentException.setIncidentSink(IncidentSink.SYNCHRONOUS);
+    StackTraceRenderCache.getInstance().clear();
+    StackTraceRenderCache.getInstance().setReferencesEnabled(stackTraceReferences);
+    withoutArguments = new IncidentException(SdipErrorCode.NO_BODY, NOPLogger.NOP_LOGGER);
+    withArguments = new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON, NOPLogger.NOP_LOGGER,
+        "unexpected token", "{\"name\":");
+    withThrowable = new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON, NOPLogger.NOP_LOGGER,
+        "unexpected token", "{\"name\":", BenchmarkExceptions.CAUSE);
+  }
+
+  @Benchmark
+  public void withoutArguments() {
+    withoutArguments.printToLog();
+  }
+
+  @Benchmark
+  public void withArguments() {
+    withArguments.printToLog();
+  }
+
+  @Benchmark
+  public void withThrowable() {
+    withThrowable.printToLog();
+  }
+}
@@ -0,0 +1,233 @@
+package com.scania.sdip.benchmark;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.scania.sdip.exceptions.Incident;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.IncidentSink;
+import com.scania.sdip.exceptions.RestExceptionHandler;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Path;
+import jakarta.validation.metadata.ConstraintDescriptor;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.helpers.NOPLogger;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.validation.FieldError;
+import org.springframework.web.HttpMediaTypeNotAcceptableException;
+import org.springframework.web.HttpMediaTypeNotSupportedException;
+import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.NoHandlerFoundException;
+
+/**
+ * Measures the whole exception handler, from the exception thrown by a controller to the HTTP
+ * error response, for each kind of exception it handles. Incidents are rendered synchronously, the
+ * logback configuration of the benchmarks turns the loggers off so no appender is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RestExceptionHandlerBenchmark {
+
+  /**
+   * The kinds of exception handled by {@link RestExceptionHandler}.
+   */
+  public enum Branch {
+    JSON_PARSE,
+    JSON_MAPPING,
+    BODY_MISSING,
+    JSON_PARSE_ERROR_MESSAGE,
+    NO_HANDLER_FOUND,
+    MEDIA_TYPE_NOT_SUPPORTED,
+    MEDIA_TYPE_NOT_ACCEPTABLE,
+    METHOD_ARGUMENT_NOT_VALID,
+    CONSTRAINT_VIOLATION,
+    INCIDENT_EXCEPTION,
+    OTHER
+  }
+
+  @Param
+  private Branch branch;
+
+  private RestExceptionHandler restExceptionHandler;
+  private ServletWebRequest request;
+  private Exception exception;
+
+  @Setup
+  public void setUp() throws Exception {
+    IncidentException.setIncidentSink(IncidentSink.SYNCHRONOUS);
+    restExceptionHandler = new RestExceptionHandler();
+    MockHttpServletRequest servletRequest = new MockHttpServletRequest("POST", "/documents");
+    servletRequest.addHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE);
+    servletRequest.addHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON_VALUE);
+    request = new ServletWebRequest(servletRequest);
+    exception = createException(branch);
+  }
+
+  private static Exception createException(Branch branch) throws Exception {
+    MockHttpInputMessage body = new MockHttpInputMessage(new byte[0]);
+    switch (branch) {
+      case JSON_PARSE:
+        return new HttpMessageNotReadableException("JSON parse error: Unexpected character",
+            new JsonParseException(null, "Unexpected character"), body);
+      case JSON_MAPPING:
+        return new HttpMessageNotReadableException("JSON parse error: Cannot deserialize",
+            new JsonMappingException(null, "Cannot deserialize"), body);
+      case BODY_MISSING:
+        return new HttpMessageNotReadableException("Required request body is missing", body);
+      case JSON_PARSE_ERROR_MESSAGE:
+        return new HttpMessageNotReadableException("JSON parse error: unexpected end",
+            new IllegalStateException("unexpected end"), body);
+      case NO_HANDLER_FOUND:
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.HOST, "localhost");
+        return new NoHandlerFoundException("GET", "/missing", headers);
+      case MEDIA_TYPE_NOT_SUPPORTED:
+        return new HttpMediaTypeNotSupportedException(MediaType.TEXT_PLAIN,
+            List.of(MediaType.APPLICATION_JSON));
+      case MEDIA_TYPE_NOT_ACCEPTABLE:
+        return new HttpMediaTypeNotAcceptableException(List.of(MediaType.APPLICATION_JSON));
+      case METHOD_ARGUMENT_NOT_VALID:
+        BeanPropertyBindingResult bindingResult =
+            new BeanPropertyBindingResult(new Object(), "document");
+        bindingResult.addError(new FieldError("document", "name",
+            "", false, null, null, "must not be blank"));
+        return new MethodArgumentNotValidException(new MethodParameter(
+            RestExceptionHandlerBenchmark.class.getDeclaredMethod("createException",
+                Branch.class), 0), bindingResult);
+      case CONSTRAINT_VIOLATION:
+        Set<ConstraintViolation<?>> violations = new LinkedHashSet<>();
+        violations.add(new StubViolation("rows[0].name", "must not be blank", ""));
+        violations.add(new StubViolation("rows[1].name", "must not be blank", ""));
+        violations.add(new StubViolation("id", "must be greater than 0", -1));
+        return new ConstraintViolationException(violations);
+      case INCIDENT_EXCEPTION:
+        return new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON, NOPLogger.NOP_LOGGER,
+            "unexpected token", "{\"name\":");
+      default:
+        return new IllegalStateException("unexpected state");
+    }
+  }
+
+  @Benchmark
+  public ResponseEntity<Incident> handleAllExceptions() {
+    return restExceptionHandler.handleAllExceptions(exception, request);
+  }
+
+  /**
+   * A constraint violation that only answers what the handler reads. A Mockito mock would record a
+   * stack trace on every call and that would be measured instead of the handler.
+   */
+  private static final class StubViolation implements ConstraintViolation<Object> {
+    private final Path propertyPath;
+    private final String message;
+    private final Object invalidValue;
+
+    private StubViolation(String propertyPath, String message, Object invalidValue) {
+      this.propertyPath = new StubPath(propertyPath);
+      this.message = message;
+      this.invalidValue = invalidValue;
+    }
+
+    @Override
+    public String getMessage() {
+      return message;
+    }
+
+    @Override
+    public String getMessageTemplate() {
+      return message;
+    }
+
+    @Override
+    public Object getRootBean() {
+      return null;
+    }
+
+    @Override
+    public Class<Object> getRootBeanClass() {
+      return Object.class;
+    }
+
+    @Override
+    public Object getLeafBean() {
+      return null;
+    }
+
+    @Override
+    public Object[] getExecutableParameters() {
+      return null;
+    }
+
+    @Override
+    public Object getExecutableReturnValue() {
+      return null;
+    }
+
+    @Override
+    public Path getPropertyPath() {
+      return propertyPath;
+    }
+
+    @Override
+    public Object getInvalidValue() {
+      return invalidValue;
+    }
+
+    @Override
+    public ConstraintDescriptor<?> getConstraintDescriptor() {
+      return null;
+    }
+
+    @Override
+    public <U> U unwrap(Class<U> type) {
+      throw new UnsupportedOperationException("unwrap");
+    }
+  }
+
+  private static final class StubPath implements Path {
+    private final String path;
+
+    private StubPath(String path) {
+      this.path = path;
+    }
+
+    @Override
+    public Iterator<Node> iterator() {
+      return Collections.emptyIterator();
+    }
+
+    @Override
+    public String toString() {
+      return path;
+    }
+  }
+}
@@ -1,26 +1,83 @@
 package com.scania.sdip.exceptions;
 
+import java.util.concurrent.Executor;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.scheduling.annotation.AsyncConfigurerSupport;
 import org.springframework.scheduling.annotation.EnableAsync;
 
+/**
+ * Enables {@code @Async} with the {@link AsyncExceptionHandler}. With sdip.async.executor=bounded
+ * the async methods run on a thread per task, virtual threads when the JVM supports them, and at
+ * most sdip.async.concurrency-limit tasks run at once, callers wait when the limit is reached. The
+ * bounded executor is a bean named sdipAsyncExecutor, so it is closed with the context and can be
+ * injected elsewhere. By default the executor is left to Spring.
+ */
 @Configuration
 @EnableAsync
 public class AsyncConfig extends AsyncConfigurerSupport {
 
+  /**
+   * The default maximum number of async tasks running at once in bounded mode.
+   */
+  public static final int DEFAULT_CONCURRENCY_LIMIT = 256;
+
+  private static final int VIRTUAL_THREADS_FEATURE_VERSION = 21;
+
   @Autowired
   private AsyncExceptionHandler asyncExceptionHandler;
 
-  @Override
-  public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
-    return asyncExceptionHandler;
-  }
+  @Value("${sdip.async.executor:default}")
+  private String executorMode = "default";
 
-}
+  @Value("${sdip.async.concurrency-limit:" + DEFAULT_CONCURRENCY_LIMIT + "}")
+  private int concurrencyLimit = DEFAULT_CONCURRENCY_LIMIT;
 
+  /**
+   * The bounded executor of the async methods, only created with sdip.async.executor=bounded.
+   * @return the executor.
+   */
+  @Bean
+  @ConditionalOnProperty(name = "sdip.async.executor", havingValue = "bounded")
+  public SimpleAsyncTaskExecutor sdipAsyncExecutor() {
+    return createBoundedExecutor(concurrencyLimit);
+  }
 
+  @Override
+  public Executor getAsyncExecutor() {
+    // Calls through the configuration proxy, so the bean is returned rather than a new executor.
+    return "bounded".equalsIgnoreCase(executorMode) ? sdipAsyncExecutor() : null;
+  }
 
+  @Override
+  public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
+    return asyncExceptionHandler;
+  }
 
+  /**
+   * Creates an executor that starts a thread per task, a virtual thread on Java 21 and later, and
+   * lets at most a number of tasks run at once.
+   *
+   * @param concurrencyLimit the maximum number of tasks running at once.
+   * @return the executor.
+   */
+  public static SimpleAsyncTaskExecutor createBoundedExecutor(int concurrencyLimit) {
+    if (concurrencyLimit < 1) {
+      throw new IllegalArgumentException("The concurrency limit must be positive, was "
+          + concurrencyLimit + ".");
+    }
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("sdip-async-");
+    executor.setVirtualThreads(supportsVirtualThreads());
+    executor.setConcurrencyLimit(concurrencyLimit);
+    return executor;
+  }
 
+  static boolean supportsVirtualThreads() {
+    return Runtime.version().feature() >= VIRTUAL_THREADS_FEATURE_VERSION;
+  }
+}
@@ -2,25 +2,63 @@ package com.scania.sdip.exceptions;
 
 
 import java.lang.reflect.Method;
+import java.util.regex.Pattern;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
 import org.springframework.stereotype.Component;
 
+/**
+ * Handles exceptions thrown by {@code @Async} methods. Every failure becomes an
+ * {@link IncidentException}, failures that are not incidents already are wrapped as
+ * {@link SdipErrorCode#ASYNC_TASK_FAILED} with the method and its sanitized parameters, and is
+ * handed to the same {@link IncidentSink} and {@link IncidentFlightRecorder} as request errors.
+ */
 @Component
   public class AsyncExceptionHandler implements AsyncUncaughtExceptionHandler {
 
+    private static final int MAX_PARAMS = 10;
+    private static final int MAX_PARAM_CHARS = 100;
+    private static final Pattern LINE_BREAKS = Pattern.compile("[\\r\\n]");
+
     private final Logger logger = LogManager.getLogger(AsyncExceptionHandler.class);
 
     @Override
     public void handleUncaughtException(Throwable ex, Method method, Object... params) {
+      IncidentException incidentException;
+      if (ex instanceof IncidentException) {
+        incidentException = (IncidentException) ex;
+      } else {
+        incidentException = new IncidentException(SdipErrorCode.ASYNC_TASK_FAILED, logger,
+            method.getDeclaringClass().getSimpleName() + "." + method.getName(),
+            describeParams(params), SdipErrorParameter.SUPPORTMAIL,
+            ex instanceof Exception ? ex : new RuntimeException(ex));
+      }
+      IncidentFlightRecorder.getInstance().record(incidentException);
+      incidentException.printToLog();
+    }
 
-      if(ex instanceof IncidentException){
-        ((IncidentException)ex).printToLog();
-      }else {
-        logger.error("Error occured for unknown reason - "+ ex.getMessage());
+    /**
+     * Renders the parameters for the log, each on one line and abbreviated, since they can be
+     * large or carry user input. The values are not masked, the parameter names are not known at
+     * runtime, so async methods should not take credentials as plain parameters.
+     */
+    static String describeParams(Object... params) {
+      if (params == null) {
+        return "[]";
+      }
+      StringBuilder sb = new StringBuilder("[");
+      for (int i = 0; i < Math.min(params.length, MAX_PARAMS); i++) {
+        if (i > 0) {
+          sb.append(", ");
+        }
+        String param = LINE_BREAKS.matcher(String.valueOf(params[i])).replaceAll(" ");
+        sb.append(param.length() <= MAX_PARAM_CHARS ? param
+            : param.substring(0, MAX_PARAM_CHARS) + "... (" + param.length() + " chars)");
       }
+      if (params.length > MAX_PARAMS) {
+        sb.append(", ... (").append(params.length - MAX_PARAMS).append(" more)");
+      }
+      return sb.append(']').toString();
     }
 }
-
-
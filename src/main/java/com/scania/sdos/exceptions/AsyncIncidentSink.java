@@ -0,0 +1,202 @@
+package com.scania.sdip.exceptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The AsyncIncidentSink class moves incident logging off the request thread. Request threads only
+ * enqueue an {@link IncidentSnapshot} on a bounded queue, a single drain thread takes the snapshots
+ * in batches and renders and writes them. What happens when the queue is full is decided by the
+ * {@link OverflowPolicy}. Once the sink is closed, incidents are counted as dropped, incidents
+ * that were being accepted while it closed are still written. An incident that fails to render is
+ * logged and skipped, the drain thread keeps running.
+ */
+public class AsyncIncidentSink implements IncidentSink, AutoCloseable {
+
+  /**
+   * What to do with an incident when the queue is full.
+   */
+  public enum OverflowPolicy {
+    /** Remove the oldest queued incident to make room for the new one. */
+    DROP_OLDEST,
+    /** Discard the new incident. */
+    DROP_NEWEST,
+    /** Wait on the request thread until there is room in the queue. */
+    BLOCK
+  }
+
+  private static final Logger logger = LogManager.getLogger(AsyncIncidentSink.class);
+  private static final long POLL_MILLIS = 50;
+
+  private final BlockingQueue<IncidentSnapshot> queue;
+  private final OverflowPolicy overflowPolicy;
+  private final int batchSize;
+  private final IncidentSink delegate;
+  private final Thread drainThread;
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder written = new LongAdder();
+  private final AtomicInteger accepting = new AtomicInteger();
+  private volatile boolean running = true;
+
+  /**
+   * Constructs a new asynchronous sink that renders incidents with
+   * {@link IncidentSnapshot#printToLog()} and starts its drain thread.
+   *
+   * @param capacity       the maximum number of queued incidents.
+   * @param overflowPolicy what to do when the queue is full.
+   * @param batchSize      the maximum number of incidents taken from the queue at once.
+   */
+  public AsyncIncidentSink(int capacity, OverflowPolicy overflowPolicy, int batchSize) {
+    this(capacity, overflowPolicy, batchSize, IncidentSink.SYNCHRONOUS);
+  }
+
+  /**
+   * Constructs a new asynchronous sink that hands incidents to another sink on the drain thread.
+   *
+   * @param capacity       the maximum number of queued incidents.
+   * @param overflowPolicy what to do when the queue is full.
+   * @param batchSize      the maximum number of incidents taken from the queue at once.
+   * @param delegate       the sink that renders and writes the incidents.
+   */
+  public AsyncIncidentSink(int capacity, OverflowPolicy overflowPolicy, int batchSize,
+      IncidentSink delegate) {
+    if (capacity < 1 || batchSize < 1) {
+      throw new IllegalArgumentException("Capacity and batch size must be positive, capacity was "
+          + capacity + " and batch size was " + batchSize + ".");
+    }
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.overflowPolicy = overflowPolicy;
+    this.batchSize = batchSize;
+    this.delegate = delegate;
+    this.drainThread = new Thread(this::drain, "incident-log-drain");
+    this.drainThread.setDaemon(true);
+    this.drainThread.start();
+  }
+
+  @Override
+  public void accept(IncidentSnapshot snapshot) {
+    // The drain thread keeps running while an accept is in progress, so an incident enqueued
+    // concurrently with close() is still written. Registering before reading the flag means an
+    // accept the drain thread has not seen reads running as false.
+    accepting.incrementAndGet();
+    try {
+      if (!running) {
+        dropped.increment();
+        return;
+      }
+      enqueue(snapshot);
+    } finally {
+      accepting.decrementAndGet();
+    }
+  }
+
+  private void enqueue(IncidentSnapshot snapshot) {
+    switch (overflowPolicy) {
+      case DROP_NEWEST:
+        if (!queue.offer(snapshot)) {
+          dropped.increment();
+        }
+        break;
+      case DROP_OLDEST:
+        while (!queue.offer(snapshot)) {
+          if (queue.poll() != null) {
+            dropped.increment();
+          }
+        }
+        break;
+      case BLOCK:
+      default:
+        try {
+          queue.put(snapshot);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          dropped.increment();
+        }
+        break;
+    }
+  }
+
+  /**
+   * Returns the number of incidents that were discarded because the queue was full or the sink was
+   * closed.
+   * @return the number of dropped incidents.
+   */
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  /**
+   * Returns the number of incidents that have been written by the drain thread.
+   * @return the number of written incidents.
+   */
+  public long getWrittenCount() {
+    return written.sum();
+  }
+
+  /**
+   * Returns the number of incidents waiting to be written.
+   * @return the current queue size.
+   */
+  public int getQueueSize() {
+    return queue.size();
+  }
+
+  /**
+   * Stops accepting incidents, writes the ones already queued and waits for the drain thread to
+   * stop. The drain thread is not interrupted, so a write in progress is not cut short.
+   */
+  @Override
+  public void close() {
+    running = false;
+    try {
+      drainThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void drain() {
+    List<IncidentSnapshot> batch = new ArrayList<>(batchSize);
+    // The order of the checks matters: an accept that is not counted in accepting anymore has
+    // already enqueued its incident.
+    while (running || accepting.get() > 0 || !queue.isEmpty()) {
+      try {
+        if (queue.drainTo(batch, batchSize) == 0) {
+          IncidentSnapshot snapshot = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+          if (snapshot != null) {
+            batch.add(snapshot);
+            queue.drainTo(batch, batchSize - 1);
+          }
+        }
+      } catch (InterruptedException e) {
+        // Only close() decides when to stop, the loop condition is checked again.
+      }
+      writeBatch(batch);
+      batch.clear();
+    }
+  }
+
+  private void writeBatch(List<IncidentSnapshot> batch) {
+    for (IncidentSnapshot snapshot : batch) {
+      try {
+        delegate.accept(snapshot);
+        written.increment();
+      } catch (Throwable e) {
+        // One incident must not stop the drain thread, otherwise nothing is written anymore and
+        // BLOCK producers wait forever. A stack overflow from rendering a deep cause chain has
+        // unwound by now, other virtual machine errors leave the JVM in an unknown state.
+        logger.error("Failed to write incident to the log - " + e);
+        if (e instanceof VirtualMachineError && !(e instanceof StackOverflowError)) {
+          throw (VirtualMachineError) e;
+        }
+      }
+    }
+  }
+}
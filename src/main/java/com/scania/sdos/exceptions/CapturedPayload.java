@@ -0,0 +1,73 @@
+package com.scania.sdip.exceptions;
+
+import java.nio.file.Path;
+
+/**
+ * The CapturedPayload class is the bounded part of a request payload kept for an incident: the
+ * head and tail of the payload, its size, a SHA-256 hash of the full payload for correlation and
+ * the file the full payload was spilled to, if any. Its string form is what is logged.
+ */
+public final class CapturedPayload {
+
+  private final String head;
+  private final String tail;
+  private final long totalBytes;
+  private final long omittedBytes;
+  private final String sha256;
+  private final Path spillFile;
+
+  CapturedPayload(String head, String tail, long totalBytes, long omittedBytes, String sha256,
+      Path spillFile) {
+    this.head = head;
+    this.tail = tail;
+    this.totalBytes = totalBytes;
+    this.omittedBytes = omittedBytes;
+    this.sha256 = sha256;
+    this.spillFile = spillFile;
+  }
+
+  public String getHead() {
+    return head;
+  }
+
+  /**
+   * Returns the end of the payload.
+   * @return the tail, or null if the whole payload fits in the head.
+   */
+  public String getTail() {
+    return tail;
+  }
+
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+
+  public String getSha256() {
+    return sha256;
+  }
+
+  /**
+   * Returns the file holding the full payload.
+   * @return the file, or null if the payload was not spilled.
+   */
+  public Path getSpillFile() {
+    return spillFile;
+  }
+
+  /**
+   * Returns whether parts of the payload were left out.
+   * @return true if the payload did not fit in the byte budget.
+   */
+  public boolean isTruncated() {
+    return tail != null;
+  }
+
+  @Override
+  public String toString() {
+    if (!isTruncated()) {
+      return head;
+    }
+    return head + "\n... [" + omittedBytes + " of " + totalBytes + " bytes omitted, sha256=" + sha256
+        + (spillFile == null ? "" : ", full payload in " + spillFile) + "] ...\n" + tail;
+  }
+}
@@ -0,0 +1,333 @@
+package com.scania.sdip.exceptions;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The DeduplicatingIncidentSink class rate limits the logging of identical incidents. Incidents are
+ * identical when they have the same error codes, the same exception class and the same top stack
+ * frames. The first occurrences within a window are handed to the delegate sink in full, later
+ * ones are counted, and once the window has passed a single line such as "Suppressed 42 identical
+ * incidents of SDIP_5031 in 10s: <first message>" is handed to the delegate sink as a summary
+ * snapshot. The summary is written before the next occurrence, or by a daemon thread that flushes
+ * passed windows periodically, so the count of a burst that has stopped is reported too. The window
+ * and threshold are set per error code with a {@link DeduplicationPolicy}. A tracked window only
+ * keeps what its summary needs, the error codes, the logger and the first log message, not the
+ * incident with its arguments, exceptions and request.
+ */
+public class DeduplicatingIncidentSink implements IncidentSink, AutoCloseable {
+
+  private static final int DEFAULT_MAX_TRACKED_INCIDENTS = 10_000;
+  private static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+  private static final int MAX_SUMMARY_MESSAGE_LENGTH = 200;
+  private static final Logger logger = LogManager.getLogger(DeduplicatingIncidentSink.class);
+
+  private final IncidentSink delegate;
+  private final DeduplicationPolicy defaultPolicy;
+  private final int stackFrames;
+  private final int maxTrackedIncidents;
+  private final Map<ErrorCode, DeduplicationPolicy> policies = new ConcurrentHashMap<>();
+  private final ConcurrentMap<IncidentKey, Window> windows = new ConcurrentHashMap<>();
+  private final LongAdder suppressed = new LongAdder();
+  private final ScheduledExecutorService flusher;
+
+  /**
+   * Constructs a new deduplicating sink.
+   *
+   * @param delegate      the sink that writes the incidents that are not suppressed.
+   * @param defaultPolicy the policy for error codes without a policy of their own.
+   * @param stackFrames   the number of top stack frames that must match for incidents to be
+   *                      identical.
+   */
+  public DeduplicatingIncidentSink(IncidentSink delegate, DeduplicationPolicy defaultPolicy,
+      int stackFrames) {
+    this(delegate, defaultPolicy, stackFrames, DEFAULT_MAX_TRACKED_INCIDENTS);
+  }
+
+  /**
+   * Constructs a new deduplicating sink.
+   *
+   * @param delegate            the sink that writes the incidents that are not suppressed.
+   * @param defaultPolicy       the policy for error codes without a policy of their own.
+   * @param stackFrames         the number of top stack frames that must match for incidents to
+   *                            be identical.
+   * @param maxTrackedIncidents the maximum number of distinct incidents tracked at once, when
+   *                            reached new distinct incidents are logged without deduplication.
+   */
+  public DeduplicatingIncidentSink(IncidentSink delegate, DeduplicationPolicy defaultPolicy,
+      int stackFrames, int maxTrackedIncidents) {
+    this(delegate, defaultPolicy, stackFrames, maxTrackedIncidents, DEFAULT_FLUSH_INTERVAL);
+  }
+
+  /**
+   * Constructs a new deduplicating sink and starts the thread that flushes passed windows.
+   *
+   * @param delegate            the sink that writes the incidents that are not suppressed and the
+   *                            summaries.
+   * @param defaultPolicy       the policy for error codes without a policy of their own.
+   * @param stackFrames         the number of top stack frames that must match for incidents to
+   *                            be identical.
+   * @param maxTrackedIncidents the maximum number of distinct incidents tracked at once, when
+   *                            reached new distinct incidents are logged without deduplication.
+   * @param flushInterval       how often passed windows are flushed.
+   */
+  public DeduplicatingIncidentSink(IncidentSink delegate, DeduplicationPolicy defaultPolicy,
+      int stackFrames, int maxTrackedIncidents, Duration flushInterval) {
+    if (flushInterval.isNegative() || flushInterval.isZero()) {
+      throw new IllegalArgumentException("The flush interval must be positive, it was "
+          + flushInterval + ".");
+    }
+    this.delegate = delegate;
+    this.defaultPolicy = defaultPolicy;
+    this.stackFrames = stackFrames;
+    this.maxTrackedIncidents = maxTrackedIncidents;
+    ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "incident-dedup-flush");
+      thread.setDaemon(true);
+      return thread;
+    });
+    executor.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+    long intervalNanos = flushInterval.toNanos();
+    executor.scheduleWithFixedDelay(this::flushQuietly, intervalNanos, intervalNanos,
+        TimeUnit.NANOSECONDS);
+    this.flusher = executor;
+  }
+
+  /**
+   * Sets the policy for incidents whose first error code is the given one.
+   *
+   * @param errorCode the error code.
+   * @param policy    the policy, {@link DeduplicationPolicy#NONE} to log every incident in full.
+   */
+  public void setPolicy(ErrorCode errorCode, DeduplicationPolicy policy) {
+    policies.put(errorCode, policy);
+  }
+
+  /**
+   * Returns the number of incidents that have been suppressed.
+   * @return the number of suppressed incidents.
+   */
+  public long getSuppressedCount() {
+    return suppressed.sum();
+  }
+
+  @Override
+  public void accept(IncidentSnapshot snapshot) {
+    DeduplicationPolicy policy = getPolicy(snapshot);
+    if (snapshot.getSummary() != null || !policy.isEnabled()) {
+      delegate.accept(snapshot);
+      return;
+    }
+    long now = System.nanoTime();
+    IncidentKey key = new IncidentKey(snapshot, stackFrames);
+    Window window = windows.get(key);
+    if (window == null) {
+      if (windows.size() >= maxTrackedIncidents) {
+        flush(now, false);
+      }
+      if (windows.size() >= maxTrackedIncidents) {
+        delegate.accept(snapshot);
+        return;
+      }
+      window = windows.computeIfAbsent(key, k -> new Window(policy, now, k, snapshot));
+    }
+    long suppressedBefore = window.admit(now);
+    if (suppressedBefore < 0) {
+      suppressed.increment();
+      return;
+    }
+    if (suppressedBefore > 0) {
+      delegate.accept(window.summary(suppressedBefore));
+    }
+    delegate.accept(snapshot);
+  }
+
+  /**
+   * Hands the summary of every window that has passed with suppressed incidents to the delegate
+   * sink and stops tracking the passed windows. The flush thread calls it periodically.
+   */
+  public void flush() {
+    flush(System.nanoTime(), false);
+  }
+
+  /**
+   * Stops the flush thread and hands the summary of every window with suppressed incidents to the
+   * delegate sink, also of windows that have not passed yet.
+   */
+  @Override
+  public void close() {
+    flusher.shutdown();
+    try {
+      flusher.awaitTermination(1, TimeUnit.MINUTES);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush(System.nanoTime(), true);
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      // An exception would cancel the periodic flush.
+      logger.error("Failed to flush deduplicated incidents - " + e.getMessage());
+    }
+  }
+
+  private void flush(long now, boolean all) {
+    windows.forEach((key, window) -> {
+      long count = window.expire(now, all);
+      if (count >= 0) {
+        windows.remove(key, window);
+        if (count > 0) {
+          delegate.accept(window.summary(count));
+        }
+      }
+    });
+  }
+
+  private DeduplicationPolicy getPolicy(IncidentSnapshot snapshot) {
+    if (snapshot.getErrorBindings().isEmpty()) {
+      return defaultPolicy;
+    }
+    return policies.getOrDefault(snapshot.getErrorBindings().get(0).getErrorCode(), defaultPolicy);
+  }
+
+  private static final class Window {
+    private final DeduplicationPolicy policy;
+    private final long windowNanos;
+    private final org.slf4j.Logger sl4jLogger;
+    private final org.apache.logging.log4j.Logger log4jLogger;
+    private final String errorCodes;
+    private final String firstMessage;
+    private long start;
+    private int logged;
+    private long suppressed;
+    private boolean expired;
+
+    private Window(DeduplicationPolicy policy, long now, IncidentKey key,
+        IncidentSnapshot snapshot) {
+      this.policy = policy;
+      this.windowNanos = policy.getWindow().toNanos();
+      this.start = now;
+      this.sl4jLogger = snapshot.getSl4jLogger();
+      this.log4jLogger = snapshot.getLog4jLogger();
+      this.errorCodes = key.describeErrorCodes();
+      String message = snapshot.renderFirstLogMessage();
+      this.firstMessage = message == null || message.length() <= MAX_SUMMARY_MESSAGE_LENGTH
+          ? message : message.substring(0, MAX_SUMMARY_MESSAGE_LENGTH) + "...";
+    }
+
+    private IncidentSnapshot summary(long count) {
+      long millis = policy.getWindow().toMillis();
+      return IncidentSnapshot.summary(sl4jLogger, log4jLogger, "Suppressed " + count + " identical incidents of " + errorCodes + " in "
+          + (millis % 1000 == 0 ? millis / 1000 + "s" : millis + "ms")
+          + (firstMessage == null ? "" : ": " + firstMessage));
+    }
+
+    /**
+     * Returns -1 if the incident is suppressed, otherwise the number of incidents suppressed in
+     * the window that just passed.
+     */
+    private synchronized long admit(long now) {
+      if (expired) {
+        // The window was flushed after the incident looked it up, it is logged in full.
+        return 0;
+      }
+      if (now - start >= windowNanos) {
+        long suppressedInWindow = suppressed;
+        start = now;
+        logged = 1;
+        suppressed = 0;
+        return suppressedInWindow;
+      }
+      if (logged < policy.getThreshold()) {
+        ++logged;
+        return 0;
+      }
+      ++suppressed;
+      return -1;
+    }
+
+    /**
+     * Returns -1 if the window has not passed yet and all is false, otherwise the number of
+     * suppressed incidents, which are then considered reported, and the window is not used again.
+     */
+    private synchronized long expire(long now, boolean all) {
+      if (expired || (!all && now - start < windowNanos)) {
+        return -1;
+      }
+      expired = true;
+      return suppressed;
+    }
+  }
+
+  private static final class IncidentKey {
+    private final ErrorCode[] errorCodes;
+    private final Class<?> exceptionClass;
+    private final StackTraceElement[] topFrames;
+    private final int hash;
+
+    private IncidentKey(IncidentSnapshot snapshot, int stackFrames) {
+      errorCodes = new ErrorCode[snapshot.getErrorBindings().size()];
+      Throwable throwable = snapshot.getException();
+      for (int i = 0; i < errorCodes.length; i++) {
+        ErrorBinding errorBinding = snapshot.getErrorBindings().get(i);
+        errorCodes[i] = errorBinding.getErrorCode();
+        for (Object arg : errorBinding.getArgs()) {
+          if (throwable == null && arg instanceof Throwable) {
+            throwable = (Throwable) arg;
+          }
+        }
+      }
+      if (throwable == null) {
+        exceptionClass = null;
+        topFrames = new StackTraceElement[0];
+      } else {
+        exceptionClass = throwable.getClass();
+        StackTraceElement[] stackTrace = throwable.getStackTrace();
+        topFrames = Arrays.copyOf(stackTrace, Math.min(stackFrames, stackTrace.length));
+      }
+      hash = 31 * (31 * Arrays.hashCode(errorCodes) + (exceptionClass == null ? 0
+          : exceptionClass.hashCode())) + Arrays.hashCode(topFrames);
+    }
+
+    private String describeErrorCodes() {
+      StringBuilder sb = new StringBuilder();
+      for (ErrorCode errorCode : errorCodes) {
+        if (sb.length() > 0) {
+          sb.append(", ");
+        }
+        sb.append(SdipErrorParameter.ERRORCODE_PREFIX).append(errorCode.getSdipErrorCode());
+      }
+      return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (this == other) {
+        return true;
+      }
+      if (!(other instanceof IncidentKey)) {
+        return false;
+      }
+      IncidentKey that = (IncidentKey) other;
+      return hash == that.hash && exceptionClass == that.exceptionClass
+          && Arrays.equals(errorCodes, that.errorCodes) && Arrays.equals(topFrames, that.topFrames);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.scania.sdip.exceptions;
+
+import java.time.Duration;
+
+/**
+ * The DeduplicationPolicy class decides how identical incidents are rate limited by a
+ * {@link DeduplicatingIncidentSink}. Within each window the first incidents are logged in full, up
+ * to the threshold, later identical incidents are only counted and summarized when the window has
+ * passed.
+ */
+public final class DeduplicationPolicy {
+
+  /**
+   * A policy that logs every incident in full.
+   */
+  public static final DeduplicationPolicy NONE = new DeduplicationPolicy(Duration.ZERO, 1);
+
+  private final Duration window;
+  private final int threshold;
+
+  /**
+   * Constructs a new deduplication policy.
+   *
+   * @param window    the length of the window during which identical incidents are counted.
+   * @param threshold the number of identical incidents logged in full per window.
+   */
+  public DeduplicationPolicy(Duration window, int threshold) {
+    if (window.isNegative() || threshold < 1) {
+      throw new IllegalArgumentException("The window can not be negative and the threshold must "
+          + "be positive, window was " + window + " and threshold was " + threshold + ".");
+    }
+    this.window = window;
+    this.threshold = threshold;
+  }
+
+  public Duration getWindow() {
+    return window;
+  }
+
+  public int getThreshold() {
+    return threshold;
+  }
+
+  /**
+   * Returns whether incidents are deduplicated at all under this policy.
+   * @return false if the window is empty.
+   */
+  public boolean isEnabled() {
+    return !window.isZero();
+  }
+}
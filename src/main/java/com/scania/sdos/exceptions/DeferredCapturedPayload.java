@@ -0,0 +1,40 @@
+package com.scania.sdip.exceptions;
+
+import com.fasterxml.jackson.core.util.RequestPayload;
+
+/**
+ * The DeferredCapturedPayload class is an incident argument that captures a request payload with a
+ * {@link PayloadCapturePolicy} the first time it is rendered. The {@link ReactiveExceptionHandler}
+ * uses it so that hashing and spilling a large payload happen on the thread that writes the log
+ * entry and not on a Netty I/O thread. The HTTP messages do not include the payload, so answering
+ * the request does not capture it. Its string form is the one of the {@link CapturedPayload}.
+ */
+final class DeferredCapturedPayload {
+
+  private final PayloadCapturePolicy policy;
+  private RequestPayload payload;
+  private CapturedPayload captured;
+
+  DeferredCapturedPayload(PayloadCapturePolicy policy, RequestPayload payload) {
+    this.policy = policy;
+    this.payload = payload;
+  }
+
+  /**
+   * Captures the payload on the first call, later calls return the same capture.
+   * @return the captured payload, or null if the payload has no content.
+   */
+  synchronized CapturedPayload get() {
+    if (payload != null) {
+      captured = policy.capture(payload);
+      // The raw payload can be large, it is not kept once captured.
+      payload = null;
+    }
+    return captured;
+  }
+
+  @Override
+  public String toString() {
+    return String.valueOf(get());
+  }
+}
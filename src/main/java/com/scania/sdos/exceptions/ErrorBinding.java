@@ -1,7 +1,5 @@
 package com.scania.sdip.exceptions;
 
-import java.text.Format;
-import java.text.MessageFormat;
 /**
  * The ErrorBinding class holds information about the bindings of error codes to arguments. An error
  * binding is created at instantiation of an {@link IncidentException}.
@@ -21,6 +19,25 @@ public class ErrorBinding {
     this.args = args;
   }
 
+  private ErrorBinding(Object[] args, ErrorCode errorCode) {
+    this.errorCode = errorCode;
+    this.args = args;
+  }
+
+  /**
+   * Creates an error binding whose arguments were checked against the templates at build time,
+   * used by the generated {@link SdipErrorBindings} factories. The arguments are not checked again
+   * since the number of arguments of an error code can not change at runtime: the
+   * {@link MessageCatalog} rejects overrides that change it and {@link LocalizedMessages} ignores
+   * localized messages that refer to arguments the error code does not take.
+   * @param errorCode {@link SdipErrorCode} SDIP error code.
+   * @param args Arguments required for the template strings in Http message and Log message.
+   * @return the error binding.
+   */
+  static ErrorBinding ofValidated(ErrorCode errorCode, Object... args) {
+    return new ErrorBinding(args, errorCode);
+  }
+
   /**
    * Returns the error code of the error binding.
    * @return an SDIP error code {@link SdipErrorCode}
@@ -52,22 +69,7 @@ public class ErrorBinding {
   }
 
   private boolean isRealArgsCounterInTemplateArgs(ErrorCode errorCode, int countedArgs) {
-    int correctArg = 0;
-    StringBuilder sbHttpMessage = new StringBuilder();
-    StringBuilder sbLogMessage = new StringBuilder();
-    sbHttpMessage.append(errorCode.getHttpMessage());
-    sbLogMessage.append(errorCode.getLogMessage());
-    Format[] httpNumber = new MessageFormat(sbHttpMessage.toString()).getFormatsByArgumentIndex();
-    Format[] logNumber = new MessageFormat(sbLogMessage.toString()).getFormatsByArgumentIndex();
-
-    if (httpNumber.length >= logNumber.length) {
-      correctArg = httpNumber.length;
-    } else {
-      correctArg = logNumber.length;
-    }
-
-    return (correctArg == countedArgs);
-
+    return (MessageTemplateCache.getArgumentCount(errorCode) == countedArgs);
   }
 
   private String toCommaSeperated(Object[] args) {
@@ -44,4 +44,15 @@ public interface ErrorCode extends Serializable {
    * Set the Log message to the error code.
    */
   void setLogMessage(String logMessage);
+
+  /**
+   * Returns whether an {@link IncidentException} created with this error code records its stack
+   * trace. Client errors (4xx) are expected and their trace is never logged, so by default they
+   * skip the cost of filling in the stack trace. Override to keep the trace for a specific code.
+   * @return true if the stack trace should be filled in.
+   */
+  default boolean isStackTraceWritable() {
+    int httpStatus = getHttpErrorCode();
+    return httpStatus < 400 || httpStatus >= 500;
+  }
 }
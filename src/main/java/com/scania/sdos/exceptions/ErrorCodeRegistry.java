@@ -0,0 +1,179 @@
+package com.scania.sdip.exceptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The ErrorCodeRegistry class resolves SDIP error codes, as numbers or as strings such as
+ * SDIP_40017, back to their {@link ErrorCode}, and lists the error codes per HTTP status. The codes
+ * are kept in an open addressing hash table keyed on the SDIP code, so a lookup is a couple of
+ * array reads. Registration is meant for startup, it rebuilds the tables and publishes them at
+ * once, lookups never lock. Two different error codes with the same SDIP code are rejected.
+ */
+public class ErrorCodeRegistry {
+
+  private static final int MAX_HTTP_STATUS = 600;
+  private static final ErrorCodeRegistry instance = new ErrorCodeRegistry();
+
+  static {
+    instance.register(SdipErrorCode.values());
+  }
+
+  private volatile Tables tables = new Tables(new ErrorCode[0]);
+
+  /**
+   * Returns the registry used by the platform, it holds all {@link SdipErrorCode}s and the error
+   * codes registered by services.
+   * @return the error code registry.
+   */
+  public static ErrorCodeRegistry getInstance() {
+    return instance;
+  }
+
+  /**
+   * Registers error codes. Registering an error code that is already registered has no effect.
+   *
+   * @param errorCodes the error codes, typically the values of an enum implementing
+   *                   {@link ErrorCode}.
+   * @throws IllegalArgumentException if an error code has the same SDIP code as another error
+   *                                  code, nothing is registered then.
+   */
+  public synchronized void register(ErrorCode... errorCodes) {
+    Map<Integer, ErrorCode> all = new LinkedHashMap<>();
+    for (ErrorCode errorCode : tables.errorCodes) {
+      all.put(errorCode.getSdipErrorCode(), errorCode);
+    }
+    for (ErrorCode errorCode : errorCodes) {
+      ErrorCode registered = all.putIfAbsent(errorCode.getSdipErrorCode(), errorCode);
+      if (registered != null && registered != errorCode) {
+        throw new IllegalArgumentException("The SDIP error code "
+            + SdipErrorParameter.ERRORCODE_PREFIX + errorCode.getSdipErrorCode() + " of "
+            + describe(errorCode) + " is already used by " + describe(registered) + ".");
+      }
+    }
+    tables = new Tables(all.values().toArray(new ErrorCode[0]));
+  }
+
+  /**
+   * Returns the error code with a SDIP code.
+   *
+   * @param sdipErrorCode the SDIP code, e.g. 40017.
+   * @return the error code, or null if no error code has the SDIP code.
+   */
+  public ErrorCode find(int sdipErrorCode) {
+    return tables.find(sdipErrorCode);
+  }
+
+  /**
+   * Returns the error code of a SDIP error code string as returned in an {@link Incident}.
+   *
+   * @param sdipErrorCode the SDIP error code, e.g. SDIP_40017, the prefix is optional.
+   * @return the error code, or null if the string is not a known SDIP error code.
+   */
+  public ErrorCode find(String sdipErrorCode) {
+    if (sdipErrorCode == null) {
+      return null;
+    }
+    int start = sdipErrorCode.startsWith(SdipErrorParameter.ERRORCODE_PREFIX)
+        ? SdipErrorParameter.ERRORCODE_PREFIX.length() : 0;
+    int length = sdipErrorCode.length() - start;
+    if (length == 0 || length > 9) {
+      return null;
+    }
+    int code = 0;
+    for (int i = start; i < sdipErrorCode.length(); i++) {
+      char c = sdipErrorCode.charAt(i);
+      if (c < '0' || c > '9') {
+        return null;
+      }
+      code = code * 10 + (c - '0');
+    }
+    return find(code);
+  }
+
+  /**
+   * Returns the error codes with a HTTP status.
+   *
+   * @param httpStatus the HTTP status.
+   * @return the error codes in order of registration, empty if there are none.
+   */
+  public List<ErrorCode> findByHttpStatus(int httpStatus) {
+    if (httpStatus < 0 || httpStatus >= MAX_HTTP_STATUS) {
+      return Collections.emptyList();
+    }
+    return tables.byHttpStatus[httpStatus];
+  }
+
+  /**
+   * Returns all registered error codes.
+   * @return the error codes in order of registration.
+   */
+  public List<ErrorCode> getErrorCodes() {
+    return Collections.unmodifiableList(Arrays.asList(tables.errorCodes));
+  }
+
+  private static String describe(ErrorCode errorCode) {
+    return errorCode instanceof Enum
+        ? errorCode.getClass().getName() + "." + ((Enum<?>) errorCode).name()
+        : errorCode.toString();
+  }
+
+  private static final class Tables {
+    private final ErrorCode[] errorCodes;
+    private final int[] keys;
+    private final ErrorCode[] values;
+    private final int mask;
+    private final List<ErrorCode>[] byHttpStatus;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Tables(ErrorCode[] errorCodes) {
+      this.errorCodes = errorCodes;
+      // At most half full, so a probe sequence is short.
+      int capacity = Integer.highestOneBit(Math.max(errorCodes.length, 1) * 2) << 1;
+      keys = new int[capacity];
+      values = new ErrorCode[capacity];
+      mask = capacity - 1;
+      for (ErrorCode errorCode : errorCodes) {
+        int slot = slot(errorCode.getSdipErrorCode());
+        while (values[slot] != null) {
+          slot = (slot + 1) & mask;
+        }
+        keys[slot] = errorCode.getSdipErrorCode();
+        values[slot] = errorCode;
+      }
+      List<ErrorCode>[] statuses = new List[MAX_HTTP_STATUS];
+      for (ErrorCode errorCode : errorCodes) {
+        int httpStatus = errorCode.getHttpErrorCode();
+        if (httpStatus >= 0 && httpStatus < MAX_HTTP_STATUS) {
+          if (statuses[httpStatus] == null) {
+            statuses[httpStatus] = new ArrayList<>();
+          }
+          statuses[httpStatus].add(errorCode);
+        }
+      }
+      for (int i = 0; i < MAX_HTTP_STATUS; i++) {
+        statuses[i] = statuses[i] == null ? Collections.emptyList()
+            : Collections.unmodifiableList(statuses[i]);
+      }
+      byHttpStatus = statuses;
+    }
+
+    private ErrorCode find(int sdipErrorCode) {
+      for (int slot = slot(sdipErrorCode); ; slot = (slot + 1) & mask) {
+        ErrorCode errorCode = values[slot];
+        if (errorCode == null || keys[slot] == sdipErrorCode) {
+          return errorCode;
+        }
+      }
+    }
+
+    private int slot(int sdipErrorCode) {
+      int hash = sdipErrorCode * 0x9E3779B9;
+      return (hash ^ (hash >>> 16)) & mask;
+    }
+  }
+}
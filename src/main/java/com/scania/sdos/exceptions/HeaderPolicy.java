@@ -0,0 +1,143 @@
+package com.scania.sdip.exceptions;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.springframework.http.HttpHeaders;
+
+/**
+ * The HeaderPolicy class decides which request headers a {@link RequestSnapshot} captures for the
+ * incident log. A header is dropped if it is denied, captured with its value masked if it is
+ * masked, and otherwise captured if it is allowed. When no allowlist is given every header that is
+ * not denied is allowed. Header names are compared ignoring case.
+ *
+ * <p>The rules are compiled into an open addressing table with at least twice as many slots as
+ * listed headers when the policy is constructed, so deciding on a header is one hash over its name
+ * and a short linear probe comparing ignoring case, without allocating.
+ */
+public final class HeaderPolicy {
+
+  /**
+   * What is done with a header.
+   */
+  public enum Action {
+    /** The header and its value are captured. */
+    CAPTURE,
+    /** The header is captured with its value masked. */
+    MASK,
+    /** The header is not captured. */
+    DROP
+  }
+
+  /**
+   * The headers that carry credentials, denied by the default policy.
+   */
+  public static final List<String> CREDENTIAL_HEADERS = List.of(HttpHeaders.AUTHORIZATION,
+      HttpHeaders.COOKIE, HttpHeaders.PROXY_AUTHORIZATION, HttpHeaders.SET_COOKIE);
+
+  /**
+   * The default policy, it captures a few headers useful for troubleshooting and never the
+   * credential headers.
+   */
+  public static final HeaderPolicy DEFAULT = new HeaderPolicy(Arrays.asList(HttpHeaders.ACCEPT,
+      HttpHeaders.ACCEPT_LANGUAGE, HttpHeaders.CONTENT_LENGTH, HttpHeaders.CONTENT_TYPE,
+      HttpHeaders.HOST, HttpHeaders.USER_AGENT, "Traceparent", "X-Correlation-Id",
+      "X-Request-Id"), CREDENTIAL_HEADERS, List.of());
+
+  static final String MASK = "****";
+
+  private final Action unlisted;
+  private final String[] names;
+  private final Action[] actions;
+  private final int mask;
+
+  /**
+   * Constructs a new header policy.
+   *
+   * @param allowed the headers captured, or null to capture every header that is not denied.
+   * @param denied  the headers never captured.
+   * @param masked  the headers captured with their value masked, an Authorization header keeps its
+   *                scheme, e.g. Bearer ****.
+   */
+  public HeaderPolicy(Collection<String> allowed, Collection<String> denied,
+      Collection<String> masked) {
+    Map<String, Action> rules = new LinkedHashMap<>();
+    if (allowed != null) {
+      allowed.forEach(name -> rules.put(name.toLowerCase(Locale.ROOT), Action.CAPTURE));
+    }
+    masked.forEach(name -> rules.put(name.toLowerCase(Locale.ROOT), Action.MASK));
+    denied.forEach(name -> rules.put(name.toLowerCase(Locale.ROOT), Action.DROP));
+    unlisted = allowed == null ? Action.CAPTURE : Action.DROP;
+
+    int size = Integer.highestOneBit(Math.max(1, rules.size()) * 2 - 1) << 1;
+    names = new String[size];
+    actions = new Action[size];
+    mask = size - 1;
+    rules.forEach((name, action) -> {
+      int slot = hash(name) & mask;
+      while (names[slot] != null) {
+        slot = (slot + 1) & mask;
+      }
+      names[slot] = name;
+      actions[slot] = action;
+    });
+  }
+
+  /**
+   * Returns what is done with a header.
+   * @param headerName the name of the header, in any case.
+   * @return the action for the header.
+   */
+  public Action getAction(String headerName) {
+    // The table is at most half full, so the probe always ends at an empty slot.
+    for (int slot = hash(headerName) & mask; names[slot] != null; slot = (slot + 1) & mask) {
+      String name = names[slot];
+      if (name.length() == headerName.length()
+          && name.regionMatches(true, 0, headerName, 0, name.length())) {
+        return actions[slot];
+      }
+    }
+    return unlisted;
+  }
+
+  /**
+   * Returns the value of a header as captured by this policy.
+   * @param headerName the name of the header.
+   * @param value      the value of the header.
+   * @return the value, the masked value or null if the header is dropped.
+   */
+  public String apply(String headerName, String value) {
+    switch (getAction(headerName)) {
+      case CAPTURE:
+        return value;
+      case MASK:
+        return mask(value);
+      default:
+        return null;
+    }
+  }
+
+  static String mask(String value) {
+    if (value == null) {
+      return null;
+    }
+    int space = value.indexOf(' ');
+    // Keep the scheme of credentials such as "Bearer <token>", it tells what kind was sent.
+    return space > 0 ? value.substring(0, space + 1) + MASK : MASK;
+  }
+
+  private static int hash(String name) {
+    int h = 0x811C9DC5;
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (c >= 'A' && c <= 'Z') {
+        c += 'a' - 'A';
+      }
+      h = (h ^ c) * 0x01000193;
+    }
+    return h ^ (h >>> 16);
+  }
+}
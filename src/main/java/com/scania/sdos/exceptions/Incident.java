@@ -1,5 +1,7 @@
 package com.scania.sdip.exceptions;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import java.util.ArrayList;
 import java.util.List;
 /**
@@ -11,6 +13,26 @@ public class Incident {
   private List<String> messages = new ArrayList<>();
   private long timestamp;
   private String request;
+  @JsonInclude(JsonInclude.Include.NON_EMPTY)
+  private List<Violation> violations = new ArrayList<>();
+  @JsonIgnore
+  private int[] httpStatuses;
+
+  /**
+   * Constructs a new empty incident.
+   */
+  public Incident() {
+  }
+
+  /**
+   * Constructs a new incident with the given lists of error codes and messages.
+   * @param sdipErrorCodes a list of error codes
+   * @param messages a list of messages
+   */
+  protected Incident(List<String> sdipErrorCodes, List<String> messages) {
+    this.sdipErrorCodes = sdipErrorCodes;
+    this.messages = messages;
+  }
 
   /**
    * Adds an error code to the incident.
@@ -91,4 +113,32 @@ public class Incident {
   public void setRequest(String request) {
     this.request = request;
   }
+
+  /**
+   * Returns the validation failures that caused the incident, identical failures grouped.
+   * @return a list of violations, empty if the incident was not caused by validation.
+   */
+  public List<Violation> getViolations() {
+    return violations;
+  }
+
+  /**
+   * Replace the list of validation failures of the incident.
+   * @param violations a list of violations
+   */
+  public void setViolations(List<Violation> violations) {
+    this.violations = violations;
+  }
+
+  /**
+   * Returns the HTTP status of each error code, in the order of the error codes. They are not part
+   * of the JSON body, the {@link IncidentBinaryCodec} sends them to other SDIP services.
+   */
+  int[] getHttpStatuses() {
+    return httpStatuses;
+  }
+
+  void setHttpStatuses(int[] httpStatuses) {
+    this.httpStatuses = httpStatuses;
+  }
 }
@@ -0,0 +1,368 @@
+package com.scania.sdip.exceptions;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.http.MediaType;
+
+/**
+ * The IncidentBinaryCodec class encodes an {@link Incident} in a compact binary format for
+ * responses between SDIP services, negotiated by the {@link #MEDIA_TYPE} content type. JSON stays
+ * the format of all other responses.
+ *
+ * <p>The format is the magic bytes 'S' 'I', a version byte, the timestamp as a varint, the request
+ * as a string, the error codes as a varint count followed by the SDIP error code and HTTP status of
+ * each as varints, the messages as a varint count followed by strings, and the violations as a
+ * varint count followed by the field, message and count of each. A string is its UTF-8 length plus
+ * one as a varint, 0 for null, followed by its UTF-8 bytes. Varints are unsigned LEB128.
+ */
+public final class IncidentBinaryCodec {
+
+  /**
+   * The content type of a binary encoded incident.
+   */
+  public static final MediaType MEDIA_TYPE = new MediaType("application", "vnd.sdip.incident");
+
+  private static final IncidentBinaryCodec instance = new IncidentBinaryCodec();
+  private static final byte MAGIC_0 = 'S';
+  private static final byte MAGIC_1 = 'I';
+  private static final byte VERSION = 1;
+  private static final int HEADER_LENGTH = 3;
+
+  private IncidentBinaryCodec() {
+  }
+
+  /**
+   * Returns the one and only instance of the codec.
+   * @return the codec.
+   */
+  public static IncidentBinaryCodec getInstance() {
+    return instance;
+  }
+
+  /**
+   * Encodes an incident. The strings are encoded to UTF-8 by the JDK first, so the incident is
+   * written into an array of the exact size with one copy of each string.
+   *
+   * <p>The HTTP status of each error code is the one of its error binding when the incident was
+   * created by an {@link IncidentException} or decoded by this codec, so the statuses of remote
+   * error codes are passed on. For other incidents the status is looked up in the
+   * {@link ErrorCodeRegistry}, 0 if the error code is not registered.
+   *
+   * @param incident the incident.
+   * @return the encoded incident.
+   * @throws IllegalArgumentException if an error code of the incident is not a SDIP error code.
+   */
+  public byte[] encode(Incident incident) {
+    List<String> sdipErrorCodes = incident.getSdipErrorCodes();
+    int[] httpStatuses = incident.getHttpStatuses();
+    if (httpStatuses != null && httpStatuses.length != sdipErrorCodes.size()) {
+      // The error codes were replaced after the incident was created.
+      httpStatuses = null;
+    }
+    List<String> messages = incident.getMessages();
+    List<Violation> violations = incident.getViolations();
+    int[] codes = new int[sdipErrorCodes.size() * 2];
+    byte[][] strings = new byte[1 + messages.size() + violations.size() * 2][];
+    int stringCount = 0;
+    strings[stringCount++] = toUtf8(incident.getRequest());
+    long length = HEADER_LENGTH + varLongLength(incident.getTimestamp())
+        + varLongLength(sdipErrorCodes.size()) + varLongLength(messages.size())
+        + varLongLength(violations.size());
+    for (int i = 0; i < codes.length; i += 2) {
+      codes[i] = parseSdipErrorCode(sdipErrorCodes.get(i / 2));
+      if (httpStatuses != null) {
+        codes[i + 1] = httpStatuses[i / 2];
+      } else {
+        ErrorCode errorCode = ErrorCodeRegistry.getInstance().find(codes[i]);
+        codes[i + 1] = errorCode == null ? 0 : errorCode.getHttpErrorCode();
+      }
+      length += varLongLength(codes[i]) + varLongLength(codes[i + 1]);
+    }
+    for (String message : messages) {
+      strings[stringCount++] = toUtf8(message);
+    }
+    for (Violation violation : violations) {
+      strings[stringCount++] = toUtf8(violation.getField());
+      strings[stringCount++] = toUtf8(violation.getMessage());
+      length += varLongLength(violation.getCount());
+    }
+    for (byte[] string : strings) {
+      length += string == null ? 1 : varLongLength(string.length + 1L) + string.length;
+    }
+    if (length > Integer.MAX_VALUE - 8) {
+      throw new IllegalArgumentException("The incident is too large to encode: " + length
+          + " bytes.");
+    }
+
+    Writer writer = new Writer(new byte[(int) length]);
+    writer.bytes[writer.position++] = MAGIC_0;
+    writer.bytes[writer.position++] = MAGIC_1;
+    writer.bytes[writer.position++] = VERSION;
+    writer.writeVarLong(incident.getTimestamp());
+    stringCount = 0;
+    writer.writeString(strings[stringCount++]);
+    writer.writeVarLong(sdipErrorCodes.size());
+    for (int code : codes) {
+      writer.writeVarLong(code);
+    }
+    writer.writeVarLong(messages.size());
+    for (int i = 0; i < messages.size(); i++) {
+      writer.writeString(strings[stringCount++]);
+    }
+    writer.writeVarLong(violations.size());
+    for (Violation violation : violations) {
+      writer.writeString(strings[stringCount++]);
+      writer.writeString(strings[stringCount++]);
+      writer.writeVarLong(violation.getCount());
+    }
+    return writer.bytes;
+  }
+
+  /**
+   * Decodes an incident, the position of the buffer is moved past it.
+   *
+   * @param buffer the encoded incident.
+   * @return the incident.
+   * @throws IllegalArgumentException if the buffer does not hold a valid encoded incident.
+   */
+  public Incident decode(ByteBuffer buffer) {
+    Reader reader = new Reader(buffer);
+    Incident incident = new Incident();
+    incident.setTimestamp(reader.readVarLong());
+    incident.setRequest(reader.readString());
+    int codeCount = reader.readCount(2);
+    List<String> sdipErrorCodes = new ArrayList<>(codeCount);
+    int[] httpStatuses = new int[codeCount];
+    for (int i = 0; i < codeCount; i++) {
+      sdipErrorCodes.add(SdipErrorParameter.ERRORCODE_PREFIX + reader.readVarInt());
+      httpStatuses[i] = reader.readVarInt();
+    }
+    incident.setSdipErrorCodes(sdipErrorCodes);
+    incident.setHttpStatuses(httpStatuses);
+    int messageCount = reader.readCount(1);
+    List<String> messages = new ArrayList<>(messageCount);
+    for (int i = 0; i < messageCount; i++) {
+      messages.add(reader.readString());
+    }
+    incident.setMessages(messages);
+    int violationCount = reader.readCount(3);
+    List<Violation> violations = new ArrayList<>(violationCount);
+    for (int i = 0; i < violationCount; i++) {
+      violations.add(new Violation(reader.readString(), reader.readString(),
+          reader.readVarInt()));
+    }
+    incident.setViolations(violations);
+    reader.finish();
+    return incident;
+  }
+
+  /**
+   * Decodes the error codes and messages of an incident straight into error bindings, without
+   * building the incident. Each binding has a {@link RemoteErrorCode} with the SDIP error code and
+   * HTTP status sent by the remote service, and the message it rendered as its argument. The
+   * strings are decoded from the array of the buffer in place, the position of the buffer is moved
+   * past the incident.
+   *
+   * @param buffer the encoded incident.
+   * @return the error bindings of the incident, in the order of its error codes.
+   * @throws IllegalArgumentException if the buffer does not hold a valid encoded incident.
+   */
+  public List<ErrorBinding> decodeErrorBindings(ByteBuffer buffer) {
+    Reader reader = new Reader(buffer);
+    reader.readVarLong();
+    reader.skipString();
+    int codeCount = reader.readCount(2);
+    int[] codes = new int[codeCount * 2];
+    for (int i = 0; i < codes.length; i++) {
+      codes[i] = reader.readVarInt();
+    }
+    int messageCount = reader.readCount(1);
+    List<ErrorBinding> errorBindings = new ArrayList<>(codeCount);
+    for (int i = 0; i < codeCount; i++) {
+      String message = i < messageCount ? reader.readString() : null;
+      int status = codes[2 * i + 1];
+      errorBindings.add(ErrorBinding.ofValidated(
+          new RemoteErrorCode(codes[2 * i], status == 0 ? 500 : status),
+          message == null ? "" : message));
+    }
+    for (int i = codeCount; i < messageCount; i++) {
+      reader.skipString();
+    }
+    int violationCount = reader.readCount(3);
+    for (int i = 0; i < violationCount; i++) {
+      reader.skipString();
+      reader.skipString();
+      reader.readVarInt();
+    }
+    reader.finish();
+    return errorBindings;
+  }
+
+  /**
+   * Parses the number of a SDIP error code string without a substring.
+   */
+  static int parseSdipErrorCode(String sdipErrorCode) {
+    String prefix = SdipErrorParameter.ERRORCODE_PREFIX;
+    int end = sdipErrorCode == null ? 0 : sdipErrorCode.length();
+    if (end > prefix.length() && end - prefix.length() <= 9 && sdipErrorCode.startsWith(prefix)) {
+      int code = 0;
+      for (int i = prefix.length(); i < end; i++) {
+        int digit = sdipErrorCode.charAt(i) - '0';
+        if (digit < 0 || digit > 9) {
+          code = -1;
+          break;
+        }
+        code = code * 10 + digit;
+      }
+      if (code >= 0) {
+        return code;
+      }
+    }
+    throw new IllegalArgumentException("'" + sdipErrorCode + "' is not a SDIP error code.");
+  }
+
+  private static byte[] toUtf8(String value) {
+    return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static int varLongLength(long value) {
+    int length = 1;
+    while ((value & ~0x7FL) != 0) {
+      value >>>= 7;
+      ++length;
+    }
+    return length;
+  }
+
+  private static final class Writer {
+    private final byte[] bytes;
+    private int position;
+
+    private Writer(byte[] bytes) {
+      this.bytes = bytes;
+    }
+
+    private void writeVarLong(long value) {
+      while ((value & ~0x7FL) != 0) {
+        bytes[position++] = (byte) ((value & 0x7F) | 0x80);
+        value >>>= 7;
+      }
+      bytes[position++] = (byte) value;
+    }
+
+    private void writeString(byte[] value) {
+      if (value == null) {
+        bytes[position++] = 0;
+        return;
+      }
+      writeVarLong(value.length + 1L);
+      System.arraycopy(value, 0, bytes, position, value.length);
+      position += value.length;
+    }
+  }
+
+  /**
+   * Reads from the backing array of a heap buffer, so strings are decoded in place. A direct or
+   * read-only buffer is copied once.
+   */
+  private static final class Reader {
+    private final ByteBuffer buffer;
+    private final byte[] bytes;
+    private final int offset;
+    private final int limit;
+    private int position;
+
+    private Reader(ByteBuffer buffer) {
+      this.buffer = buffer;
+      if (buffer.hasArray()) {
+        bytes = buffer.array();
+        offset = buffer.arrayOffset();
+        position = offset + buffer.position();
+        limit = offset + buffer.limit();
+      } else {
+        bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        offset = -buffer.position();
+        position = 0;
+        limit = bytes.length;
+      }
+      if (limit - position < HEADER_LENGTH || bytes[position] != MAGIC_0
+          || bytes[position + 1] != MAGIC_1) {
+        throw new IllegalArgumentException("The buffer does not hold a binary incident.");
+      }
+      if (bytes[position + 2] != VERSION) {
+        throw new IllegalArgumentException("Unsupported binary incident version "
+            + bytes[position + 2] + ".");
+      }
+      position += HEADER_LENGTH;
+    }
+
+    private long readVarLong() {
+      long value = 0;
+      for (int shift = 0; shift < 64; shift += 7) {
+        if (position >= limit) {
+          throw truncated();
+        }
+        byte b = bytes[position++];
+        value |= (long) (b & 0x7F) << shift;
+        if (b >= 0) {
+          return value;
+        }
+      }
+      throw new IllegalArgumentException("Malformed varint in binary incident.");
+    }
+
+    private int readVarInt() {
+      long value = readVarLong();
+      if (value > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("Varint " + value + " out of range in binary incident.");
+      }
+      return (int) value;
+    }
+
+    /**
+     * Reads the number of entries of a list, which can not be more than the remaining bytes allow,
+     * so a corrupt count can not allocate a huge list.
+     */
+    private int readCount(int minEntryLength) {
+      int count = readVarInt();
+      if (count > (limit - position) / minEntryLength) {
+        throw truncated();
+      }
+      return count;
+    }
+
+    private int readStringLength() {
+      int length = readVarInt() - 1;
+      if (length > limit - position) {
+        throw truncated();
+      }
+      return length;
+    }
+
+    private String readString() {
+      int length = readStringLength();
+      if (length < 0) {
+        return null;
+      }
+      String value = new String(bytes, position, length, StandardCharsets.UTF_8);
+      position += length;
+      return value;
+    }
+
+    private void skipString() {
+      int length = readStringLength();
+      position += Math.max(length, 0);
+    }
+
+    private void finish() {
+      buffer.position(position - offset);
+    }
+
+    private IllegalArgumentException truncated() {
+      return new IllegalArgumentException("Truncated binary incident.");
+    }
+  }
+}
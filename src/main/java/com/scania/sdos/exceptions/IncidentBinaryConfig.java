@@ -0,0 +1,23 @@
+package com.scania.sdip.exceptions;
+
+import java.util.List;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Registers the {@link IncidentBinaryHttpMessageConverter} in servlet applications. It is added
+ * after the default converters, so the JSON converter is still chosen unless the client only or
+ * preferably accepts the binary incident content type.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class IncidentBinaryConfig implements WebMvcConfigurer {
+
+  @Override
+  public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+    converters.add(new IncidentBinaryHttpMessageConverter());
+  }
+}
@@ -0,0 +1,45 @@
+package com.scania.sdip.exceptions;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+/**
+ * The IncidentBinaryHttpMessageConverter class reads and writes an {@link Incident} in the binary
+ * format of {@link IncidentBinaryCodec}. It is only chosen for a response when the client accepts
+ * {@link IncidentBinaryCodec#MEDIA_TYPE}, so JSON stays the default.
+ */
+public class IncidentBinaryHttpMessageConverter extends AbstractHttpMessageConverter<Incident> {
+
+  /**
+   * Constructs a new converter for the binary incident content type.
+   */
+  public IncidentBinaryHttpMessageConverter() {
+    super(IncidentBinaryCodec.MEDIA_TYPE);
+  }
+
+  @Override
+  protected boolean supports(Class<?> clazz) {
+    return Incident.class.isAssignableFrom(clazz);
+  }
+
+  @Override
+  protected Incident readInternal(Class<? extends Incident> clazz, HttpInputMessage inputMessage)
+      throws IOException {
+    try {
+      return IncidentBinaryCodec.getInstance()
+          .decode(ByteBuffer.wrap(inputMessage.getBody().readAllBytes()));
+    } catch (IllegalArgumentException e) {
+      throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+    }
+  }
+
+  @Override
+  protected void writeInternal(Incident incident, HttpOutputMessage outputMessage)
+      throws IOException {
+    outputMessage.getBody().write(IncidentBinaryCodec.getInstance().encode(incident));
+  }
+}
@@ -0,0 +1,163 @@
+package com.scania.sdip.exceptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.stream.Collector;
+import org.slf4j.Logger;
+
+/**
+ * The IncidentCollector class gathers error bindings from many threads, e.g. from a parallel
+ * stream or fork/join tasks validating a large graph, and turns them into one
+ * {@link IncidentException} at the end. Appends are lock-free, unlike calling
+ * {@link IncidentException#addIncident(ErrorBinding)} which has to be serialized by the caller.
+ */
+public class IncidentCollector {
+
+  /**
+   * The order of the error bindings in the resulting incident exception.
+   */
+  public enum Ordering {
+    /** The order the bindings were added and merged in, which depends on thread scheduling. */
+    ARRIVAL,
+    /** Ordered by SDIP error code, then by arguments, the same for every run. */
+    ERROR_CODE
+  }
+
+  private static final Comparator<ErrorBinding> ERROR_CODE_ORDER =
+      Comparator.<ErrorBinding>comparingInt(binding -> binding.getErrorCode().getSdipErrorCode())
+          .thenComparing(binding -> Arrays.deepToString(binding.getArgs()));
+
+  private final ConcurrentLinkedQueue<ErrorBinding> errorBindings = new ConcurrentLinkedQueue<>();
+  private final Ordering ordering;
+
+  /**
+   * Constructs a new empty collector keeping the arrival order.
+   */
+  public IncidentCollector() {
+    this(Ordering.ARRIVAL);
+  }
+
+  /**
+   * Constructs a new empty collector.
+   * @param ordering the order of the error bindings in the incident exception.
+   */
+  public IncidentCollector(Ordering ordering) {
+    this.ordering = ordering;
+  }
+
+  /**
+   * Returns a collector of a stream of error bindings keeping the encounter order of the stream,
+   * also for parallel streams.
+   * @return the collector.
+   */
+  public static Collector<ErrorBinding, ?, IncidentCollector> toIncidentCollector() {
+    return toIncidentCollector(Ordering.ARRIVAL);
+  }
+
+  /**
+   * Returns a collector of a stream of error bindings.
+   * @param ordering the order of the error bindings in the incident exception.
+   * @return the collector.
+   */
+  public static Collector<ErrorBinding, ?, IncidentCollector> toIncidentCollector(
+      Ordering ordering) {
+    return Collector.of(() -> new IncidentCollector(ordering), IncidentCollector::add,
+        IncidentCollector::merge, Collector.Characteristics.IDENTITY_FINISH);
+  }
+
+  /**
+   * Adds an error binding, safe to call from any thread.
+   * @param errorBinding the error binding.
+   */
+  public void add(ErrorBinding errorBinding) {
+    errorBindings.add(errorBinding);
+  }
+
+  /**
+   * Adds an error binding, safe to call from any thread.
+   * @param errorCode {@link SdipErrorCode} SDIP error code.
+   * @param args Arguments required for the template strings in Http message and Log message.
+   */
+  public void add(ErrorCode errorCode, Object... args) {
+    add(new ErrorBinding(errorCode, args));
+  }
+
+  /**
+   * Adds all error bindings of another collector after the ones of this collector, the combine
+   * step of a fork/join task.
+   * @param other the collector to merge into this one.
+   * @return this collector.
+   */
+  public IncidentCollector merge(IncidentCollector other) {
+    errorBindings.addAll(other.errorBindings);
+    return this;
+  }
+
+  /**
+   * Returns whether no error binding has been added.
+   * @return true if the collector is empty.
+   */
+  public boolean isEmpty() {
+    return errorBindings.isEmpty();
+  }
+
+  /**
+   * Returns a copy of the error bindings added so far, in the order of the collector.
+   * @return the error bindings.
+   */
+  public List<ErrorBinding> getErrorBindings() {
+    List<ErrorBinding> copy = new ArrayList<>(errorBindings);
+    if (ordering == Ordering.ERROR_CODE) {
+      copy.sort(ERROR_CODE_ORDER);
+    }
+    return copy;
+  }
+
+  /**
+   * Converts the collected error bindings into an incident exception logging with a SLF4J logger.
+   * @param logger a SLF4J logger.
+   * @return the incident exception, without error bindings if the collector is empty.
+   */
+  public IncidentException toIncidentException(Logger logger) {
+    return addTo(new IncidentException(logger));
+  }
+
+  /**
+   * Converts the collected error bindings into an incident exception logging with a log4j logger.
+   * @param logger a log4j logger.
+   * @return the incident exception, without error bindings if the collector is empty.
+   */
+  public IncidentException toIncidentException(org.apache.logging.log4j.Logger logger) {
+    return addTo(new IncidentException(logger));
+  }
+
+  /**
+   * Throws an incident exception with the collected error bindings if there are any.
+   * @param logger a SLF4J logger.
+   */
+  public void throwIfAnyIncidents(Logger logger) {
+    if (!isEmpty()) {
+      throw toIncidentException(logger);
+    }
+  }
+
+  /**
+   * Throws an incident exception with the collected error bindings if there are any.
+   * @param logger a log4j logger.
+   */
+  public void throwIfAnyIncidents(org.apache.logging.log4j.Logger logger) {
+    if (!isEmpty()) {
+      throw toIncidentException(logger);
+    }
+  }
+
+  private IncidentException addTo(IncidentException incidentException) {
+    for (ErrorBinding errorBinding : getErrorBindings()) {
+      incidentException.addIncident(errorBinding);
+    }
+    return incidentException;
+  }
+}
@@ -1,17 +1,10 @@
 package com.scania.sdip.exceptions;
 
-import com.scania.sdip.model.ServiceArgument;
-import java.io.ByteArrayOutputStream;
-import java.io.PrintStream;
-import java.io.PrintWriter;
-import java.io.StringWriter;
-import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Locale;
 import org.slf4j.Logger;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -21,20 +14,24 @@ import org.springframework.web.context.request.ServletWebRequest;
  * The IncidentException class represents a runtime exception in SDIP. It holds information about
  * the {@link ServletWebRequest} that caused the exception, the relevant SDIP error code and the
  * arguments supplied for said error code as an {@link ErrorBinding}. Provided methods for logging
- * and throwing incidents are used by the {@link RestExceptionHandler}.
+ * and throwing incidents are used by the {@link RestExceptionHandler}. Whether the stack trace is
+ * filled in is decided by {@link ErrorCode#isStackTraceWritable()} of the error code the incident is
+ * created with.
  */
 
 public class IncidentException extends RuntimeException implements IIncidentException {
 
   private static final long serialVersionUID = 1L;
+  private static volatile IncidentSink incidentSink = IncidentSink.SYNCHRONOUS;
   private final List<ErrorBinding> errorBindings = new ArrayList<>();
   private final Logger sl4jLogger;
   private final org.apache.logging.log4j.Logger log4jlogger;
-  private ServletWebRequest request;
+  private RequestSnapshot request;
   private String actionDetails;
   private Exception exception;
   private String executionId;
   private String populateErrorMsg;
+  private List<Violation> violations = Collections.emptyList();
 
   public String getPopulateErrorMsg() { return populateErrorMsg; }
 
@@ -53,6 +50,23 @@ public class IncidentException extends RuntimeException implements IIncidentExce
     return actionDetails;
   }
 
+  Exception getException() {
+    return exception;
+  }
+
+  public List<Violation> getViolations() {
+    return violations;
+  }
+
+  /**
+   * Sets the validation failures returned as a structured list in the {@link Incident}.
+   *
+   * @param violations the violations, see {@link ViolationAggregator#getViolations()}.
+   */
+  public void setViolations(List<Violation> violations) {
+    this.violations = violations;
+  }
+
   /**
    * Constructs a new incident exception with the specified SLF4J logger.
    *
@@ -82,6 +96,7 @@ public class IncidentException extends RuntimeException implements IIncidentExce
    * @param args      Arguments required for the template strings in Http message and Log message.
    */
   public IncidentException(ErrorCode errorCode, Logger logger, Object... args) {
+    super(null, null, true, isStackTraceWritable(errorCode));
     sl4jLogger = logger;
     log4jlogger = null;
     errorBindings.add(new ErrorBinding(errorCode, args));
@@ -97,6 +112,7 @@ public class IncidentException extends RuntimeException implements IIncidentExce
    */
   public IncidentException(ErrorCode errorCode, org.apache.logging.log4j.Logger logger,
       Object... args) {
+    super(null, null, true, isStackTraceWritable(errorCode));
     log4jlogger = logger;
     sl4jLogger = null;
     errorBindings.add(new ErrorBinding(errorCode, args));
@@ -114,6 +130,7 @@ public class IncidentException extends RuntimeException implements IIncidentExce
   public IncidentException(String action, ErrorCode errorCode,
       org.apache.logging.log4j.Logger logger,
       Object... args) {
+    super(null, null, true, isStackTraceWritable(errorCode));
     actionDetails = action;
     log4jlogger = logger;
     sl4jLogger = null;
@@ -132,7 +149,7 @@ public class IncidentException extends RuntimeException implements IIncidentExce
   public IncidentException(Exception ex, ErrorCode errorCode,
       org.apache.logging.log4j.Logger logger,
       Object... args) {
-    super(ex.getMessage());
+    super(ex.getMessage(), null, true, isStackTraceWritable(errorCode));
     this.exception = ex;
     log4jlogger = logger;
     sl4jLogger = null;
@@ -152,7 +169,7 @@ public class IncidentException extends RuntimeException implements IIncidentExce
   public IncidentException(Exception ex,String populateErrorMessage, ErrorCode errorCode,
       org.apache.logging.log4j.Logger logger,
       Object... args) {
-    super(ex.getMessage());
+    super(ex.getMessage(), null, true, isStackTraceWritable(errorCode));
     this.exception = ex;
     this.populateErrorMsg = populateErrorMessage;
     log4jlogger = logger;
@@ -160,34 +177,82 @@ public class IncidentException extends RuntimeException implements IIncidentExce
     errorBindings.add(new ErrorBinding(errorCode, args));
   }
 
+  private static boolean isStackTraceWritable(ErrorCode errorCode) {
+    return errorCode == null || errorCode.isStackTraceWritable();
+  }
+
   @Override
   public void addIncident(ErrorBinding errorBinding) {
     errorBindings.add(errorBinding);
   }
 
+  /**
+   * Adds the bindings of an incident returned by another SDIP service, read by
+   * {@link IncidentImporter}, as the causes of this incident. Their codes and messages are returned
+   * as they are and their statuses count towards the status of the response.
+   * @param remoteErrorBindings the bindings of the remote incident.
+   */
+  public void addRemoteIncident(List<RemoteErrorBinding> remoteErrorBindings) {
+    errorBindings.addAll(remoteErrorBindings);
+  }
+
   private Object[] filterExceptions(Object[] args) {
     return Arrays.stream(args).filter(object -> !(object instanceof Throwable))
-        .map(object -> String.valueOf(object).replaceAll("\r|\n", "")).toArray();
+        .map(SingleLineArgument::new).toArray();
+  }
+
+  /**
+   * An argument of an HTTP message, rendered without line breaks. It is only rendered if the
+   * template refers to it, so an argument meant for the log, such as a captured payload, is not
+   * rendered for the response.
+   */
+  private static final class SingleLineArgument {
+    private final Object value;
+
+    private SingleLineArgument(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    public String toString() {
+      return String.valueOf(value).replaceAll("\r|\n", "");
+    }
   }
 
   @Override
   public ResponseEntity<Incident> createHttpErrorResponse() {
+    Locale locale = LocalizedMessages.getInstance()
+        .negotiate(request == null ? null : request.getAcceptLanguage());
+    if (errorBindings.size() == 1 && (actionDetails == null || actionDetails.isEmpty())
+        && violations.isEmpty() && !isLocalized(locale, errorBindings.get(0).getErrorCode())) {
+      ErrorCode errorCode = errorBindings.get(0).getErrorCode();
+      Incident preSerialized = PreSerializedIncident.create(errorCode, System.currentTimeMillis(),
+          getRequestString());
+      if (preSerialized != null) {
+        IncidentMetrics.getInstance().recordErrorCode(errorCode);
+        return new ResponseEntity<>(preSerialized,
+            toHttpStatus(pickWorstStatusCode(0, errorCode.getHttpErrorCode())));
+      }
+    }
     Incident errorResponse = new Incident();
+    int[] statusCodes = new int[errorBindings.size()];
     int worstStatusCode = 0;
-    for (ErrorBinding errorBinding : errorBindings) {
+    for (int i = 0; i < statusCodes.length; i++) {
+      ErrorBinding errorBinding = errorBindings.get(i);
+      IncidentMetrics.getInstance().recordErrorCode(errorBinding.getErrorCode());
       int statusCode = errorBinding.getErrorCode().getHttpErrorCode();
+      statusCodes[i] = statusCode;
       errorResponse.addSdipErrorCode(
           SdipErrorParameter.ERRORCODE_PREFIX + errorBinding.getErrorCode().getSdipErrorCode());
-      errorResponse.addMessage(MessageFormat.format(errorBinding.getErrorCode().getHttpMessage(),
-          filterExceptions(errorBinding.getArgs())));
+      errorResponse.addMessage(LocalizedMessages.getInstance()
+          .getHttpTemplate(locale, errorBinding.getErrorCode())
+          .format(filterExceptions(errorBinding.getArgs())));
       worstStatusCode = pickWorstStatusCode(worstStatusCode, statusCode);
     }
+    errorResponse.setHttpStatuses(statusCodes);
     errorResponse.setTimestamp(System.currentTimeMillis());
-    if (request != null) {
-      errorResponse.setRequest(buildRequestString(request));
-    } else {
-      errorResponse.setRequest("REQUEST DATA NOT AVAILABLE");
-    }
+    errorResponse.setRequest(getRequestString());
+    errorResponse.setViolations(new ArrayList<>(violations));
 
     if (this.actionDetails != null && !this.actionDetails.isEmpty()) {
       String error = errorResponse.getMessages().get(0);
@@ -197,15 +262,61 @@ public class IncidentException extends RuntimeException implements IIncidentExce
       errorResponse.setMessages(message);
       this.actionDetails = null;
     }
+    return new ResponseEntity<>(errorResponse, toHttpStatus(worstStatusCode));
+  }
+
+  private static boolean isLocalized(Locale locale, ErrorCode errorCode) {
+    return locale != null && LocalizedMessages.getInstance().getHttpTemplate(locale, errorCode)
+        != MessageTemplateCache.getHttpTemplate(errorCode);
+  }
+
+  String getRequestString() {
+    if (request != null) {
+      return request.getRequestLine();
+    }
+    return "REQUEST DATA NOT AVAILABLE";
+  }
+
+  String getRedactedRequestString() {
+    if (request != null) {
+      return request.getRedactedRequestLine();
+    }
+    return "REQUEST DATA NOT AVAILABLE";
+  }
+
+  private HttpStatus toHttpStatus(int worstStatusCode) {
+    worstStatusCode = toErrorStatusCode(worstStatusCode);
+    IncidentMetrics.getInstance().recordHttpStatus(worstStatusCode);
+    return HttpStatus.valueOf(worstStatusCode);
+  }
+
+  /**
+   * Returns the HTTP status the error response of a list of error bindings is answered with.
+   */
+  static int resolveHttpStatusCode(List<ErrorBinding> errorBindings) {
+    int worstStatusCode = 0;
+    for (ErrorBinding errorBinding : errorBindings) {
+      worstStatusCode = pickWorstStatusCode(worstStatusCode,
+          errorBinding.getErrorCode().getHttpErrorCode());
+    }
+    return toErrorStatusCode(worstStatusCode);
+  }
+
+  private static int toErrorStatusCode(int worstStatusCode) {
     // if this if statement is true we have mixed up status codes and error codes, we then put 500
     // just so the program can continue to run, WARN?
     if (!is4xx(worstStatusCode) && !is5xx(worstStatusCode)) {
-      worstStatusCode = 500;
+      return 500;
     }
-    return new ResponseEntity<>(errorResponse, HttpStatus.valueOf(worstStatusCode));
+    return worstStatusCode;
   }
 
-  private int pickWorstStatusCode(int worstStatusCode, int statusCode) {
+  private static int pickWorstStatusCode(int worstStatusCode, int statusCode) {
+    // A status that is not an error is answered with 500 by toHttpStatus, treat it so here as well
+    // so the result does not depend on the order of the bindings.
+    if (!is4xx(statusCode) && !is5xx(statusCode)) {
+      statusCode = 500;
+    }
     if (is4xx(worstStatusCode)) {
       if (is4xx(statusCode)) {
         if (statusCode != worstStatusCode) {
@@ -230,138 +341,72 @@ public class IncidentException extends RuntimeException implements IIncidentExce
 
   @Override
   public void printToLog() {
-    if (errorBindings.size() == 0) {
-      printEntryToLog(
-          "No error bindings set within the IncidentException. You should not see this message. Ensure that you didn't forgot to add an errorBinding or that you didn't.");
-    }
-    List<String> errorCodes = new ArrayList<>();
-    List<String> messages = new ArrayList<>();
-    List<Throwable> exceptions = new ArrayList<>();
-
-    iterateErrorBindings(errorBindings, exceptions, messages, errorCodes);
-
-    StringBuilder logEntry = new StringBuilder();
-    logEntry.append(String.join(", ", errorCodes) + "\n\n");
-    for (String message : messages) {
-      logEntry.append(message + "\n");
-    }
-    logEntry.append("\n");
-
-    appendHttpRequestInformation(logEntry);
-    appendExceptions(exceptions, logEntry);
-    printEntryToLog(logEntry.toString());
-    if (exception != null) {
-      StringWriter errors = new StringWriter();
-      exception.printStackTrace(new PrintWriter(errors));
-      printEntryToLog(errors.toString());
-    }
+    incidentSink.accept(toSnapshot());
   }
 
-  private void iterateErrorBindings(List<ErrorBinding> errorBindings, List<Throwable> exceptions,
-                                    List<String> messages, List<String> errorCodes){
-
-    for (ErrorBinding errorBinding : errorBindings) {
-      List<Object> arguments = new ArrayList<>();
-      errorBindingsArgs(arguments ,errorBinding, exceptions);
-
-      ServiceArgument serviceArgument = ServiceArgument.getInstance();
-      StringBuilder sb = new StringBuilder();
-      sb.append(serviceArgument.getEnvname());
-      sb.append("_");
-      sb.append(serviceArgument.getServiceId());
-      sb.append("_");
-      String errorMessage = errorBinding.getErrorCode().getLogMessage();
-
-      if(this.populateErrorMsg!=null && !this.populateErrorMsg.isEmpty()){
-        errorMessage =
-                "Error occured while populating " + this.populateErrorMsg + errorBinding.getErrorCode()
-                        .getLogMessage();
-      }
-
-      if (this.actionDetails != null && !this.actionDetails.isEmpty()) {
-        errorMessage =
-                "(Error occured in Action - " + this.actionDetails + ") " + errorBinding.getErrorCode()
-                        .getLogMessage();
-      }
-      errorCodes.add(sb + SdipErrorParameter.ERRORCODE_PREFIX + errorBinding.getErrorCode()
-              .getSdipErrorCode());
-      messages.add(
-              sb + SdipErrorParameter.ERRORCODE_PREFIX + errorBinding.getErrorCode().getSdipErrorCode()
-                      + ": "
-                      + MessageFormat.format(errorMessage, arguments.toArray()));
-      if(executionId!=null && !executionId.equals("")){
-        log4jlogger.error(executionId +"-"+ SdipErrorParameter.ERRORCODE_PREFIX +
-                errorBinding.getErrorCode().getSdipErrorCode() +"-"+
-                MessageFormat.format(errorMessage, arguments.toArray()));
-      }
-    }
+  /**
+   * Returns an immutable copy of the state of this incident exception, including the request
+   * information, for rendering the log entry later or on another thread.
+   *
+   * @return a snapshot of this incident exception.
+   */
+  public IncidentSnapshot toSnapshot() {
+    return new IncidentSnapshot(sl4jLogger, log4jlogger, errorBindings, actionDetails,
+        populateErrorMsg, executionId, request, exception);
   }
 
-  private void  errorBindingsArgs(List<Object> arguments , ErrorBinding errorBinding,
-                                  List<Throwable> exceptions){
-    for (Object arg : errorBinding.getArgs()) {
-      if (arg instanceof Throwable) {
-        exceptions.add((Throwable) arg);
-      } else {
-        arguments.add(arg);
-      }
-    }
-  }
-  private void appendHttpRequestInformation(StringBuilder logEntry) {
-    if (request == null) {
-      return;
-    }
-    StringBuilder headers = new StringBuilder();
-    Iterator<String> headerNames = request.getHeaderNames();
-    while (headerNames.hasNext()) {
-      String headerName = headerNames.next();
-      headers.append("        " + headerName + ": " + request.getHeader(headerName) + "\n");
-    }
-    String httpRequestMessage;
-    httpRequestMessage = "    " + buildRequestString(request) + "\n" + headers;
-    logEntry.append(httpRequestMessage);
+  /**
+   * Replace the sink that {@link #printToLog()} hands incidents to. The default sink renders and
+   * writes the incident on the calling thread.
+   *
+   * @param sink the incident sink to use, for example an {@link AsyncIncidentSink}.
+   */
+  public static void setIncidentSink(IncidentSink sink) {
+    incidentSink = sink == null ? IncidentSink.SYNCHRONOUS : sink;
   }
 
-  private void appendExceptions(Collection<Throwable> throwables, StringBuilder logEntry) {
-    for (Throwable throwable : throwables) {
-      ByteArrayOutputStream out = new ByteArrayOutputStream();
-      PrintStream s = new PrintStream(out);
-      throwable.printStackTrace(s);
-      logEntry.append("    " + out.toString());
-    }
+  /**
+   * Returns the sink that {@link #printToLog()} hands incidents to.
+   *
+   * @return the current incident sink.
+   */
+  public static IncidentSink getIncidentSink() {
+    return incidentSink;
   }
 
-
   public void setActionDetails(String actionDetails){
     this.actionDetails = actionDetails;
   }
 
+  /**
+   * Sets the snapshot of the request that caused the incident, used for requests that are not
+   * servlet requests, e.g. on WebFlux.
+   *
+   * @param request the request snapshot, may be null.
+   */
+  public void setRequestSnapshot(RequestSnapshot request) {
+    this.request = request;
+  }
+
+  /**
+   * Takes a {@link RequestSnapshot} of the request that caused the incident, the request itself is
+   * not kept.
+   *
+   * @param request the request, may be null.
+   */
   @Override
   public void setRequestUsed(ServletWebRequest request) {
-    this.request = request;
+    this.request = RequestSnapshot.capture(request);
   }
 
-  private boolean is4xx(int statusCode) {
+  private static boolean is4xx(int statusCode) {
     return (statusCode >= 400) && (statusCode < 500);
   }
 
-  private boolean is5xx(int statusCode) {
+  private static boolean is5xx(int statusCode) {
     return (statusCode >= 500) && (statusCode < 600);
   }
 
-  private void printEntryToLog(String entry) {
-    if (sl4jLogger != null) {
-      sl4jLogger.error(entry);
-    } else {
-      log4jlogger.error(entry);
-    }
-  }
-
-  private String buildRequestString(ServletWebRequest request) {
-    return request.getRequest().getMethod() + " " + request.getRequest().getRequestURI()
-        + Optional.ofNullable(request.getRequest().getQueryString()).orElse("");
-  }
-
   @Override
   public void throwIfAnyIncidents() {
     if (!errorBindings.isEmpty()) {
@@ -0,0 +1,61 @@
+package com.scania.sdip.exceptions;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * The IncidentFactoryRegistry class maps exception types to factories that turn an exception into
+ * an {@link IncidentException}. An exception is handled by the factory registered for its own class
+ * or for its closest registered superclass. The resolved factory is cached per exception class, so
+ * a lookup costs a single {@link ClassValue} access instead of a chain of instanceof checks.
+ */
+public class IncidentFactoryRegistry {
+
+  private final Map<Class<?>, Function<Exception, IncidentException>> factories =
+      new ConcurrentHashMap<>();
+  private volatile ClassValue<Function<Exception, IncidentException>> resolvedFactories =
+      newResolver();
+
+  /**
+   * Registers the factory used for exceptions of a type and its subclasses that don't have a
+   * closer registration. A previous registration for the same type is replaced.
+   *
+   * @param type    the exception type.
+   * @param factory creates the incident exception for an exception of the type.
+   * @param <T>     the exception type.
+   */
+  public synchronized <T extends Exception> void register(Class<T> type,
+      Function<? super T, IncidentException> factory) {
+    factories.put(type, exception -> factory.apply(type.cast(exception)));
+    // Drop every cached resolution, a new registration may be closer for already seen subclasses.
+    resolvedFactories = newResolver();
+  }
+
+  /**
+   * Creates the incident exception for an exception using the closest registered factory.
+   *
+   * @param exception the exception to convert.
+   * @return the incident exception, or null if no factory is registered for the exception type.
+   */
+  public IncidentException createIncident(Exception exception) {
+    Function<Exception, IncidentException> factory =
+        resolvedFactories.get(exception.getClass());
+    return factory == null ? null : factory.apply(exception);
+  }
+
+  private ClassValue<Function<Exception, IncidentException>> newResolver() {
+    return new ClassValue<Function<Exception, IncidentException>>() {
+      @Override
+      protected Function<Exception, IncidentException> computeValue(Class<?> type) {
+        for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+          Function<Exception, IncidentException> factory = factories.get(current);
+          if (factory != null) {
+            return factory;
+          }
+        }
+        return null;
+      }
+    };
+  }
+}
@@ -0,0 +1,137 @@
+package com.scania.sdip.exceptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The IncidentFlightRecorder class keeps the most recent incidents in memory, so they can be looked
+ * at without waiting for the log aggregator. It is a fixed-size ring buffer: recording takes a slot
+ * with a single atomic increment and stores one {@link RecordedIncident}, overwriting the oldest
+ * entry once the buffer is full. Readers never block writers.
+ */
+public final class IncidentFlightRecorder {
+
+  /**
+   * The default number of incidents kept.
+   */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  private static final IncidentFlightRecorder instance =
+      new IncidentFlightRecorder(DEFAULT_CAPACITY);
+
+  private final AtomicReferenceArray<RecordedIncident> slots;
+  private final AtomicLong nextSequence = new AtomicLong();
+  private final int mask;
+
+  /**
+   * Constructs a new empty recorder.
+   * @param capacity the number of incidents kept, rounded up to a power of two.
+   */
+  public IncidentFlightRecorder(int capacity) {
+    if (capacity < 1 || capacity > (1 << 30)) {
+      throw new IllegalArgumentException("The capacity must be between 1 and 2^30, was "
+          + capacity + ".");
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    slots = new AtomicReferenceArray<>(size);
+    mask = size - 1;
+  }
+
+  /**
+   * Returns the recorder written to by {@link RestExceptionHandler} and
+   * {@link AsyncExceptionHandler}.
+   * @return the incident flight recorder.
+   */
+  public static IncidentFlightRecorder getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns the number of incidents the recorder keeps.
+   * @return the capacity.
+   */
+  public int getCapacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Records an incident exception. The values of the query parameters in the request line are
+   * masked, see {@link RequestSnapshot#getRedactedRequestLine()}.
+   * @param incidentException the incident exception.
+   */
+  public void record(IncidentException incidentException) {
+    List<ErrorBinding> errorBindings = incidentException.getErrorBindings();
+    int[] codes = new int[errorBindings.size()];
+    Throwable throwable = incidentException.getException();
+    for (int i = 0; i < codes.length; i++) {
+      ErrorBinding errorBinding = errorBindings.get(i);
+      codes[i] = errorBinding.getErrorCode().getSdipErrorCode();
+      if (throwable == null) {
+        throwable = findThrowable(errorBinding.getArgs());
+      }
+    }
+    record(codes, System.currentTimeMillis(), incidentException.getRedactedRequestString(),
+        incidentException.getExecutionId(),
+        throwable == null ? null : StackTraceRenderCache.fingerprint(throwable));
+  }
+
+  void record(int[] codes, long timestamp, String request, String executionId,
+      String fingerprint) {
+    long sequence = nextSequence.getAndIncrement();
+    slots.set((int) (sequence & mask),
+        new RecordedIncident(sequence, codes, timestamp, request, executionId, fingerprint));
+  }
+
+  /**
+   * Returns the recorded incidents matching all given filters, newest first.
+   *
+   * @param sdipErrorCode the SDIP error code number, or null for any.
+   * @param from          the earliest timestamp in epoch milliseconds, inclusive.
+   * @param to            the latest timestamp in epoch milliseconds, inclusive.
+   * @param executionId   the execution id, or null for any.
+   * @param limit         the maximum number of incidents returned.
+   * @return the matching incidents.
+   */
+  public List<RecordedIncident> query(Integer sdipErrorCode, long from, long to,
+      String executionId, int limit) {
+    List<RecordedIncident> matches = new ArrayList<>();
+    long newest = nextSequence.get() - 1;
+    long oldest = Math.max(0, newest - mask);
+    for (long sequence = newest; sequence >= oldest && matches.size() < limit; sequence--) {
+      RecordedIncident incident = slots.get((int) (sequence & mask));
+      // Skip slots not written yet or already overwritten by a newer incident.
+      if (incident == null || incident.getSequence() != sequence) {
+        continue;
+      }
+      if (incident.getTimestamp() >= from && incident.getTimestamp() <= to
+          && (sdipErrorCode == null || incident.hasSdipErrorCode(sdipErrorCode))
+          && (executionId == null || executionId.equals(incident.getExecutionId()))) {
+        matches.add(incident);
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Removes all recorded incidents.
+   */
+  public void clear() {
+    for (int i = 0; i < slots.length(); i++) {
+      slots.set(i, null);
+    }
+  }
+
+  private static Throwable findThrowable(Object[] args) {
+    for (Object arg : args) {
+      if (arg instanceof Throwable) {
+        return (Throwable) arg;
+      }
+    }
+    return null;
+  }
+}
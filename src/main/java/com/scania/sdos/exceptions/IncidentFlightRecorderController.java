@@ -0,0 +1,93 @@
+package com.scania.sdip.exceptions;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.List;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Read-only endpoint for the {@link IncidentFlightRecorder}. The recent incidents are returned as
+ * JSON, newest first, optionally filtered by error code, e.g. SDIP_40012 or 40012, by a time window
+ * in epoch milliseconds and by execution id. The endpoint is only registered with
+ * sdip.incidents.recent.enabled=true, the path defaults to /incidents/recent and is set with the
+ * property sdip.incidents.recent.path. It answers requests from the local host only, 403 to any
+ * other, unless sdip.incidents.recent.local-only=false, in which case the service must secure the
+ * path itself.
+ */
+@RestController
+@ConditionalOnProperty(name = "sdip.incidents.recent.enabled", havingValue = "true")
+public class IncidentFlightRecorderController {
+
+  private final IncidentFlightRecorder incidentFlightRecorder;
+  private final boolean localOnly;
+
+  public IncidentFlightRecorderController(IncidentFlightRecorder incidentFlightRecorder,
+      @Value("${sdip.incidents.recent.local-only:true}") boolean localOnly) {
+    this.incidentFlightRecorder = incidentFlightRecorder;
+    this.localOnly = localOnly;
+  }
+
+  /**
+   * Returns the recent incidents matching the filters.
+   *
+   * @param request     the request, to check where it comes from.
+   * @param code        the error code, or null for any.
+   * @param from        the earliest timestamp in epoch milliseconds.
+   * @param to          the latest timestamp in epoch milliseconds.
+   * @param executionId the execution id, or null for any.
+   * @param limit       the maximum number of incidents returned.
+   * @return the incidents, newest first, 400 if the code is not a SDIP error code or 403 if the
+   *         request is not local.
+   */
+  @GetMapping(path = "${sdip.incidents.recent.path:/incidents/recent}",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<List<RecordedIncident>> getRecentIncidents(HttpServletRequest request,
+      @RequestParam(required = false) String code,
+      @RequestParam(defaultValue = "0") long from,
+      @RequestParam(defaultValue = "9223372036854775807") long to,
+      @RequestParam(required = false) String executionId,
+      @RequestParam(defaultValue = "100") int limit) {
+    if (localOnly && !isLoopback(request.getRemoteAddr())) {
+      return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+    }
+    Integer sdipErrorCode;
+    try {
+      sdipErrorCode = parseCode(code);
+    } catch (NumberFormatException e) {
+      // Answered here, the global handler would report it as an unknown server error.
+      return ResponseEntity.badRequest().build();
+    }
+    return ResponseEntity.ok(
+        incidentFlightRecorder.query(sdipErrorCode, from, to, executionId, limit));
+  }
+
+  /**
+   * The servlet container gives the remote address as an IP literal, it is compared as text so no
+   * name is ever resolved. A request through a proxy has the address of the proxy and is refused,
+   * unless the proxy runs on the same host.
+   */
+  private static boolean isLoopback(String remoteAddr) {
+    if (remoteAddr == null) {
+      return false;
+    }
+    String address = remoteAddr.startsWith("[") && remoteAddr.endsWith("]")
+        ? remoteAddr.substring(1, remoteAddr.length() - 1) : remoteAddr;
+    return address.startsWith("127.") || address.equals("::1")
+        || address.equals("0:0:0:0:0:0:0:1");
+  }
+
+  private static Integer parseCode(String code) {
+    if (code == null || code.isEmpty()) {
+      return null;
+    }
+    String digits = code.startsWith(SdipErrorParameter.ERRORCODE_PREFIX)
+        ? code.substring(SdipErrorParameter.ERRORCODE_PREFIX.length()) : code;
+    return Integer.valueOf(digits);
+  }
+}
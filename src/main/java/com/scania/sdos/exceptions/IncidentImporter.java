@@ -0,0 +1,239 @@
+package com.scania.sdip.exceptions;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The IncidentImporter class reads the {@link Incident} another SDIP service responded with into
+ * {@link RemoteErrorBinding}s, which are added to an {@link IncidentException} as the causes of a
+ * failed call. The remote error codes, service id and execution id are kept, and the HTTP status
+ * of each binding is the status of the error code if it is known locally, otherwise the status of
+ * the remote response.
+ *
+ * <p>A JSON body is parsed as a stream of tokens, never as a tree. The body is cut off after a
+ * maximum number of bytes, error codes beyond the maximum number of bindings are dropped and
+ * messages are truncated, so a misbehaving service can not make the importer allocate more than
+ * these limits allow.
+ */
+public class IncidentImporter {
+
+  /**
+   * The default maximum size of a remote incident in bytes.
+   */
+  public static final int DEFAULT_MAX_BYTES = 64 * 1024;
+  /**
+   * The default maximum number of bindings imported from a remote incident.
+   */
+  public static final int DEFAULT_MAX_BINDINGS = 32;
+  /**
+   * The default maximum length of an imported message in characters.
+   */
+  public static final int DEFAULT_MAX_MESSAGE_LENGTH = 2000;
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  private static final int BAD_GATEWAY = 502;
+
+  private final int maxBytes;
+  private final int maxBindings;
+  private final int maxMessageLength;
+
+  /**
+   * Constructs a new importer with the default limits.
+   */
+  public IncidentImporter() {
+    this(DEFAULT_MAX_BYTES, DEFAULT_MAX_BINDINGS, DEFAULT_MAX_MESSAGE_LENGTH);
+  }
+
+  /**
+   * Constructs a new importer.
+   *
+   * @param maxBytes         the maximum size of a remote incident in bytes.
+   * @param maxBindings      the maximum number of bindings imported from a remote incident.
+   * @param maxMessageLength the maximum length of an imported message in characters.
+   */
+  public IncidentImporter(int maxBytes, int maxBindings, int maxMessageLength) {
+    if (maxBytes < 1 || maxBindings < 1 || maxMessageLength < 1) {
+      throw new IllegalArgumentException("The limits of an incident importer must be positive.");
+    }
+    this.maxBytes = maxBytes;
+    this.maxBindings = maxBindings;
+    this.maxMessageLength = maxMessageLength;
+  }
+
+  /**
+   * Reads a remote incident from a JSON response body.
+   *
+   * @param body        the response body, it is not closed.
+   * @param httpStatus  the HTTP status of the response.
+   * @param serviceId   the id of the remote service, may be null.
+   * @param executionId the execution id of the remote incident, may be null.
+   * @return the bindings of the remote incident, in the order of its error codes.
+   * @throws IllegalArgumentException if the body is not an incident or is larger than the limit.
+   * @throws IOException              if the body can not be read.
+   */
+  public List<RemoteErrorBinding> read(InputStream body, int httpStatus, String serviceId,
+      String executionId) throws IOException {
+    List<String> sdipErrorCodes = new ArrayList<>();
+    List<String> messages = new ArrayList<>();
+    try (JsonParser parser = JSON_FACTORY.createParser(new LimitedInputStream(body, maxBytes))) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new IllegalArgumentException("The remote incident is not a JSON object.");
+      }
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.currentName();
+        JsonToken value = parser.nextToken();
+        if ("sdipErrorCodes".equals(field) && value == JsonToken.START_ARRAY) {
+          readStrings(parser, sdipErrorCodes, false);
+        } else if ("messages".equals(field) && value == JsonToken.START_ARRAY) {
+          readStrings(parser, messages, true);
+        } else {
+          parser.skipChildren();
+        }
+      }
+    } catch (LimitExceededException e) {
+      throw new IllegalArgumentException("The remote incident is larger than " + maxBytes
+          + " bytes.", e);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("The remote incident is not valid JSON: "
+          + e.getOriginalMessage(), e);
+    }
+    List<RemoteErrorBinding> errorBindings = new ArrayList<>(sdipErrorCodes.size());
+    for (int i = 0; i < sdipErrorCodes.size(); i++) {
+      errorBindings.add(toRemoteErrorBinding(
+          IncidentBinaryCodec.parseSdipErrorCode(sdipErrorCodes.get(i)), 0, httpStatus,
+          i < messages.size() ? messages.get(i) : null, serviceId, executionId));
+    }
+    return errorBindings;
+  }
+
+  /**
+   * Reads a remote incident from a response body in the binary format of
+   * {@link IncidentBinaryCodec}, which carries the status of each error code.
+   *
+   * @param body        the response body.
+   * @param httpStatus  the HTTP status of the response.
+   * @param serviceId   the id of the remote service, may be null.
+   * @param executionId the execution id of the remote incident, may be null.
+   * @return the bindings of the remote incident, in the order of its error codes.
+   * @throws IllegalArgumentException if the body is not an incident or is larger than the limit.
+   */
+  public List<RemoteErrorBinding> readBinary(ByteBuffer body, int httpStatus, String serviceId,
+      String executionId) {
+    if (body.remaining() > maxBytes) {
+      throw new IllegalArgumentException("The remote incident is larger than " + maxBytes
+          + " bytes.");
+    }
+    List<ErrorBinding> decoded = IncidentBinaryCodec.getInstance().decodeErrorBindings(body);
+    List<RemoteErrorBinding> errorBindings =
+        new ArrayList<>(Math.min(decoded.size(), maxBindings));
+    for (ErrorBinding errorBinding : decoded) {
+      if (errorBindings.size() == maxBindings) {
+        break;
+      }
+      ErrorCode errorCode = errorBinding.getErrorCode();
+      errorBindings.add(toRemoteErrorBinding(errorCode.getSdipErrorCode(),
+          errorCode.getHttpErrorCode(), httpStatus, truncate((String) errorBinding.getArgs()[0]),
+          serviceId, executionId));
+    }
+    return errorBindings;
+  }
+
+  private void readStrings(JsonParser parser, List<String> values, boolean messages)
+      throws IOException {
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+      if (token == null) {
+        throw new IllegalArgumentException("The remote incident ends within an array.");
+      }
+      if (values.size() == maxBindings) {
+        parser.skipChildren();
+      } else if (token == JsonToken.VALUE_STRING) {
+        values.add(messages ? truncate(parser.getText()) : parser.getText());
+      } else {
+        throw new IllegalArgumentException("The remote incident has a " + token
+            + " where a string is expected.");
+      }
+    }
+  }
+
+  private RemoteErrorBinding toRemoteErrorBinding(int sdipErrorCode, int remoteStatus,
+      int responseStatus, String message, String serviceId, String executionId) {
+    ErrorCode known = ErrorCodeRegistry.getInstance().find(sdipErrorCode);
+    int status = known != null ? known.getHttpErrorCode()
+        : isErrorStatus(remoteStatus) ? remoteStatus
+        : isErrorStatus(responseStatus) ? responseStatus : BAD_GATEWAY;
+    return new RemoteErrorBinding(new RemoteErrorCode(sdipErrorCode, status), message, serviceId,
+        executionId);
+  }
+
+  private String truncate(String message) {
+    return message.length() <= maxMessageLength ? message
+        : message.substring(0, maxMessageLength) + "...";
+  }
+
+  private static boolean isErrorStatus(int status) {
+    return status >= 400 && status < 600;
+  }
+
+  /**
+   * Fails a read that goes beyond a maximum number of bytes.
+   */
+  private static final class LimitedInputStream extends FilterInputStream {
+    private long remaining;
+
+    private LimitedInputStream(InputStream in, long maxBytes) {
+      super(in);
+      this.remaining = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b >= 0) {
+        consume(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      // Asks for one byte beyond the limit, so a body of exactly the limit is not rejected.
+      int read = super.read(b, off, (int) Math.min(len, remaining + 1));
+      if (read > 0) {
+        consume(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(Math.min(n, remaining + 1));
+      consume(skipped);
+      return skipped;
+    }
+
+    @Override
+    public void close() {
+      // The caller owns the stream.
+    }
+
+    private void consume(long count) throws LimitExceededException {
+      remaining -= count;
+      if (remaining < 0) {
+        throw new LimitExceededException();
+      }
+    }
+  }
+
+  private static final class LimitExceededException extends IOException {
+    private static final long serialVersionUID = 1L;
+  }
+}
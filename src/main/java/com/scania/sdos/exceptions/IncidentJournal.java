@@ -0,0 +1,302 @@
+package com.scania.sdip.exceptions;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * The IncidentJournal class is an {@link IncidentSink} that appends every incident as a compact
+ * binary record to a memory-mapped file before handing it to its delegate sink. The mapped pages
+ * belong to the operating system, so the records survive a crash or an OOM kill of the service
+ * that would lose the buffered tail of a log appender.
+ *
+ * <p>Records are written to segment files named incidents-&lt;number&gt;.journal in a directory.
+ * A request thread reserves room for its record with a single atomic add and copies the record
+ * into its own region of the mapping, writers never wait for each other. Only the write that finds
+ * the segment full takes a lock, to map the next segment and delete the oldest segments beyond the
+ * retention. Records are decoded with {@link IncidentJournalReader}.
+ *
+ * <p>A record is a length, the body and a commit marker. The body is the timestamp, execution id,
+ * request line and the error codes with their arguments as strings, padded to a multiple of four
+ * bytes. The journal outlives the log lines, so the request line is journaled with the value of
+ * every query parameter masked, like in the {@link IncidentFlightRecorder}. The commit marker is the CRC-32 of the body and is written last, so a record that was
+ * reserved or only partly written when the service stopped does not match its marker. The reader
+ * skips such a record and goes on with the records after it.
+ *
+ * <p>A summary snapshot, see {@link IncidentSnapshot#getSummary()}, is not an incident of its own
+ * and is only handed to the delegate sink.
+ */
+public class IncidentJournal implements IncidentSink, AutoCloseable {
+
+  /**
+   * The default size of a segment file, 16 MiB.
+   */
+  public static final int DEFAULT_SEGMENT_BYTES = 16 * 1024 * 1024;
+
+  /**
+   * The default number of segment files kept.
+   */
+  public static final int DEFAULT_MAX_SEGMENTS = 8;
+
+  static final String SEGMENT_PREFIX = "incidents-";
+  static final String SEGMENT_SUFFIX = ".journal";
+  static final int MAX_STRING_CHARS = 8192;
+  static final int RECORD_OVERHEAD = 2 * Integer.BYTES;
+  private static final int MIN_SEGMENT_BYTES = 64 * 1024;
+  private static final Logger logger = LogManager.getLogger(IncidentJournal.class);
+
+  private static final ThreadLocal<Encoder> ENCODER = ThreadLocal.withInitial(Encoder::new);
+
+  private final Path directory;
+  private final int segmentBytes;
+  private final int maxSegments;
+  private final IncidentSink delegate;
+  private final LongAdder written = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private volatile Segment segment;
+
+  /**
+   * Constructs a new journal with the default segment size and retention that writes the
+   * incidents to the log with {@link IncidentSink#SYNCHRONOUS} after journaling them.
+   *
+   * @param directory the directory of the segment files, created if missing.
+   * @throws IOException if the first segment cannot be created.
+   */
+  public IncidentJournal(Path directory) throws IOException {
+    this(directory, DEFAULT_SEGMENT_BYTES, DEFAULT_MAX_SEGMENTS, IncidentSink.SYNCHRONOUS);
+  }
+
+  /**
+   * Constructs a new journal.
+   *
+   * @param directory    the directory of the segment files, created if missing.
+   * @param segmentBytes the size of each segment file, at least 64 KiB.
+   * @param maxSegments  the number of segment files kept, older ones are deleted.
+   * @param delegate     the sink that writes the incidents after they are journaled.
+   * @throws IOException if the first segment cannot be created.
+   */
+  public IncidentJournal(Path directory, int segmentBytes, int maxSegments,
+      IncidentSink delegate) throws IOException {
+    if (segmentBytes < MIN_SEGMENT_BYTES || maxSegments < 1) {
+      throw new IllegalArgumentException("A journal needs segments of at least "
+          + MIN_SEGMENT_BYTES + " bytes and at least one segment, was " + segmentBytes
+          + " bytes and " + maxSegments + " segments.");
+    }
+    this.directory = directory;
+    this.segmentBytes = segmentBytes;
+    this.maxSegments = maxSegments;
+    this.delegate = delegate;
+    Files.createDirectories(directory);
+    List<Path> segments = IncidentJournalReader.listSegments(directory);
+    long number = segments.isEmpty() ? 0 : segmentNumber(segments.get(segments.size() - 1)) + 1;
+    segment = openSegment(number);
+    deleteExpiredSegments();
+  }
+
+  @Override
+  public void accept(IncidentSnapshot snapshot) {
+    if (snapshot.getSummary() == null) {
+      append(snapshot, System.currentTimeMillis());
+    }
+    delegate.accept(snapshot);
+  }
+
+  /**
+   * Returns the number of records written to the journal.
+   * @return the number of records.
+   */
+  public long getWrittenCount() {
+    return written.sum();
+  }
+
+  /**
+   * Returns the number of incidents that could not be journaled, because a record did not fit in
+   * a segment or a segment could not be created.
+   * @return the number of incidents not journaled.
+   */
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  void append(IncidentSnapshot snapshot, long timestamp) {
+    Encoder encoder = ENCODER.get();
+    encoder.encode(snapshot, timestamp);
+    if (recordBytes(encoder.length) > segmentBytes) {
+      dropped.increment();
+      return;
+    }
+    Segment current = segment;
+    while (current != null && !current.write(encoder.bytes, encoder.length, encoder.crc)) {
+      current = roll(current);
+    }
+    if (current == null) {
+      dropped.increment();
+    } else {
+      written.increment();
+    }
+  }
+
+  private synchronized Segment roll(Segment full) {
+    if (segment != full) {
+      return segment;
+    }
+    try {
+      Segment next = openSegment(full.number + 1);
+      segment = next;
+      full.channel.close();
+      deleteExpiredSegments();
+      return next;
+    } catch (IOException e) {
+      logger.warn("Could not roll the incident journal in " + directory, e);
+      return null;
+    }
+  }
+
+  private Segment openSegment(long number) throws IOException {
+    Path file = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number,
+        SEGMENT_SUFFIX));
+    FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+        StandardOpenOption.READ, StandardOpenOption.WRITE);
+    return new Segment(number, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0,
+        segmentBytes));
+  }
+
+  private void deleteExpiredSegments() throws IOException {
+    List<Path> segments = IncidentJournalReader.listSegments(directory);
+    for (int i = 0; i < segments.size() - maxSegments; i++) {
+      Files.deleteIfExists(segments.get(i));
+    }
+  }
+
+  /**
+   * Returns the number of bytes a record takes in a segment, the body is padded so that every
+   * record starts at a multiple of four bytes.
+   */
+  static int recordBytes(int bodyLength) {
+    return RECORD_OVERHEAD + ((bodyLength + 3) & ~3);
+  }
+
+  static long segmentNumber(Path file) {
+    String name = file.getFileName().toString();
+    return Long.parseLong(
+        name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+  }
+
+  /**
+   * Forces the current segment to disk and closes it.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    Segment current = segment;
+    current.buffer.force();
+    current.channel.close();
+  }
+
+  private static final class Segment {
+    private final long number;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final AtomicInteger position = new AtomicInteger();
+
+    private Segment(long number, FileChannel channel, MappedByteBuffer buffer) {
+      this.number = number;
+      this.channel = channel;
+      this.buffer = buffer;
+    }
+
+    private boolean write(byte[] record, int length, int crc) {
+      int recordBytes = recordBytes(length);
+      int start = position.getAndAdd(recordBytes);
+      if (start < 0 || start > buffer.capacity() - recordBytes) {
+        // Keep later reservations failing as well, without wrapping around past int overflow.
+        position.set(buffer.capacity());
+        return false;
+      }
+      // Absolute puts do not touch the shared buffer position, each writer owns its region.
+      buffer.putInt(start, length);
+      buffer.put(start + Integer.BYTES, record, 0, length);
+      buffer.putInt(start + recordBytes - Integer.BYTES, crc);
+      return true;
+    }
+  }
+
+  /**
+   * Encodes records into a buffer reused by the thread.
+   */
+  private static final class Encoder {
+    private final CRC32 checksum = new CRC32();
+    private byte[] bytes = new byte[1024];
+    private int length;
+    private int crc;
+
+    private void encode(IncidentSnapshot snapshot, long timestamp) {
+      length = 0;
+      writeLong(timestamp);
+      writeString(snapshot.getExecutionId());
+      writeString(snapshot.getRedactedRequestLine());
+      List<ErrorBinding> errorBindings = snapshot.getErrorBindings();
+      writeShort(errorBindings.size());
+      for (ErrorBinding errorBinding : errorBindings) {
+        writeInt(errorBinding.getErrorCode().getSdipErrorCode());
+        Object[] args = errorBinding.getArgs();
+        writeShort(args.length);
+        for (Object arg : args) {
+          writeString(String.valueOf(arg));
+        }
+      }
+      checksum.reset();
+      checksum.update(bytes, 0, length);
+      crc = (int) checksum.getValue();
+    }
+
+    private void writeString(String value) {
+      if (value == null) {
+        writeInt(-1);
+        return;
+      }
+      String bounded = value.length() > MAX_STRING_CHARS
+          ? value.substring(0, MAX_STRING_CHARS) : value;
+      byte[] utf8 = bounded.getBytes(StandardCharsets.UTF_8);
+      writeInt(utf8.length);
+      ensureCapacity(utf8.length);
+      System.arraycopy(utf8, 0, bytes, length, utf8.length);
+      length += utf8.length;
+    }
+
+    private void writeLong(long value) {
+      writeInt((int) (value >>> 32));
+      writeInt((int) value);
+    }
+
+    private void writeInt(int value) {
+      ensureCapacity(Integer.BYTES);
+      bytes[length++] = (byte) (value >>> 24);
+      bytes[length++] = (byte) (value >>> 16);
+      bytes[length++] = (byte) (value >>> 8);
+      bytes[length++] = (byte) value;
+    }
+
+    private void writeShort(int value) {
+      ensureCapacity(Short.BYTES);
+      bytes[length++] = (byte) (value >>> 8);
+      bytes[length++] = (byte) value;
+    }
+
+    private void ensureCapacity(int extra) {
+      if (length + extra > bytes.length) {
+        bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+      }
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package com.scania.sdip.exceptions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * The IncidentJournalReader class decodes the segments written by an {@link IncidentJournal}. Run
+ * as a program it prints the records of the given segment files or journal directories as one
+ * JSON object per line:
+ *
+ * <pre>
+ * java -cp ... com.scania.sdip.exceptions.IncidentJournalReader /var/lib/service/journal
+ * </pre>
+ */
+public final class IncidentJournalReader {
+
+  private IncidentJournalReader() {
+  }
+
+  /**
+   * Prints the records of segment files and journal directories as JSON lines to standard out.
+   * @param args the segment files and journal directories.
+   * @throws IOException if a segment cannot be read.
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.err.println("Usage: IncidentJournalReader <journal directory | segment file>...");
+      System.exit(1);
+    }
+    List<Path> paths = new ArrayList<>();
+    for (String arg : args) {
+      paths.add(Paths.get(arg));
+    }
+    printJson(paths, System.out);
+  }
+
+  /**
+   * Prints the records of segment files and journal directories as JSON lines.
+   * @param paths the segment files and journal directories, directories are read oldest first.
+   * @param out   the stream to print to.
+   * @throws IOException if a segment cannot be read.
+   */
+  public static void printJson(List<Path> paths, PrintStream out) throws IOException {
+    ObjectMapper objectMapper = new ObjectMapper();
+    for (Path path : paths) {
+      List<Path> segments = Files.isDirectory(path) ? listSegments(path)
+          : Collections.singletonList(path);
+      for (Path segment : segments) {
+        for (JournalRecord record : read(segment)) {
+          out.println(objectMapper.writeValueAsString(record));
+        }
+      }
+    }
+  }
+
+  /**
+   * Returns the segment files of a journal directory, oldest first.
+   * @param directory the journal directory.
+   * @return the segment files.
+   * @throws IOException if the directory cannot be listed.
+   */
+  public static List<Path> listSegments(Path directory) throws IOException {
+    try (Stream<Path> files = Files.list(directory)) {
+      // The segment numbers are zero padded, so the names sort in the order they were written.
+      return files.filter(IncidentJournalReader::isSegment).sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  /**
+   * Decodes the committed records of a segment file. A record whose commit marker does not match
+   * its body was reserved or partly written when the service stopped, it is skipped and decoding
+   * goes on with the next record, found by scanning forward word by word.
+   * @param segment the segment file.
+   * @return the records.
+   * @throws IOException if the segment cannot be read.
+   */
+  public static List<JournalRecord> read(Path segment) throws IOException {
+    ByteBuffer buffer;
+    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+      buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+    List<JournalRecord> records = new ArrayList<>();
+    CRC32 checksum = new CRC32();
+    int position = 0;
+    while (buffer.limit() - position >= IncidentJournal.RECORD_OVERHEAD) {
+      int length = buffer.getInt(position);
+      int recordBytes = length <= 0 ? 0 : IncidentJournal.recordBytes(length);
+      if (recordBytes > 0 && recordBytes <= buffer.limit() - position) {
+        ByteBuffer record = buffer.duplicate();
+        record.position(position + Integer.BYTES).limit(position + Integer.BYTES + length);
+        checksum.reset();
+        checksum.update(record.duplicate());
+        if ((int) checksum.getValue()
+            == buffer.getInt(position + recordBytes - Integer.BYTES)) {
+          records.add(decode(record.slice()));
+          position += recordBytes;
+          continue;
+        }
+      }
+      position += Integer.BYTES;
+    }
+    return records;
+  }
+
+  private static JournalRecord decode(ByteBuffer record) {
+    long timestamp = record.getLong();
+    String executionId = readString(record);
+    String request = readString(record);
+    int bindingCount = Short.toUnsignedInt(record.getShort());
+    List<JournalRecord.Binding> bindings = new ArrayList<>(bindingCount);
+    for (int i = 0; i < bindingCount; i++) {
+      String sdipErrorCode = SdipErrorParameter.ERRORCODE_PREFIX + record.getInt();
+      int argCount = Short.toUnsignedInt(record.getShort());
+      List<String> args = new ArrayList<>(argCount);
+      for (int j = 0; j < argCount; j++) {
+        args.add(readString(record));
+      }
+      bindings.add(new JournalRecord.Binding(sdipErrorCode, args));
+    }
+    return new JournalRecord(timestamp, executionId, request, bindings);
+  }
+
+  private static String readString(ByteBuffer record) {
+    int length = record.getInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] utf8 = new byte[length];
+    record.get(utf8);
+    return new String(utf8, StandardCharsets.UTF_8);
+  }
+
+  private static boolean isSegment(Path file) {
+    String name = file.getFileName().toString();
+    return name.startsWith(IncidentJournal.SEGMENT_PREFIX)
+        && name.endsWith(IncidentJournal.SEGMENT_SUFFIX);
+  }
+}
@@ -0,0 +1,210 @@
+package com.scania.sdip.exceptions;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The IncidentJsonEncoder class encodes an {@link IncidentSnapshot} as one JSON event with typed
+ * fields, so a log pipeline can index it without parsing text. An event looks like:
+ *
+ * <pre>
+ * {"event":"incident","env":"dev","serviceId":"sdip","executionId":"42","action":null,
+ *  "populating":null,"httpStatus":400,
+ *  "request":{"method":"POST","uri":"/documents","query":null,"headers":{"accept":"*&#47;*"}},
+ *  "errors":[{"code":"SDIP_4007","sdipErrorCode":4007,"httpStatus":400,
+ *             "message":"The provided document is not JSON, ...","args":["...","..."]}],
+ *  "exceptions":[{"class":"java.lang.IllegalStateException","message":"...",
+ *                 "stackTrace":"..."}]}
+ * </pre>
+ *
+ * An error imported from another service by {@link IncidentImporter} also has a
+ * {@code "remote":{"serviceId":"...","executionId":"..."}} field. A summary snapshot, see
+ * {@link IncidentSnapshot#getSummary()}, is encoded as
+ * {@code {"event":"summary","env":"dev","serviceId":"sdip","message":"Suppressed 42 ..."}}.
+ *
+ * The event is written into a builder that is reused per thread and strings are escaped straight
+ * into it, so encoding only allocates the resulting string.
+ */
+public final class IncidentJsonEncoder {
+
+  private static final IncidentJsonEncoder instance = new IncidentJsonEncoder();
+  private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+  private final ThreadLocal<StringBuilder> buffers =
+      ThreadLocal.withInitial(() -> new StringBuilder(1024));
+
+  private IncidentJsonEncoder() {
+  }
+
+  /**
+   * Returns the one and only instance of the encoder.
+   * @return the incident JSON encoder.
+   */
+  public static IncidentJsonEncoder getInstance() {
+    return instance;
+  }
+
+  /**
+   * Encodes an incident as a JSON event.
+   *
+   * @param snapshot the incident.
+   * @return the JSON event on a single line.
+   */
+  public String encode(IncidentSnapshot snapshot) {
+    StringBuilder sb = buffers.get();
+    sb.setLength(0);
+    encodeTo(snapshot, sb);
+    String event = sb.toString();
+    if (sb.capacity() > MAX_RETAINED_CAPACITY) {
+      buffers.remove();
+    }
+    return event;
+  }
+
+  /**
+   * Encodes an incident as a JSON event and appends it to a builder.
+   *
+   * @param snapshot the incident.
+   * @param sb       the builder to append to.
+   */
+  public void encodeTo(IncidentSnapshot snapshot, StringBuilder sb) {
+    if (snapshot.getSummary() != null) {
+      sb.append("{\"event\":\"summary\"");
+      field(sb, "env", snapshot.getEnvname());
+      field(sb, "serviceId", snapshot.getServiceId());
+      field(sb, "message", snapshot.getSummary());
+      sb.append('}');
+      return;
+    }
+    List<Throwable> throwables = new ArrayList<>();
+    sb.append("{\"event\":\"incident\"");
+    field(sb, "env", snapshot.getEnvname());
+    field(sb, "serviceId", snapshot.getServiceId());
+    field(sb, "executionId", emptyToNull(snapshot.getExecutionId()));
+    field(sb, "action", emptyToNull(snapshot.getActionDetails()));
+    field(sb, "populating", emptyToNull(snapshot.getPopulateErrorMsg()));
+    sb.append(",\"httpStatus\":")
+        .append(IncidentException.resolveHttpStatusCode(snapshot.getErrorBindings()));
+    appendRequest(snapshot, sb);
+
+    sb.append(",\"errors\":[");
+    boolean first = true;
+    for (ErrorBinding errorBinding : snapshot.getErrorBindings()) {
+      if (!first) {
+        sb.append(',');
+      }
+      first = false;
+      appendError(errorBinding, throwables, sb);
+    }
+    sb.append(']');
+
+    if (snapshot.getException() != null) {
+      throwables.add(snapshot.getException());
+    }
+    sb.append(",\"exceptions\":[");
+    first = true;
+    for (Throwable throwable : throwables) {
+      if (!first) {
+        sb.append(',');
+      }
+      first = false;
+      sb.append('{');
+      sb.append("\"class\":");
+      string(sb, throwable.getClass().getName());
+      field(sb, "message", throwable.getMessage());
+      field(sb, "stackTrace", StackTraceRenderCache.getInstance().render(throwable));
+      sb.append('}');
+    }
+    sb.append("]}");
+  }
+
+  private static void appendRequest(IncidentSnapshot snapshot, StringBuilder sb) {
+    sb.append(",\"request\":");
+    if (snapshot.getRequestLine() == null) {
+      sb.append("null");
+      return;
+    }
+    sb.append("{\"method\":");
+    string(sb, snapshot.getRequestMethod());
+    field(sb, "uri", snapshot.getRequestUri());
+    field(sb, "query", snapshot.getQueryString());
+    sb.append(",\"headers\":{");
+    String[] headers = snapshot.getHeaders();
+    for (int i = 0; i < headers.length; i += 2) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      string(sb, headers[i]);
+      sb.append(':');
+      string(sb, headers[i + 1]);
+    }
+    sb.append("}}");
+  }
+
+  private static void appendError(ErrorBinding errorBinding, List<Throwable> throwables,
+      StringBuilder sb) {
+    ErrorCode errorCode = errorBinding.getErrorCode();
+    List<Object> arguments = new ArrayList<>(errorBinding.getArgs().length);
+    for (Object arg : errorBinding.getArgs()) {
+      if (arg instanceof Throwable) {
+        throwables.add((Throwable) arg);
+      } else {
+        arguments.add(arg);
+      }
+    }
+    sb.append("{\"code\":\"").append(SdipErrorParameter.ERRORCODE_PREFIX)
+        .append(errorCode.getSdipErrorCode()).append('"');
+    sb.append(",\"sdipErrorCode\":").append(errorCode.getSdipErrorCode());
+    sb.append(",\"httpStatus\":").append(errorCode.getHttpErrorCode());
+    field(sb, "message",
+        MessageTemplateCache.getLogTemplate(errorCode).format(arguments.toArray()));
+    sb.append(",\"args\":[");
+    for (int i = 0; i < arguments.size(); i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      value(sb, arguments.get(i));
+    }
+    sb.append(']');
+    if (errorBinding instanceof RemoteErrorBinding) {
+      RemoteErrorBinding remote = (RemoteErrorBinding) errorBinding;
+      sb.append(",\"remote\":{\"serviceId\":");
+      string(sb, remote.getServiceId());
+      field(sb, "executionId", emptyToNull(remote.getExecutionId()));
+      sb.append('}');
+    }
+    sb.append('}');
+  }
+
+  private static void field(StringBuilder sb, String name, String value) {
+    sb.append(",\"").append(name).append("\":");
+    string(sb, value);
+  }
+
+  private static void value(StringBuilder sb, Object value) {
+    if (value instanceof Integer || value instanceof Long || value instanceof Short
+        || value instanceof Byte || value instanceof Boolean) {
+      sb.append(value);
+    } else if ((value instanceof Double && Double.isFinite((Double) value))
+        || (value instanceof Float && Float.isFinite((Float) value))) {
+      sb.append(value);
+    } else {
+      string(sb, value == null ? null : String.valueOf(value));
+    }
+  }
+
+  private static void string(StringBuilder sb, String value) {
+    if (value == null) {
+      sb.append("null");
+      return;
+    }
+    sb.append('"');
+    JsonStringEncoder.getInstance().quoteAsString(value, sb);
+    sb.append('"');
+  }
+
+  private static String emptyToNull(String value) {
+    return value == null || value.isEmpty() ? null : value;
+  }
+}
@@ -0,0 +1,211 @@
+package com.scania.sdip.exceptions;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The IncidentMetrics class counts the incidents returned per SDIP error code and per HTTP status,
+ * and records how long {@link RestExceptionHandler} spends in each phase of handling an exception.
+ * Recording only increments {@link LongAdder}s and does not allocate once an error code has been
+ * seen. The metrics can be read as a map for JSON output or in the Prometheus text format. Codes
+ * received from other services that the {@link ErrorCodeRegistry} does not know are counted
+ * together under {@value #REMOTE_ERROR_CODE}, so a peer can not add a counter, and a Prometheus
+ * series, per code it sends.
+ */
+public final class IncidentMetrics {
+
+  /**
+   * The phases of handling an exception that are timed.
+   */
+  public enum Phase {
+    /** Converting the exception into an {@link IncidentException}. */
+    CREATE,
+    /** Handing the incident to the log. */
+    LOG,
+    /** Formatting the HTTP response. */
+    FORMAT,
+    /** Writing a pre-serialized response body as JSON. */
+    SERIALIZE,
+    /** The whole time spent in the exception handler. */
+    TOTAL
+  }
+
+  /**
+   * The key under which remote error codes unknown to this service are counted.
+   */
+  public static final String REMOTE_ERROR_CODE = "remote";
+
+  private static final IncidentMetrics instance = new IncidentMetrics();
+  private static final int MAX_HTTP_STATUS = 600;
+
+  private final ConcurrentMap<ErrorCode, LongAdder> errorCodeCounters = new ConcurrentHashMap<>();
+  private final LongAdder unknownRemoteCounter = new LongAdder();
+  private final LongAdder[] httpStatusCounters = new LongAdder[MAX_HTTP_STATUS];
+  private final LatencyHistogram[] latencies = new LatencyHistogram[Phase.values().length];
+
+  private IncidentMetrics() {
+    for (int i = 0; i < MAX_HTTP_STATUS; i++) {
+      httpStatusCounters[i] = new LongAdder();
+    }
+    for (int i = 0; i < latencies.length; i++) {
+      latencies[i] = new LatencyHistogram();
+    }
+  }
+
+  /**
+   * Returns the one and only instance of the incident metrics.
+   * @return the incident metrics.
+   */
+  public static IncidentMetrics getInstance() {
+    return instance;
+  }
+
+  /**
+   * Counts an incident with an error code.
+   * @param errorCode the error code of the incident.
+   */
+  public void recordErrorCode(ErrorCode errorCode) {
+    if (errorCode instanceof RemoteErrorCode) {
+      errorCode = ErrorCodeRegistry.getInstance().find(errorCode.getSdipErrorCode());
+      if (errorCode == null) {
+        unknownRemoteCounter.increment();
+        return;
+      }
+    }
+    LongAdder counter = errorCodeCounters.get(errorCode);
+    if (counter == null) {
+      counter = errorCodeCounters.computeIfAbsent(errorCode, code -> new LongAdder());
+    }
+    counter.increment();
+  }
+
+  /**
+   * Counts a HTTP error response.
+   * @param httpStatus the HTTP status of the response.
+   */
+  public void recordHttpStatus(int httpStatus) {
+    if (httpStatus >= 0 && httpStatus < MAX_HTTP_STATUS) {
+      httpStatusCounters[httpStatus].increment();
+    }
+  }
+
+  /**
+   * Records the time spent in a phase.
+   * @param phase the phase.
+   * @param nanos the duration in nanoseconds.
+   */
+  public void recordLatency(Phase phase, long nanos) {
+    latencies[phase.ordinal()].record(nanos);
+  }
+
+  /**
+   * Returns the number of incidents per SDIP error code, e.g. SDIP_40012, and of remote error
+   * codes unknown to this service under {@value #REMOTE_ERROR_CODE}.
+   * @return the counts, sorted by error code.
+   */
+  public Map<String, Long> getErrorCodeCounts() {
+    Map<String, Long> counts = new TreeMap<>();
+    errorCodeCounters.forEach((errorCode, counter) -> counts.merge(
+        SdipErrorParameter.ERRORCODE_PREFIX + errorCode.getSdipErrorCode(), counter.sum(),
+        Long::sum));
+    long unknownRemote = unknownRemoteCounter.sum();
+    if (unknownRemote > 0) {
+      counts.put(REMOTE_ERROR_CODE, unknownRemote);
+    }
+    return counts;
+  }
+
+  /**
+   * Returns the number of HTTP error responses per status.
+   * @return the counts of the statuses that occurred, sorted by status.
+   */
+  public Map<Integer, Long> getHttpStatusCounts() {
+    Map<Integer, Long> counts = new TreeMap<>();
+    for (int status = 0; status < MAX_HTTP_STATUS; status++) {
+      long count = httpStatusCounters[status].sum();
+      if (count > 0) {
+        counts.put(status, count);
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Returns the latency histogram of a phase.
+   * @param phase the phase.
+   * @return the histogram.
+   */
+  public LatencyHistogram getLatency(Phase phase) {
+    return latencies[phase.ordinal()];
+  }
+
+  /**
+   * Returns all metrics as nested maps, suitable for JSON output.
+   * @return the metrics.
+   */
+  public Map<String, Object> toMap() {
+    Map<String, Object> latency = new LinkedHashMap<>();
+    for (Phase phase : Phase.values()) {
+      LatencyHistogram histogram = getLatency(phase);
+      Map<String, Long> buckets = new LinkedHashMap<>();
+      for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+        long count = histogram.getBucketCount(i);
+        if (count > 0) {
+          buckets.put(Long.toString(LatencyHistogram.getUpperBoundNanos(i)), count);
+        }
+      }
+      Map<String, Object> phaseMetrics = new LinkedHashMap<>();
+      phaseMetrics.put("count", histogram.getCount());
+      phaseMetrics.put("sumNanos", histogram.getSumNanos());
+      phaseMetrics.put("bucketsNanos", buckets);
+      latency.put(phase.name().toLowerCase(Locale.ROOT), phaseMetrics);
+    }
+    Map<String, Object> metrics = new LinkedHashMap<>();
+    metrics.put("errorCodes", getErrorCodeCounts());
+    metrics.put("httpStatuses", getHttpStatusCounts());
+    metrics.put("latency", latency);
+    return metrics;
+  }
+
+  /**
+   * Returns all metrics in the Prometheus text exposition format.
+   * @return the metrics as text.
+   */
+  public String toPrometheusText() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("# HELP sdip_incidents_total Incidents per SDIP error code.\n");
+    sb.append("# TYPE sdip_incidents_total counter\n");
+    getErrorCodeCounts().forEach((code, count) -> sb.append("sdip_incidents_total{code=\"")
+        .append(code).append("\"} ").append(count).append('\n'));
+    sb.append("# HELP sdip_incident_responses_total HTTP error responses per status.\n");
+    sb.append("# TYPE sdip_incident_responses_total counter\n");
+    getHttpStatusCounts().forEach((status, count) -> sb
+        .append("sdip_incident_responses_total{status=\"").append(status).append("\"} ")
+        .append(count).append('\n'));
+    sb.append("# HELP sdip_incident_handling_seconds Time spent handling exceptions per phase.\n");
+    sb.append("# TYPE sdip_incident_handling_seconds histogram\n");
+    for (Phase phase : Phase.values()) {
+      String label = phase.name().toLowerCase(Locale.ROOT);
+      LatencyHistogram histogram = getLatency(phase);
+      long cumulative = 0;
+      for (int i = 0; i < LatencyHistogram.BUCKETS; i++) {
+        cumulative += histogram.getBucketCount(i);
+        sb.append("sdip_incident_handling_seconds_bucket{phase=\"").append(label)
+            .append("\",le=\"").append(LatencyHistogram.getUpperBoundNanos(i) / 1e9)
+            .append("\"} ").append(cumulative).append('\n');
+      }
+      sb.append("sdip_incident_handling_seconds_bucket{phase=\"").append(label)
+          .append("\",le=\"+Inf\"} ").append(cumulative).append('\n');
+      sb.append("sdip_incident_handling_seconds_sum{phase=\"").append(label).append("\"} ")
+          .append(histogram.getSumNanos() / 1e9).append('\n');
+      sb.append("sdip_incident_handling_seconds_count{phase=\"").append(label).append("\"} ")
+          .append(cumulative).append('\n');
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,22 @@
+package com.scania.sdip.exceptions;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Exposes the {@link IncidentMetrics} and {@link IncidentFlightRecorder} singletons as Spring
+ * beans.
+ */
+@Configuration
+public class IncidentMetricsConfig {
+
+  @Bean
+  public IncidentMetrics incidentMetrics() {
+    return IncidentMetrics.getInstance();
+  }
+
+  @Bean
+  public IncidentFlightRecorder incidentFlightRecorder() {
+    return IncidentFlightRecorder.getInstance();
+  }
+}
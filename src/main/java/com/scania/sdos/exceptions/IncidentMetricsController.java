@@ -0,0 +1,48 @@
+package com.scania.sdip.exceptions;
+
+import java.util.Map;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * Read-only endpoint for the {@link IncidentMetrics}. The metrics are returned as JSON, or in the
+ * Prometheus text format when the client accepts text/plain. The endpoint is only registered with
+ * sdip.incidents.metrics.enabled=true. The path defaults to /incidents/metrics and is set with the
+ * property sdip.incidents.metrics.path. The endpoint is served on the main port without
+ * authentication of its own, so it must be secured by the service, e.g. with Spring Security, or
+ * the metrics exposed through actuator on the management port instead.
+ */
+@RestController
+@ConditionalOnProperty(name = "sdip.incidents.metrics.enabled", havingValue = "true")
+public class IncidentMetricsController {
+
+  private static final String PROMETHEUS_CONTENT_TYPE = "text/plain;version=0.0.4;charset=utf-8";
+
+  private final IncidentMetrics incidentMetrics;
+
+  public IncidentMetricsController(IncidentMetrics incidentMetrics) {
+    this.incidentMetrics = incidentMetrics;
+  }
+
+  /**
+   * Returns the incident metrics as JSON.
+   * @return the metrics.
+   */
+  @GetMapping(path = "${sdip.incidents.metrics.path:/incidents/metrics}",
+      produces = MediaType.APPLICATION_JSON_VALUE)
+  public Map<String, Object> getMetrics() {
+    return incidentMetrics.toMap();
+  }
+
+  /**
+   * Returns the incident metrics in the Prometheus text format.
+   * @return the metrics.
+   */
+  @GetMapping(path = "${sdip.incidents.metrics.path:/incidents/metrics}",
+      produces = PROMETHEUS_CONTENT_TYPE)
+  public String getPrometheusMetrics() {
+    return incidentMetrics.toPrometheusText();
+  }
+}
@@ -0,0 +1,26 @@
+package com.scania.sdip.exceptions;
+
+/**
+ * An interface for the destination of logged incidents. {@link IncidentException#printToLog()}
+ * hands an {@link IncidentSnapshot} to the configured sink, which decides when and on which thread
+ * it is rendered and written.
+ */
+@FunctionalInterface
+public interface IncidentSink {
+  /**
+   * A sink that renders and writes the incident on the calling thread.
+   */
+  IncidentSink SYNCHRONOUS = IncidentSnapshot::printToLog;
+
+  /**
+   * A sink that writes the incident as a single JSON event on the calling thread, for log
+   * pipelines that index fields instead of parsing text.
+   */
+  IncidentSink STRUCTURED = IncidentSnapshot::printStructuredToLog;
+
+  /**
+   * Accepts an incident to be written to the log.
+   * @param snapshot an immutable copy of the incident.
+   */
+  void accept(IncidentSnapshot snapshot);
+}
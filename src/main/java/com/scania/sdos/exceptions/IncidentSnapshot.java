@@ -0,0 +1,290 @@
+package com.scania.sdip.exceptions;
+
+import com.scania.sdip.model.ServiceArgument;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import org.slf4j.Logger;
+
+/**
+ * The IncidentSnapshot class is an immutable copy of the state of an {@link IncidentException} at
+ * the time it was logged. It holds everything needed to render the log entry, so rendering can
+ * happen on another thread after the request has completed and its servlet request has been
+ * recycled. A snapshot can also stand for incidents that were not logged one by one, it then only
+ * carries a summary line such as the count of duplicates suppressed by a
+ * {@link DeduplicatingIncidentSink}.
+ */
+public final class IncidentSnapshot {
+
+  private final Logger sl4jLogger;
+  private final org.apache.logging.log4j.Logger log4jlogger;
+  private final List<ErrorBinding> errorBindings;
+  private final String envname;
+  private final String serviceId;
+  private final String actionDetails;
+  private final String populateErrorMsg;
+  private final String executionId;
+  private final RequestSnapshot request;
+  private final Exception exception;
+  private final String summary;
+
+  IncidentSnapshot(Logger sl4jLogger, org.apache.logging.log4j.Logger log4jlogger,
+      List<ErrorBinding> errorBindings, String actionDetails, String populateErrorMsg,
+      String executionId, RequestSnapshot request, Exception exception) {
+    this(sl4jLogger, log4jlogger, errorBindings, actionDetails, populateErrorMsg, executionId,
+        request, exception, null);
+  }
+
+  private IncidentSnapshot(Logger sl4jLogger, org.apache.logging.log4j.Logger log4jlogger,
+      List<ErrorBinding> errorBindings, String actionDetails, String populateErrorMsg,
+      String executionId, RequestSnapshot request, Exception exception, String summary) {
+    this.sl4jLogger = sl4jLogger;
+    this.log4jlogger = log4jlogger;
+    this.errorBindings = Collections.unmodifiableList(new ArrayList<>(errorBindings));
+    ServiceArgument serviceArgument = ServiceArgument.getInstance();
+    this.envname = serviceArgument.getEnvname();
+    this.serviceId = serviceArgument.getServiceId();
+    this.actionDetails = actionDetails;
+    this.populateErrorMsg = populateErrorMsg;
+    this.executionId = executionId;
+    this.exception = exception;
+    this.request = request;
+    this.summary = summary;
+  }
+
+  /**
+   * Creates a snapshot that only carries a summary line, written to the given loggers.
+   *
+   * @param sl4jLogger  the slf4j logger, or null to use the log4j logger.
+   * @param log4jlogger the log4j logger.
+   * @param summary     the summary line.
+   * @return the summary snapshot.
+   */
+  static IncidentSnapshot summary(Logger sl4jLogger, org.apache.logging.log4j.Logger log4jlogger,
+      String summary) {
+    return new IncidentSnapshot(sl4jLogger, log4jlogger, Collections.emptyList(), null, null,
+        null, null, null, summary);
+  }
+
+  public List<ErrorBinding> getErrorBindings() {
+    return errorBindings;
+  }
+
+  public String getActionDetails() {
+    return actionDetails;
+  }
+
+  public String getPopulateErrorMsg() {
+    return populateErrorMsg;
+  }
+
+  public String getExecutionId() {
+    return executionId;
+  }
+
+  /**
+   * Returns the request line of the request that caused the incident.
+   * @return the request method, URI and query string, or null if no request was set.
+   */
+  public String getRequestLine() {
+    return request == null ? null : request.getRequestLine();
+  }
+
+  public Exception getException() {
+    return exception;
+  }
+
+  /**
+   * Returns the summary line of a snapshot that stands for incidents that were not logged one by
+   * one.
+   * @return the summary line, or null if the snapshot is a single incident.
+   */
+  public String getSummary() {
+    return summary;
+  }
+
+  String getEnvname() {
+    return envname;
+  }
+
+  String getServiceId() {
+    return serviceId;
+  }
+
+  String getRedactedRequestLine() {
+    return request == null ? null : request.getRedactedRequestLine();
+  }
+
+  String getRequestMethod() {
+    return request == null ? null : request.getMethod();
+  }
+
+  String getRequestUri() {
+    return request == null ? null : request.getUri();
+  }
+
+  String getQueryString() {
+    return request == null ? null : request.getQueryString();
+  }
+
+  String[] getHeaders() {
+    return request == null ? new String[0] : request.getHeaders();
+  }
+
+  /**
+   * Writes the incident as a single JSON event to the logger of the incident exception it was
+   * taken from, see {@link IncidentJsonEncoder} for the fields.
+   */
+  public void printStructuredToLog() {
+    printEntryToLog(IncidentJsonEncoder.getInstance().encode(this));
+  }
+
+  /**
+   * Renders the incident and writes it to the logger of the incident exception it was taken from.
+   */
+  public void printToLog() {
+    if (summary != null) {
+      printEntryToLog(summary);
+      return;
+    }
+    if (errorBindings.size() == 0) {
+      printEntryToLog(
+          "No error bindings set within the IncidentException. You should not see this message. Ensure that you didn't forgot to add an errorBinding or that you didn't.");
+    }
+    List<String> errorCodes = new ArrayList<>();
+    List<String> messages = new ArrayList<>();
+    List<Throwable> exceptions = new ArrayList<>();
+
+    iterateErrorBindings(exceptions, messages, errorCodes);
+
+    StringBuilder logEntry = new StringBuilder();
+    logEntry.append(String.join(", ", errorCodes) + "\n\n");
+    for (String message : messages) {
+      logEntry.append(message + "\n");
+    }
+    logEntry.append("\n");
+
+    appendHttpRequestInformation(logEntry);
+    appendExceptions(exceptions, logEntry);
+    printEntryToLog(logEntry.toString());
+    if (exception != null) {
+      printEntryToLog(StackTraceRenderCache.getInstance().render(exception));
+    }
+  }
+
+  private void iterateErrorBindings(List<Throwable> exceptions, List<String> messages,
+                                    List<String> errorCodes) {
+
+    for (ErrorBinding errorBinding : errorBindings) {
+      List<Object> arguments = new ArrayList<>();
+      errorBindingsArgs(arguments, errorBinding, exceptions);
+
+      StringBuilder sb = new StringBuilder();
+      sb.append(envname);
+      sb.append("_");
+      String logMessage = MessageTemplateCache.getLogTemplate(errorBinding.getErrorCode())
+              .format(arguments.toArray());
+      if (errorBinding instanceof RemoteErrorBinding) {
+        // The remote service logged the details, refer to its entry instead of repeating them.
+        RemoteErrorBinding remote = (RemoteErrorBinding) errorBinding;
+        sb.append(remote.getServiceId() == null ? "remote" : remote.getServiceId());
+        if (remote.getExecutionId() != null && !remote.getExecutionId().isEmpty()) {
+          logMessage = "(remote execution " + remote.getExecutionId() + ") " + logMessage;
+        }
+      } else {
+        sb.append(serviceId);
+      }
+      sb.append("_");
+      String errorMessage = logMessage;
+
+      if(this.populateErrorMsg!=null && !this.populateErrorMsg.isEmpty()){
+        errorMessage = "Error occured while populating " + this.populateErrorMsg + logMessage;
+      }
+
+      if (this.actionDetails != null && !this.actionDetails.isEmpty()) {
+        errorMessage = "(Error occured in Action - " + this.actionDetails + ") " + logMessage;
+      }
+      errorCodes.add(sb + SdipErrorParameter.ERRORCODE_PREFIX + errorBinding.getErrorCode()
+              .getSdipErrorCode());
+      messages.add(
+              sb + SdipErrorParameter.ERRORCODE_PREFIX + errorBinding.getErrorCode().getSdipErrorCode()
+                      + ": "
+                      + errorMessage);
+      if(executionId!=null && !executionId.equals("")){
+        printEntryToLog(executionId +"-"+ SdipErrorParameter.ERRORCODE_PREFIX +
+                errorBinding.getErrorCode().getSdipErrorCode() +"-"+
+                errorMessage);
+      }
+    }
+  }
+
+  private void  errorBindingsArgs(List<Object> arguments , ErrorBinding errorBinding,
+                                  List<Throwable> exceptions){
+    for (Object arg : errorBinding.getArgs()) {
+      if (arg instanceof Throwable) {
+        exceptions.add((Throwable) arg);
+      } else {
+        arguments.add(arg);
+      }
+    }
+  }
+
+  private void appendHttpRequestInformation(StringBuilder logEntry) {
+    if (request == null) {
+      return;
+    }
+    logEntry.append("    ").append(request.getRequestLine()).append('\n');
+    String[] headers = request.getHeaders();
+    for (int i = 0; i < headers.length; i += 2) {
+      logEntry.append("        ").append(headers[i]).append(": ").append(headers[i + 1])
+          .append('\n');
+    }
+  }
+
+  private void appendExceptions(Collection<Throwable> throwables, StringBuilder logEntry) {
+    for (Throwable throwable : throwables) {
+      logEntry.append("    " + StackTraceRenderCache.getInstance().render(throwable));
+    }
+  }
+
+  /**
+   * Writes an entry to the logger of the incident exception the snapshot was taken from.
+   * @param entry the text to log.
+   */
+  public void printEntryToLog(String entry) {
+    printEntryToLog(sl4jLogger, log4jlogger, entry);
+  }
+
+  static void printEntryToLog(Logger sl4jLogger, org.apache.logging.log4j.Logger log4jlogger,
+      String entry) {
+    if (sl4jLogger != null) {
+      sl4jLogger.error(entry);
+    } else {
+      log4jlogger.error(entry);
+    }
+  }
+
+  Logger getSl4jLogger() {
+    return sl4jLogger;
+  }
+
+  org.apache.logging.log4j.Logger getLog4jLogger() {
+    return log4jlogger;
+  }
+
+  /**
+   * Renders the log message of the first error binding, without the SDIP error code prefix.
+   * @return the message, or null if the incident has no error bindings.
+   */
+  String renderFirstLogMessage() {
+    if (errorBindings.isEmpty()) {
+      return null;
+    }
+    ErrorBinding errorBinding = errorBindings.get(0);
+    List<Object> arguments = new ArrayList<>();
+    errorBindingsArgs(arguments, errorBinding, new ArrayList<>());
+    return MessageTemplateCache.getLogTemplate(errorBinding.getErrorCode())
+        .format(arguments.toArray());
+  }
+}
@@ -0,0 +1,60 @@
+package com.scania.sdip.exceptions;
+
+import java.util.List;
+
+/**
+ * The JournalRecord class is an incident decoded from an {@link IncidentJournal} segment by the
+ * {@link IncidentJournalReader}.
+ */
+public final class JournalRecord {
+
+  /**
+   * An error code of the incident with its arguments as strings.
+   */
+  public static final class Binding {
+    private final String sdipErrorCode;
+    private final List<String> args;
+
+    Binding(String sdipErrorCode, List<String> args) {
+      this.sdipErrorCode = sdipErrorCode;
+      this.args = args;
+    }
+
+    public String getSdipErrorCode() {
+      return sdipErrorCode;
+    }
+
+    public List<String> getArgs() {
+      return args;
+    }
+  }
+
+  private final long timestamp;
+  private final String executionId;
+  private final String request;
+  private final List<Binding> errorBindings;
+
+  JournalRecord(long timestamp, String executionId, String request,
+      List<Binding> errorBindings) {
+    this.timestamp = timestamp;
+    this.executionId = executionId;
+    this.request = request;
+    this.errorBindings = errorBindings;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public String getExecutionId() {
+    return executionId;
+  }
+
+  public String getRequest() {
+    return request;
+  }
+
+  public List<Binding> getErrorBindings() {
+    return errorBindings;
+  }
+}
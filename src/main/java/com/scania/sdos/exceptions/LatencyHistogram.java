@@ -0,0 +1,75 @@
+package com.scania.sdip.exceptions;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The LatencyHistogram class records durations in nanoseconds into power-of-two buckets. Recording
+ * is a couple of bit operations and {@link LongAdder} increments, it does not allocate and does
+ * not contend between threads.
+ */
+public class LatencyHistogram {
+
+  /**
+   * The number of buckets, the upper bound of the last one is 2^40 ns, about 18 minutes.
+   */
+  public static final int BUCKETS = 41;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sumNanos = new LongAdder();
+
+  /**
+   * Constructs a new empty histogram.
+   */
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  /**
+   * Records a duration.
+   * @param nanos the duration in nanoseconds.
+   */
+  public void record(long nanos) {
+    long value = Math.max(nanos, 0);
+    int bucket = value <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(value - 1);
+    buckets[Math.min(bucket, BUCKETS - 1)].increment();
+    count.increment();
+    sumNanos.add(value);
+  }
+
+  /**
+   * Returns the inclusive upper bound of a bucket.
+   * @param bucket the bucket index.
+   * @return the upper bound in nanoseconds.
+   */
+  public static long getUpperBoundNanos(int bucket) {
+    return 1L << bucket;
+  }
+
+  /**
+   * Returns the number of recorded durations in a bucket.
+   * @param bucket the bucket index.
+   * @return the number of durations that fell in the bucket.
+   */
+  public long getBucketCount(int bucket) {
+    return buckets[bucket].sum();
+  }
+
+  /**
+   * Returns the number of recorded durations.
+   * @return the number of durations.
+   */
+  public long getCount() {
+    return count.sum();
+  }
+
+  /**
+   * Returns the sum of all recorded durations.
+   * @return the sum in nanoseconds.
+   */
+  public long getSumNanos() {
+    return sumNanos.sum();
+  }
+}
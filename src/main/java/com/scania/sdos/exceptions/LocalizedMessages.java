@@ -0,0 +1,190 @@
+package com.scania.sdip.exceptions;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Locale.LanguageRange;
+import java.util.MissingResourceException;
+import java.util.Objects;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * The LocalizedMessages class picks the Http message of an error code in the language the client
+ * asked for with the Accept-Language header. The messages are read from resource bundles, keyed on
+ * the SDIP error code, e.g. SDIP_40012 in sdip-messages_sv.properties. Only the configured locales
+ * are offered, an error code without a message in the negotiated locale gets its default message.
+ * So does an error code whose localized message refers to more arguments than it takes.
+ *
+ * <p>Both the negotiated locale per Accept-Language value and the compiled template per locale
+ * and error code are cached, so the error path does a map lookup instead of parsing the header
+ * and the bundle. Both caches are bounded, when full new entries are computed but not cached, so
+ * requests with unusual headers can not grow memory. Localization is off until
+ * {@link #configure(String, Locale...)} is called with at least one locale.
+ */
+public final class LocalizedMessages {
+
+  /**
+   * The default base name of the resource bundles.
+   */
+  public static final String DEFAULT_BASE_NAME = "sdip-messages";
+
+  private static final int MAX_CACHED_HEADERS = 256;
+  private static final int MAX_CACHED_TEMPLATES = 4096;
+  private static final Locale NO_MATCH = new Locale("");
+  private static final MessageTemplate MISSING = MessageTemplate.compile("");
+  private static final LocalizedMessages instance = new LocalizedMessages();
+
+  private volatile Configuration configuration =
+      new Configuration(DEFAULT_BASE_NAME, Collections.emptyList());
+
+  private LocalizedMessages() {
+  }
+
+  /**
+   * Returns the one and only instance of the localized messages.
+   * @return the localized messages.
+   */
+  public static LocalizedMessages getInstance() {
+    return instance;
+  }
+
+  /**
+   * Sets the resource bundles and the locales offered to clients, and drops the cached locales and
+   * templates.
+   *
+   * @param baseName         the base name of the resource bundles, e.g. sdip-messages.
+   * @param supportedLocales the locales offered, in order of preference, none to turn localization
+   *                         off.
+   */
+  public void configure(String baseName, Locale... supportedLocales) {
+    configuration = new Configuration(Objects.requireNonNull(baseName),
+        Collections.unmodifiableList(Arrays.asList(supportedLocales.clone())));
+  }
+
+  /**
+   * Returns the locale to answer a request in.
+   *
+   * @param request the request, may be null.
+   * @return one of the configured locales, or null if the request has no Accept-Language header,
+   *         none of its languages is offered or localization is off.
+   */
+  public Locale negotiate(ServletWebRequest request) {
+    return request == null ? null : negotiate(request.getHeader(HttpHeaders.ACCEPT_LANGUAGE));
+  }
+
+  /**
+   * Returns the locale to answer a request with an Accept-Language header in.
+   *
+   * @param acceptLanguage the value of the Accept-Language header, may be null.
+   * @return one of the configured locales, or null if the header is missing, none of its
+   *         languages is offered or localization is off.
+   */
+  public Locale negotiate(String acceptLanguage) {
+    Configuration current = configuration;
+    if (current.supportedLocales.isEmpty()) {
+      return null;
+    }
+    if (acceptLanguage == null || acceptLanguage.isEmpty()) {
+      return null;
+    }
+    Locale locale = current.negotiated.get(acceptLanguage);
+    if (locale == null) {
+      locale = lookup(acceptLanguage, current.supportedLocales);
+      if (current.negotiated.size() < MAX_CACHED_HEADERS) {
+        current.negotiated.put(acceptLanguage, locale);
+      }
+    }
+    return locale == NO_MATCH ? null : locale;
+  }
+
+  /**
+   * Returns the compiled Http message template of an error code in a locale.
+   *
+   * @param locale    the locale, null for the default message.
+   * @param errorCode the error code.
+   * @return the localized template, or the default template if the error code has no message in
+   *         the locale.
+   */
+  public MessageTemplate getHttpTemplate(Locale locale, ErrorCode errorCode) {
+    if (locale == null || errorCode instanceof RemoteErrorCode) {
+      return MessageTemplateCache.getHttpTemplate(errorCode);
+    }
+    Configuration current = configuration;
+    TemplateKey key = new TemplateKey(locale, errorCode);
+    MessageTemplate template = current.templates.get(key);
+    if (template == null) {
+      template = load(current.baseName, locale, errorCode);
+      if (current.templates.size() < MAX_CACHED_TEMPLATES) {
+        current.templates.put(key, template);
+      }
+    }
+    return template == MISSING ? MessageTemplateCache.getHttpTemplate(errorCode) : template;
+  }
+
+  private static Locale lookup(String acceptLanguage, List<Locale> supportedLocales) {
+    try {
+      Locale locale = Locale.lookup(LanguageRange.parse(acceptLanguage), supportedLocales);
+      return locale == null ? NO_MATCH : locale;
+    } catch (IllegalArgumentException e) {
+      return NO_MATCH;
+    }
+  }
+
+  private static MessageTemplate load(String baseName, Locale locale, ErrorCode errorCode) {
+    String key = SdipErrorParameter.ERRORCODE_PREFIX + errorCode.getSdipErrorCode();
+    try {
+      ResourceBundle bundle = ResourceBundle.getBundle(baseName, locale,
+          ResourceBundle.Control.getNoFallbackControl(ResourceBundle.Control.FORMAT_PROPERTIES));
+      if (!bundle.containsKey(key)) {
+        return MISSING;
+      }
+      MessageTemplate template = MessageTemplate.compile(bundle.getString(key));
+      // A message referring to arguments the error code does not take falls back to the default.
+      return template.getArgumentCount() > MessageTemplateCache.getArgumentCount(errorCode)
+          ? MISSING : template;
+    } catch (MissingResourceException e) {
+      return MISSING;
+    }
+  }
+
+  private static final class Configuration {
+    private final String baseName;
+    private final List<Locale> supportedLocales;
+    private final ConcurrentMap<String, Locale> negotiated = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TemplateKey, MessageTemplate> templates = new ConcurrentHashMap<>();
+
+    private Configuration(String baseName, List<Locale> supportedLocales) {
+      this.baseName = baseName;
+      this.supportedLocales = supportedLocales;
+    }
+  }
+
+  private static final class TemplateKey {
+    private final Locale locale;
+    private final ErrorCode errorCode;
+
+    private TemplateKey(Locale locale, ErrorCode errorCode) {
+      this.locale = locale;
+      this.errorCode = errorCode;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof TemplateKey)) {
+        return false;
+      }
+      TemplateKey that = (TemplateKey) other;
+      return locale.equals(that.locale) && errorCode.equals(that.errorCode);
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * locale.hashCode() + errorCode.hashCode();
+    }
+  }
+}
@@ -0,0 +1,249 @@
+package com.scania.sdip.exceptions;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import org.springframework.beans.factory.config.YamlPropertiesFactoryBean;
+import org.springframework.core.io.FileSystemResource;
+
+/**
+ * The MessageCatalog class holds the overrides of the Http and Log messages of error codes. The
+ * overrides and their compiled templates are kept in an immutable snapshot that is replaced as a
+ * whole, so a request thread sees either all or none of a reload through a single volatile read
+ * and never locks. Overrides are set one at a time, {@link SdipErrorCode#setHttpMessage(String)}
+ * and {@link SdipErrorCode#setLogMessage(String)} do so, or loaded in bulk from properties such as:
+ *
+ * <pre>
+ * SDIP_40012.http=The document is empty.
+ * SDIP_40012.log=The document is empty, request was {0}
+ * </pre>
+ *
+ * or the same keys nested in a YAML file.
+ *
+ * <p>An override can leave out arguments of the default message, but together the Http and Log
+ * messages of an error code must still require exactly the arguments of its default messages, so
+ * the error bindings already in the code keep matching.
+ */
+public final class MessageCatalog {
+
+  private static final String HTTP_SUFFIX = ".http";
+  private static final String LOG_SUFFIX = ".log";
+  private static final MessageCatalog instance = new MessageCatalog();
+
+  private volatile Snapshot snapshot = new Snapshot(0, Collections.emptyMap());
+
+  private MessageCatalog() {
+  }
+
+  /**
+   * Returns the one and only message catalog.
+   * @return the message catalog.
+   */
+  public static MessageCatalog getInstance() {
+    return instance;
+  }
+
+  /**
+   * Returns the version of the catalog, it is incremented every time the overrides change.
+   * @return the version.
+   */
+  public long getVersion() {
+    return snapshot.version;
+  }
+
+  /**
+   * Returns the overridden Http message of an error code.
+   * @param errorCode the error code.
+   * @return the overridden message, or null if the message is not overridden.
+   */
+  public String getHttpMessage(ErrorCode errorCode) {
+    Messages messages = snapshot.overrides.get(errorCode);
+    return messages == null ? null : messages.httpMessage;
+  }
+
+  /**
+   * Returns the overridden Log message of an error code.
+   * @param errorCode the error code.
+   * @return the overridden message, or null if the message is not overridden.
+   */
+  public String getLogMessage(ErrorCode errorCode) {
+    Messages messages = snapshot.overrides.get(errorCode);
+    return messages == null ? null : messages.logMessage;
+  }
+
+  /**
+   * Overrides the Http message of an error code, the Log message is left as is.
+   *
+   * @param errorCode the error code.
+   * @param message   the message, or null to go back to the default message.
+   * @throws IllegalArgumentException if the message is not a valid template, or it changes the
+   *                                  number of arguments the error code requires.
+   */
+  public synchronized void setHttpMessage(ErrorCode errorCode, String message) {
+    Map<ErrorCode, Messages> overrides = new HashMap<>(snapshot.overrides);
+    Messages current = overrides.get(errorCode);
+    put(overrides, errorCode, message, current == null ? null : current.logMessage);
+    swap(overrides);
+  }
+
+  /**
+   * Overrides the Log message of an error code, the Http message is left as is.
+   *
+   * @param errorCode the error code.
+   * @param message   the message, or null to go back to the default message.
+   * @throws IllegalArgumentException if the message is not a valid template, or it changes the
+   *                                  number of arguments the error code requires.
+   */
+  public synchronized void setLogMessage(ErrorCode errorCode, String message) {
+    Map<ErrorCode, Messages> overrides = new HashMap<>(snapshot.overrides);
+    Messages current = overrides.get(errorCode);
+    put(overrides, errorCode, current == null ? null : current.httpMessage, message);
+    swap(overrides);
+  }
+
+  /**
+   * Replaces all overrides with the ones in the properties. The properties are validated before
+   * anything is replaced, on error the current overrides are kept.
+   *
+   * @param properties the overrides, keyed on the SDIP error code followed by .http or .log.
+   * @throws IllegalArgumentException if a key is not a known error code followed by .http or .log,
+   *                                  a message is not a valid template, or the messages of an
+   *                                  error code change the number of arguments it requires.
+   */
+  public synchronized void load(Properties properties) {
+    Map<ErrorCode, String[]> messages = new HashMap<>();
+    for (String key : properties.stringPropertyNames()) {
+      boolean http = key.endsWith(HTTP_SUFFIX);
+      if (!http && !key.endsWith(LOG_SUFFIX)) {
+        throw new IllegalArgumentException("The message key " + key + " does not end with "
+            + HTTP_SUFFIX + " or " + LOG_SUFFIX + ".");
+      }
+      String code = key.substring(0, key.length() - (http ? HTTP_SUFFIX : LOG_SUFFIX).length());
+      ErrorCode errorCode = ErrorCodeRegistry.getInstance().find(code.toUpperCase(Locale.ROOT));
+      if (errorCode == null) {
+        throw new IllegalArgumentException(
+            "The message key " + key + " does not start with a known SDIP error code.");
+      }
+      messages.computeIfAbsent(errorCode, k -> new String[2])[http ? 0 : 1] =
+          properties.getProperty(key);
+    }
+    Map<ErrorCode, Messages> overrides = new HashMap<>();
+    messages.forEach((errorCode, pair) -> put(overrides, errorCode, pair[0], pair[1]));
+    swap(overrides);
+  }
+
+  /**
+   * Replaces all overrides with the ones in a file, see {@link #load(Properties)}. Files ending
+   * with .yml or .yaml are read as YAML, other files as properties in UTF-8.
+   *
+   * @param file the file.
+   * @throws IOException              if the file can not be read.
+   * @throws IllegalArgumentException if the file holds an invalid override.
+   */
+  public void load(Path file) throws IOException {
+    String fileName = file.getFileName().toString().toLowerCase(Locale.ROOT);
+    Properties properties;
+    if (fileName.endsWith(".yml") || fileName.endsWith(".yaml")) {
+      if (!Files.isReadable(file)) {
+        throw new IOException("Can not read message catalog " + file + ".");
+      }
+      YamlPropertiesFactoryBean yaml = new YamlPropertiesFactoryBean();
+      yaml.setResources(new FileSystemResource(file));
+      properties = yaml.getObject();
+    } else {
+      properties = new Properties();
+      try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+        properties.load(reader);
+      }
+    }
+    load(properties);
+  }
+
+  /**
+   * Removes all overrides, every error code goes back to its default messages.
+   */
+  public synchronized void reset() {
+    swap(Collections.emptyMap());
+  }
+
+  /**
+   * Returns the compiled templates of an error code, reading the overrides once.
+   */
+  MessageTemplateCache.CompiledTemplates getTemplates(ErrorCode errorCode) {
+    Messages messages = snapshot.overrides.get(errorCode);
+    return messages == null ? null : messages.templates;
+  }
+
+  /**
+   * Returns the Http message of an error code without its override.
+   */
+  static String getDefaultHttpMessage(ErrorCode errorCode) {
+    return errorCode instanceof SdipErrorCode ? ((SdipErrorCode) errorCode).getDefaultHttpMessage()
+        : errorCode.getHttpMessage();
+  }
+
+  /**
+   * Returns the Log message of an error code without its override.
+   */
+  static String getDefaultLogMessage(ErrorCode errorCode) {
+    return errorCode instanceof SdipErrorCode ? ((SdipErrorCode) errorCode).getDefaultLogMessage()
+        : errorCode.getLogMessage();
+  }
+
+  private static void put(Map<ErrorCode, Messages> overrides, ErrorCode errorCode,
+      String httpMessage, String logMessage) {
+    String http = httpMessage == null || httpMessage.equals(getDefaultHttpMessage(errorCode))
+        ? null : httpMessage;
+    String log = logMessage == null || logMessage.equals(getDefaultLogMessage(errorCode))
+        ? null : logMessage;
+    if (http == null && log == null) {
+      overrides.remove(errorCode);
+    } else {
+      overrides.put(errorCode, new Messages(errorCode, http, log));
+    }
+  }
+
+  private void swap(Map<ErrorCode, Messages> overrides) {
+    snapshot = new Snapshot(snapshot.version + 1, Collections.unmodifiableMap(overrides));
+  }
+
+  private static final class Snapshot {
+    private final long version;
+    private final Map<ErrorCode, Messages> overrides;
+
+    private Snapshot(long version, Map<ErrorCode, Messages> overrides) {
+      this.version = version;
+      this.overrides = overrides;
+    }
+  }
+
+  private static final class Messages {
+    private final String httpMessage;
+    private final String logMessage;
+    private final MessageTemplateCache.CompiledTemplates templates;
+
+    private Messages(ErrorCode errorCode, String httpMessage, String logMessage) {
+      this.httpMessage = httpMessage;
+      this.logMessage = logMessage;
+      templates = new MessageTemplateCache.CompiledTemplates(
+          httpMessage == null ? getDefaultHttpMessage(errorCode) : httpMessage,
+          logMessage == null ? getDefaultLogMessage(errorCode) : logMessage);
+      int defaultArgumentCount = new MessageTemplateCache.CompiledTemplates(
+          getDefaultHttpMessage(errorCode), getDefaultLogMessage(errorCode)).getArgumentCount();
+      if (templates.getArgumentCount() != defaultArgumentCount) {
+        throw new IllegalArgumentException("The messages of " + SdipErrorParameter.ERRORCODE_PREFIX
+            + errorCode.getSdipErrorCode() + " require " + templates.getArgumentCount()
+            + " arguments but the error code takes " + defaultArgumentCount
+            + ", Http message was '" + httpMessage + "' and Log message was '" + logMessage
+            + "'.");
+      }
+    }
+  }
+}
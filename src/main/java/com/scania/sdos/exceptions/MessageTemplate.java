@@ -0,0 +1,170 @@
+package com.scania.sdip.exceptions;
+
+import java.text.DateFormat;
+import java.text.Format;
+import java.text.MessageFormat;
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The MessageTemplate class is a precompiled form of an error code template string. The pattern is
+ * parsed once into literal segments and argument indexes so that formatting does not have to
+ * re-parse the template for every incident. The output is identical to
+ * {@link MessageFormat#format(String, Object...)} for the same pattern and arguments.
+ */
+public final class MessageTemplate {
+
+  private final String pattern;
+  private final String[] literals;
+  private final int[] argumentIndexes;
+  private final int argumentCount;
+  private final MessageFormat delegate;
+
+  private MessageTemplate(String pattern, String[] literals, int[] argumentIndexes,
+      int argumentCount, MessageFormat delegate) {
+    this.pattern = pattern;
+    this.literals = literals;
+    this.argumentIndexes = argumentIndexes;
+    this.argumentCount = argumentCount;
+    this.delegate = delegate;
+  }
+
+  /**
+   * Compiles a template string.
+   * @param pattern a {@link MessageFormat} pattern.
+   * @return the compiled template.
+   * @throws IllegalArgumentException if the pattern is not a valid {@link MessageFormat} pattern.
+   */
+  public static MessageTemplate compile(String pattern) {
+    MessageFormat messageFormat = new MessageFormat(pattern);
+    int argumentCount = messageFormat.getFormatsByArgumentIndex().length;
+    for (Format format : messageFormat.getFormats()) {
+      if (format != null) {
+        // Typed placeholders such as {0,number} are rare, leave them to MessageFormat.
+        return new MessageTemplate(pattern, new String[0], new int[0], argumentCount,
+            messageFormat);
+      }
+    }
+    List<String> literals = new ArrayList<>();
+    List<Integer> indexes = new ArrayList<>();
+    split(pattern, literals, indexes);
+    int[] argumentIndexes = new int[indexes.size()];
+    for (int i = 0; i < argumentIndexes.length; i++) {
+      argumentIndexes[i] = indexes.get(i);
+    }
+    return new MessageTemplate(pattern, literals.toArray(new String[0]), argumentIndexes,
+        argumentCount, null);
+  }
+
+  /**
+   * Splits an already validated pattern using the quoting rules of {@link MessageFormat}.
+   */
+  private static void split(String pattern, List<String> literals, List<Integer> indexes) {
+    StringBuilder literal = new StringBuilder();
+    boolean inQuote = false;
+    int i = 0;
+    while (i < pattern.length()) {
+      char ch = pattern.charAt(i);
+      if (ch == '\'') {
+        if (i + 1 < pattern.length() && pattern.charAt(i + 1) == '\'') {
+          literal.append(ch);
+          ++i;
+        } else {
+          inQuote = !inQuote;
+        }
+      } else if (ch == '{' && !inQuote) {
+        int end = pattern.indexOf('}', i);
+        int comma = pattern.indexOf(',', i);
+        int indexEnd = (comma >= 0 && comma < end) ? comma : end;
+        literals.add(literal.toString());
+        literal.setLength(0);
+        indexes.add(Integer.parseInt(pattern.substring(i + 1, indexEnd)));
+        i = end;
+      } else {
+        literal.append(ch);
+      }
+      ++i;
+    }
+    literals.add(literal.toString());
+  }
+
+  /**
+   * Returns the template string this template was compiled from.
+   * @return the template string.
+   */
+  public String getPattern() {
+    return pattern;
+  }
+
+  /**
+   * Returns the number of arguments the template refers to, i.e. the highest argument index plus
+   * one.
+   * @return the number of arguments required by the template.
+   */
+  public int getArgumentCount() {
+    return argumentCount;
+  }
+
+  /**
+   * Returns the literal text segments of the template. A template with n placeholders has n + 1
+   * segments, the placeholder values go between them.
+   * @return a copy of the literal segments.
+   */
+  public String[] getSegments() {
+    return literals.clone();
+  }
+
+  /**
+   * Formats the template with the given arguments.
+   * @param args the arguments to insert into the template.
+   * @return the formatted message.
+   */
+  public String format(Object... args) {
+    if (delegate != null) {
+      return ((MessageFormat) delegate.clone()).format(args);
+    }
+    StringBuilder sb = new StringBuilder(pattern.length() + 32);
+    formatTo(sb, args);
+    return sb.toString();
+  }
+
+  /**
+   * Appends the formatted template to a string builder.
+   * @param sb   the builder to append to.
+   * @param args the arguments to insert into the template.
+   */
+  public void formatTo(StringBuilder sb, Object... args) {
+    if (delegate != null) {
+      sb.append(((MessageFormat) delegate.clone()).format(args));
+      return;
+    }
+    for (int i = 0; i < argumentIndexes.length; i++) {
+      sb.append(literals[i]);
+      appendArgument(sb, argumentIndexes[i], args);
+    }
+    sb.append(literals[literals.length - 1]);
+  }
+
+  private static void appendArgument(StringBuilder sb, int index, Object[] args) {
+    if (args == null || index >= args.length) {
+      sb.append('{').append(index).append('}');
+      return;
+    }
+    Object arg = args[index];
+    if (arg == null) {
+      sb.append("null");
+    } else if (arg instanceof String) {
+      sb.append((String) arg);
+    } else if (arg instanceof Number) {
+      sb.append(NumberFormat.getInstance(Locale.getDefault(Locale.Category.FORMAT)).format(arg));
+    } else if (arg instanceof Date) {
+      sb.append(DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.SHORT,
+          Locale.getDefault(Locale.Category.FORMAT)).format(arg));
+    } else {
+      sb.append(arg);
+    }
+  }
+}
@@ -0,0 +1,102 @@
+package com.scania.sdip.exceptions;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The MessageTemplateCache class holds the compiled Http and Log message templates of every
+ * {@link ErrorCode} that has been used. Each template is parsed once and reused by
+ * {@link ErrorBinding} for argument validation and by {@link IncidentException} for formatting.
+ * Error codes with messages overridden in the {@link MessageCatalog} use the templates compiled
+ * with the overrides. An entry is rebuilt when the messages of its error code are changed.
+ */
+public final class MessageTemplateCache {
+
+  private static final ConcurrentMap<ErrorCode, CompiledTemplates> TEMPLATES =
+      new ConcurrentHashMap<>();
+  private static final CompiledTemplates REMOTE_TEMPLATES = new CompiledTemplates(
+      RemoteErrorCode.MESSAGE_TEMPLATE, RemoteErrorCode.MESSAGE_TEMPLATE);
+
+  private MessageTemplateCache() {}
+
+  /**
+   * Returns the compiled Http message template of an error code.
+   * @param errorCode the error code.
+   * @return the compiled Http message template.
+   */
+  public static MessageTemplate getHttpTemplate(ErrorCode errorCode) {
+    return get(errorCode).httpTemplate;
+  }
+
+  /**
+   * Returns the compiled Log message template of an error code.
+   * @param errorCode the error code.
+   * @return the compiled Log message template.
+   */
+  public static MessageTemplate getLogTemplate(ErrorCode errorCode) {
+    return get(errorCode).logTemplate;
+  }
+
+  /**
+   * Returns the number of arguments an error code requires, which is the larger of the number of
+   * arguments of its Http and Log message templates.
+   * @param errorCode the error code.
+   * @return the number of required arguments.
+   */
+  public static int getArgumentCount(ErrorCode errorCode) {
+    return get(errorCode).argumentCount;
+  }
+
+  /**
+   * Drops the compiled templates of an error code, they are rebuilt on next use.
+   * @param errorCode the error code whose messages have changed.
+   */
+  public static void invalidate(ErrorCode errorCode) {
+    TEMPLATES.remove(errorCode);
+  }
+
+  private static CompiledTemplates get(ErrorCode errorCode) {
+    if (errorCode instanceof RemoteErrorCode) {
+      // Remote codes all share one template, a peer sending many codes can not grow the cache.
+      return REMOTE_TEMPLATES;
+    }
+    CompiledTemplates overridden = MessageCatalog.getInstance().getTemplates(errorCode);
+    if (overridden != null) {
+      return overridden;
+    }
+    String httpMessage = MessageCatalog.getDefaultHttpMessage(errorCode);
+    String logMessage = MessageCatalog.getDefaultLogMessage(errorCode);
+    CompiledTemplates compiled = TEMPLATES.get(errorCode);
+    if (compiled == null || !compiled.isCompiledFrom(httpMessage, logMessage)) {
+      // Also covers ErrorCode implementations that change their messages without invalidating.
+      compiled = new CompiledTemplates(httpMessage, logMessage);
+      TEMPLATES.put(errorCode, compiled);
+    }
+    return compiled;
+  }
+
+  static final class CompiledTemplates {
+    private final MessageTemplate httpTemplate;
+    private final MessageTemplate logTemplate;
+    private final int argumentCount;
+
+    CompiledTemplates(String httpMessage, String logMessage) {
+      httpTemplate = MessageTemplate.compile(httpMessage);
+      logTemplate = MessageTemplate.compile(logMessage);
+      argumentCount = Math.max(httpTemplate.getArgumentCount(), logTemplate.getArgumentCount());
+    }
+
+    int getArgumentCount() {
+      return argumentCount;
+    }
+
+    private boolean isCompiledFrom(String httpMessage, String logMessage) {
+      return sameString(httpTemplate.getPattern(), httpMessage)
+          && sameString(logTemplate.getPattern(), logMessage);
+    }
+
+    private static boolean sameString(String compiled, String current) {
+      return compiled == current || compiled.equals(current);
+    }
+  }
+}
@@ -0,0 +1,242 @@
+package com.scania.sdip.exceptions;
+
+import com.fasterxml.jackson.core.util.RequestPayload;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The PayloadCapturePolicy class decides how much of a request payload is kept when the payload
+ * can not be parsed. Payloads within the byte budget are kept as is. Larger payloads are cut to a
+ * head and a tail of half the budget each, together with a SHA-256 hash of the full payload to
+ * correlate it with other logs. Optionally the full payload is written to a file in a spill
+ * directory, named after the hash. The payload is hashed and spilled in fixed size chunks, so the
+ * memory used does not depend on the size of the request. Byte payloads are read as UTF-8.
+ */
+public final class PayloadCapturePolicy {
+
+  /**
+   * Keeps up to 4 KiB of the payload and does not spill.
+   */
+  public static final PayloadCapturePolicy DEFAULT = new PayloadCapturePolicy(4096, null);
+
+  private static final Logger logger = LoggerFactory.getLogger(PayloadCapturePolicy.class);
+  private static final int CHUNK_SIZE = 8192;
+
+  private final int maxBytes;
+  private final Path spillDirectory;
+
+  /**
+   * Constructs a new payload capture policy.
+   *
+   * @param maxBytes       the number of bytes of the payload kept in the incident.
+   * @param spillDirectory the directory the full payload of a truncated payload is written to, or
+   *                       null to not keep the full payload.
+   */
+  public PayloadCapturePolicy(int maxBytes, Path spillDirectory) {
+    if (maxBytes < 2) {
+      throw new IllegalArgumentException(
+          "The byte budget must be at least 2 bytes, it was " + maxBytes + ".");
+    }
+    this.maxBytes = maxBytes;
+    this.spillDirectory = spillDirectory;
+  }
+
+  public int getMaxBytes() {
+    return maxBytes;
+  }
+
+  public Path getSpillDirectory() {
+    return spillDirectory;
+  }
+
+  /**
+   * Captures a request payload.
+   *
+   * @param payload the payload of a parse exception, may be null.
+   * @return the captured payload, or null if there is no payload.
+   */
+  public CapturedPayload capture(RequestPayload payload) {
+    Object raw = payload == null ? null : payload.getRawPayload();
+    if (raw instanceof byte[]) {
+      return capture((byte[]) raw);
+    } else if (raw instanceof CharSequence) {
+      return capture((CharSequence) raw);
+    }
+    return null;
+  }
+
+  /**
+   * Captures a payload of bytes encoded as UTF-8.
+   *
+   * @param payload the payload.
+   * @return the captured payload.
+   */
+  public CapturedPayload capture(byte[] payload) {
+    if (payload.length <= maxBytes) {
+      return new CapturedPayload(new String(payload, StandardCharsets.UTF_8), null,
+          payload.length, 0, null, null);
+    }
+    int headEnd = maxBytes / 2;
+    while (headEnd > 0 && isContinuationByte(payload[headEnd])) {
+      --headEnd;
+    }
+    int tailStart = payload.length - maxBytes / 2;
+    while (tailStart < payload.length && isContinuationByte(payload[tailStart])) {
+      ++tailStart;
+    }
+    MessageDigest digest = sha256();
+    digest.update(payload);
+    String hash = toHex(digest.digest());
+    Path spillFile = spill(hash, out -> out.write(payload));
+    return new CapturedPayload(new String(payload, 0, headEnd, StandardCharsets.UTF_8),
+        new String(payload, tailStart, payload.length - tailStart, StandardCharsets.UTF_8),
+        payload.length, tailStart - headEnd, hash, spillFile);
+  }
+
+  /**
+   * Captures a payload of characters, its size is counted in UTF-8 bytes.
+   *
+   * @param payload the payload.
+   * @return the captured payload.
+   */
+  public CapturedPayload capture(CharSequence payload) {
+    // Only count as far as needed to know whether the payload fits in the budget.
+    long length = 0;
+    for (int i = 0; i < payload.length() && length <= maxBytes; ) {
+      int charBytes = Utf8.length(payload, i);
+      length += charBytes;
+      i += charBytes == 4 ? 2 : 1;
+    }
+    if (length <= maxBytes) {
+      return new CapturedPayload(payload.toString(), null, length, 0, null, null);
+    }
+    int headEnd = 0;
+    for (int bytes = 0; headEnd < payload.length(); ) {
+      int charBytes = Utf8.length(payload, headEnd);
+      if (bytes + charBytes > maxBytes / 2) {
+        break;
+      }
+      bytes += charBytes;
+      headEnd += charBytes == 4 ? 2 : 1;
+    }
+    int tailStart = payload.length();
+    for (int bytes = 0; tailStart > headEnd; ) {
+      int start = tailStart - 1;
+      if (start > 0 && Character.isLowSurrogate(payload.charAt(start))
+          && Character.isHighSurrogate(payload.charAt(start - 1))) {
+        --start;
+      }
+      int charBytes = Utf8.length(payload, start);
+      if (bytes + charBytes > maxBytes / 2) {
+        break;
+      }
+      bytes += charBytes;
+      tailStart = start;
+    }
+    MessageDigest digest = sha256();
+    long totalBytes = encode(payload, digest::update);
+    String hash = toHex(digest.digest());
+    Path spillFile = spill(hash, out -> encode(payload, out::write));
+    long keptBytes = Utf8.length(payload.subSequence(0, headEnd))
+        + Utf8.length(payload.subSequence(tailStart, payload.length()));
+    return new CapturedPayload(payload.subSequence(0, headEnd).toString(),
+        payload.subSequence(tailStart, payload.length()).toString(), totalBytes,
+        totalBytes - keptBytes, hash, spillFile);
+  }
+
+  private Path spill(String hash, PayloadWriter writer) {
+    if (spillDirectory == null) {
+      return null;
+    }
+    Path file = spillDirectory.resolve("payload-" + hash + ".json");
+    try {
+      Files.createDirectories(spillDirectory);
+      try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW,
+          StandardOpenOption.WRITE)) {
+        writer.write(out);
+      }
+    } catch (FileAlreadyExistsException e) {
+      // The same payload has been spilled before.
+    } catch (IOException | UncheckedIOException e) {
+      logger.warn("Could not spill request payload to " + file, e);
+      return null;
+    }
+    return file;
+  }
+
+  /**
+   * Encodes a char sequence as UTF-8 in chunks and hands each chunk to a consumer.
+   *
+   * @return the number of bytes.
+   */
+  private static long encode(CharSequence payload, ChunkConsumer consumer) {
+    CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+        .onMalformedInput(CodingErrorAction.REPLACE)
+        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    CharBuffer in = CharBuffer.wrap(payload);
+    byte[] chunk = new byte[CHUNK_SIZE];
+    ByteBuffer out = ByteBuffer.wrap(chunk);
+    long total = 0;
+    try {
+      while (true) {
+        CoderResult result = encoder.encode(in, out, true);
+        if (result.isUnderflow()) {
+          result = encoder.flush(out);
+        }
+        consumer.accept(chunk, 0, out.position());
+        total += out.position();
+        out.clear();
+        if (result.isUnderflow()) {
+          return total;
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static boolean isContinuationByte(byte b) {
+    return (b & 0xC0) == 0x80;
+  }
+
+  private static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is required by every Java platform.", e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder sb = new StringBuilder(bytes.length * 2);
+    for (byte b : bytes) {
+      sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+    }
+    return sb.toString();
+  }
+
+  @FunctionalInterface
+  private interface ChunkConsumer {
+    void accept(byte[] chunk, int offset, int length) throws IOException;
+  }
+
+  @FunctionalInterface
+  private interface PayloadWriter {
+    void write(OutputStream out) throws IOException;
+  }
+}
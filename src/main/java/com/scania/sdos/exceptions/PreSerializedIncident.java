@@ -0,0 +1,210 @@
+package com.scania.sdip.exceptions;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The PreSerializedIncident class is the {@link Incident} returned for a single error code whose
+ * Http message has no arguments. Such incidents only differ by timestamp and request, so the error
+ * code and message are encoded to JSON once per error code and written to the response as UTF-8
+ * bytes, only the timestamp and request are serialized per response. The lists of error codes and
+ * messages share the cached ones until they are modified, and the regular serializer is used when
+ * they were modified or the mapper is not configured like the default one.
+ */
+public class PreSerializedIncident extends Incident implements JsonSerializable {
+
+  private static final SerializableString SDIP_ERROR_CODES = new SerializedString("sdipErrorCodes");
+  private static final SerializableString MESSAGES = new SerializedString("messages");
+  private static final SerializableString TIMESTAMP = new SerializedString("timestamp");
+  private static final SerializableString REQUEST = new SerializedString("request");
+  private static final ConcurrentMap<ErrorCode, Body> BODIES = new ConcurrentHashMap<>();
+
+  private final Body body;
+  private final CopyOnWriteList sdipErrorCodes;
+  private final CopyOnWriteList messages;
+
+  private PreSerializedIncident(Body body, long timestamp, String request) {
+    this(body, new CopyOnWriteList(body.sdipErrorCodes), new CopyOnWriteList(body.messages),
+        timestamp, request);
+  }
+
+  private PreSerializedIncident(Body body, CopyOnWriteList sdipErrorCodes,
+      CopyOnWriteList messages, long timestamp, String request) {
+    super(sdipErrorCodes, messages);
+    this.body = body;
+    this.sdipErrorCodes = sdipErrorCodes;
+    this.messages = messages;
+    setTimestamp(timestamp);
+    setRequest(request);
+  }
+
+  /**
+   * Creates a pre-serialized incident for an error code if its Http message has no arguments.
+   *
+   * @param errorCode the error code of the incident.
+   * @param timestamp the time of the incident.
+   * @param request   the request that caused the incident.
+   * @return the incident, or null if the Http message of the error code has arguments.
+   */
+  public static PreSerializedIncident create(ErrorCode errorCode, long timestamp, String request) {
+    Body body = getBody(errorCode);
+    return body == null ? null : new PreSerializedIncident(body, timestamp, request);
+  }
+
+  private static Body getBody(ErrorCode errorCode) {
+    MessageTemplate template = MessageTemplateCache.getHttpTemplate(errorCode);
+    if (template.getArgumentCount() != 0) {
+      return null;
+    }
+    Body body = BODIES.get(errorCode);
+    if (body == null || body.template != template) {
+      body = new Body(errorCode, template);
+      BODIES.put(errorCode, body);
+    }
+    return body;
+  }
+
+  @Override
+  public void serialize(JsonGenerator gen, SerializerProvider serializers) throws IOException {
+    if (!canWriteRaw(gen, serializers)) {
+      serializers.findValueSerializer(Incident.class).serialize(this, gen, serializers);
+      return;
+    }
+    long start = System.nanoTime();
+    gen.writeStartObject(this);
+    gen.writeFieldName(SDIP_ERROR_CODES);
+    gen.writeRawValue(body.sdipErrorCodesJson);
+    gen.writeFieldName(MESSAGES);
+    gen.writeRawValue(body.messagesJson);
+    gen.writeFieldName(TIMESTAMP);
+    gen.writeNumber(getTimestamp());
+    gen.writeFieldName(REQUEST);
+    gen.writeString(getRequest());
+    gen.writeEndObject();
+    IncidentMetrics.getInstance()
+        .recordLatency(IncidentMetrics.Phase.SERIALIZE, System.nanoTime() - start);
+  }
+
+  @Override
+  public void serializeWithType(JsonGenerator gen, SerializerProvider serializers,
+      TypeSerializer typeSer) throws IOException {
+    serializers.findValueSerializer(Incident.class)
+        .serializeWithType(this, gen, serializers, typeSer);
+  }
+
+  /**
+   * The cached fragments can only be used as is if the lists are untouched and the mapper and
+   * generator write an incident like the default configuration does: no naming strategy, mix-in,
+   * property sorting or inclusion rule that would drop the request, and no pretty printing or
+   * different escaping.
+   */
+  private boolean canWriteRaw(JsonGenerator gen, SerializerProvider serializers) {
+    if (getSdipErrorCodes() != sdipErrorCodes || sdipErrorCodes.isCopied()
+        || getMessages() != messages || messages.isCopied() || !getViolations().isEmpty()) {
+      return false;
+    }
+    SerializationConfig config = serializers.getConfig();
+    JsonInclude.Include inclusion =
+        config.getDefaultPropertyInclusion(Incident.class).getValueInclusion();
+    return config.getPropertyNamingStrategy() == null
+        && config.findMixInClassFor(Incident.class) == null
+        && !config.isEnabled(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+        && (inclusion == JsonInclude.Include.ALWAYS
+            || inclusion == JsonInclude.Include.USE_DEFAULTS)
+        && gen.getPrettyPrinter() == null && gen.getCharacterEscapes() == null
+        && !gen.isEnabled(JsonWriteFeature.ESCAPE_NON_ASCII.mappedFeature());
+  }
+
+  /**
+   * A list that reads through to a shared immutable list and copies it on the first modification.
+   */
+  private static final class CopyOnWriteList extends AbstractList<String> implements RandomAccess {
+    private List<String> values;
+    private boolean copied;
+
+    private CopyOnWriteList(List<String> shared) {
+      this.values = shared;
+    }
+
+    private boolean isCopied() {
+      return copied;
+    }
+
+    private List<String> copy() {
+      if (!copied) {
+        values = new ArrayList<>(values);
+        copied = true;
+      }
+      return values;
+    }
+
+    @Override
+    public String get(int index) {
+      return values.get(index);
+    }
+
+    @Override
+    public int size() {
+      return values.size();
+    }
+
+    @Override
+    public String set(int index, String element) {
+      return copy().set(index, element);
+    }
+
+    @Override
+    public void add(int index, String element) {
+      copy().add(index, element);
+      ++modCount;
+    }
+
+    @Override
+    public String remove(int index) {
+      String removed = copy().remove(index);
+      ++modCount;
+      return removed;
+    }
+  }
+
+  private static final class Body {
+    private final MessageTemplate template;
+    private final List<String> sdipErrorCodes;
+    private final List<String> messages;
+    private final SerializableString sdipErrorCodesJson;
+    private final SerializableString messagesJson;
+
+    private Body(ErrorCode errorCode, MessageTemplate template) {
+      this.template = template;
+      String sdipErrorCode = SdipErrorParameter.ERRORCODE_PREFIX + errorCode.getSdipErrorCode();
+      String message = template.format();
+      sdipErrorCodes = Collections.singletonList(sdipErrorCode);
+      messages = Collections.singletonList(message);
+      sdipErrorCodesJson = toJsonArray(sdipErrorCode);
+      messagesJson = toJsonArray(message);
+    }
+
+    private static SerializableString toJsonArray(String value) {
+      // SerializedString caches its UTF-8 bytes, they are copied straight into the output buffer.
+      return new SerializedString(
+          "[\"" + new String(JsonStringEncoder.getInstance().quoteAsString(value)) + "\"]");
+    }
+  }
+}
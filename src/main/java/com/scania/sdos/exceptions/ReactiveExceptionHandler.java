@@ -0,0 +1,240 @@
+package com.scania.sdip.exceptions;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.util.RequestPayload;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scania.sdip.exceptions.IncidentMetrics.Phase;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.validation.FieldError;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.NotAcceptableStatusException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.server.UnsupportedMediaTypeStatusException;
+import org.springframework.web.server.WebExceptionHandler;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * The ReactiveExceptionHandler class is the WebFlux counterpart of {@link RestExceptionHandler}. It
+ * turns any exception into an {@link IncidentException} and answers with the same {@link Incident}
+ * body and status as the servlet handler. The body is serialized to a single {@code DataBuffer}
+ * and written without blocking. Recording the incident in the {@link IncidentFlightRecorder},
+ * which fingerprints its stack trace, and handing it to the {@link IncidentSink} happen on the log
+ * executor, so rendering and writing the log entry never runs on a Netty I/O thread. The payload
+ * of a request body that is not JSON is captured when the incident is rendered, so it is hashed
+ * and spilled on the log executor too. An incident the log executor rejects is counted as dropped
+ * and the response is written all the same.
+ */
+public class ReactiveExceptionHandler implements WebExceptionHandler {
+  private static final Logger logger = LoggerFactory.getLogger(ReactiveExceptionHandler.class);
+  private static final String NO_REQUEST_BODY = "No request body";
+
+  private final IncidentFactoryRegistry incidentFactories = new IncidentFactoryRegistry();
+  private final IncidentMetrics incidentMetrics = IncidentMetrics.getInstance();
+  private final ObjectMapper objectMapper;
+  private final Executor logExecutor;
+  private final LongAdder dropped = new LongAdder();
+  private volatile PayloadCapturePolicy payloadCapturePolicy = PayloadCapturePolicy.DEFAULT;
+
+  /**
+   * Constructs a new exception handler that logs on the bounded elastic scheduler of Reactor.
+   *
+   * @param objectMapper the object mapper serializing the incidents.
+   */
+  public ReactiveExceptionHandler(ObjectMapper objectMapper) {
+    this(objectMapper, task -> Schedulers.boundedElastic().schedule(task));
+  }
+
+  /**
+   * Constructs a new exception handler.
+   *
+   * @param objectMapper the object mapper serializing the incidents.
+   * @param logExecutor  the executor the incidents are handed to the incident sink on, it must not
+   *                     run tasks on the calling thread.
+   */
+  public ReactiveExceptionHandler(ObjectMapper objectMapper, Executor logExecutor) {
+    this.objectMapper = objectMapper;
+    this.logExecutor = logExecutor;
+    incidentFactories.register(Exception.class, this::createFallbackIncidentException);
+    incidentFactories.register(IncidentException.class, incidentException -> incidentException);
+    incidentFactories.register(ServerWebInputException.class, this::createInputException);
+    incidentFactories.register(WebExchangeBindException.class, this::createNotValidException);
+    incidentFactories.register(ConstraintViolationException.class,
+        this::createConstraintViolationException);
+    incidentFactories.register(UnsupportedMediaTypeStatusException.class,
+        exception -> new IncidentException(SdipErrorCode.UNSUPPORTED_MEDIA_TYPE, logger,
+            RestExceptionHandler.buildSupportedMediaTypesString(
+                exception.getSupportedMediaTypes())));
+    incidentFactories.register(NotAcceptableStatusException.class,
+        exception -> new IncidentException(SdipErrorCode.NOT_ACCEPTABLE, logger,
+            RestExceptionHandler.buildSupportedMediaTypesString(
+                exception.getSupportedMediaTypes())));
+  }
+
+  /**
+   * Registers how exceptions of a type, and of its subclasses without a closer registration, are
+   * turned into an incident.
+   *
+   * @param type    the exception type.
+   * @param factory creates the incident exception for an exception of the type.
+   * @param <T>     the exception type.
+   */
+  public <T extends Exception> void registerIncidentFactory(Class<T> type,
+      Function<? super T, IncidentException> factory) {
+    incidentFactories.register(type, factory);
+  }
+
+  /**
+   * Sets how much of the request payload is kept when a request body is not valid JSON.
+   *
+   * @param payloadCapturePolicy the policy, {@link PayloadCapturePolicy#DEFAULT} keeps 4 KiB.
+   */
+  public void setPayloadCapturePolicy(PayloadCapturePolicy payloadCapturePolicy) {
+    this.payloadCapturePolicy = payloadCapturePolicy;
+  }
+
+  /**
+   * Returns the number of incidents that were not logged because the log executor rejected them.
+   * @return the number of dropped incidents.
+   */
+  public long getDroppedCount() {
+    return dropped.sum();
+  }
+
+  @Override
+  public Mono<Void> handle(ServerWebExchange exchange, Throwable throwable) {
+    ServerHttpResponse response = exchange.getResponse();
+    if (response.isCommitted()) {
+      return Mono.error(throwable);
+    }
+    long start = System.nanoTime();
+    IncidentException incidentException = createIncident(throwable, exchange.getRequest());
+    long created = System.nanoTime();
+    incidentMetrics.recordLatency(Phase.CREATE, created - start);
+
+    incidentException.setRequestSnapshot(RequestSnapshot.capture(exchange.getRequest()));
+    IncidentSnapshot snapshot = incidentException.toSnapshot();
+    IncidentSink incidentSink = IncidentException.getIncidentSink();
+    try {
+      logExecutor.execute(() -> {
+        IncidentFlightRecorder.getInstance().record(incidentException);
+        incidentSink.accept(snapshot);
+      });
+    } catch (RejectedExecutionException e) {
+      dropped.increment();
+    }
+    long logged = System.nanoTime();
+    incidentMetrics.recordLatency(Phase.LOG, logged - created);
+
+    ResponseEntity<Incident> responseEntity = incidentException.createHttpErrorResponse();
+    boolean binary = acceptsBinary(exchange.getRequest());
+    byte[] body;
+    try {
+      body = binary ? IncidentBinaryCodec.getInstance().encode(responseEntity.getBody())
+          : objectMapper.writeValueAsBytes(responseEntity.getBody());
+    } catch (JsonProcessingException e) {
+      return Mono.error(e);
+    }
+    response.setStatusCode(responseEntity.getStatusCode());
+    response.getHeaders()
+        .setContentType(binary ? IncidentBinaryCodec.MEDIA_TYPE : MediaType.APPLICATION_JSON);
+    response.getHeaders().setContentLength(body.length);
+    long formatted = System.nanoTime();
+    incidentMetrics.recordLatency(Phase.FORMAT, formatted - logged);
+    incidentMetrics.recordLatency(Phase.TOTAL, formatted - start);
+    return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+  }
+
+  /**
+   * The binary format is only written when the client names it, a wildcard gets JSON.
+   */
+  private static boolean acceptsBinary(ServerHttpRequest request) {
+    List<MediaType> accepted;
+    try {
+      accepted = request.getHeaders().getAccept();
+    } catch (InvalidMediaTypeException e) {
+      return false;
+    }
+    for (MediaType mediaType : accepted) {
+      if (mediaType.equalsTypeAndSubtype(IncidentBinaryCodec.MEDIA_TYPE)) {
+        return mediaType.getQualityValue() > 0;
+      }
+    }
+    return false;
+  }
+
+  private IncidentException createIncident(Throwable throwable, ServerHttpRequest request) {
+    if (throwable instanceof ResponseStatusException && ((ResponseStatusException) throwable)
+        .getStatusCode().value() == HttpStatus.NOT_FOUND.value()) {
+      String host = request.getHeaders().getFirst("Host");
+      return new IncidentException(SdipErrorCode.PAGE_NOT_FOUND, logger,
+          host + request.getURI().getRawPath(), host + "/sdcs/swagger-ui.html");
+    }
+    if (!(throwable instanceof Exception)) {
+      return new IncidentException(SdipErrorCode.UNKNOWN_REASON_ERROR, logger,
+          throwable.toString(), SdipErrorParameter.SUPPORTMAIL);
+    }
+    return incidentFactories.createIncident((Exception) throwable);
+  }
+
+  private IncidentException createInputException(ServerWebInputException exception) {
+    Throwable cause = exception.getMostSpecificCause();
+    if (cause instanceof JsonParseException) {
+      JsonParseException parseException = (JsonParseException) cause;
+      RequestPayload payload = parseException.getRequestPayload();
+      Object raw = payload == null ? null : payload.getRawPayload();
+      return new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON, logger,
+          RestExceptionHandler.describeParseError(parseException),
+          raw instanceof byte[] || raw instanceof CharSequence
+              ? new DeferredCapturedPayload(payloadCapturePolicy, payload) : null);
+    } else if (cause instanceof JsonMappingException) {
+      return new IncidentException(SdipErrorCode.JSON_MAPPING_EXCEPTION, logger,
+          cause.getMessage());
+    } else if (NO_REQUEST_BODY.equals(exception.getReason())) {
+      return new IncidentException(SdipErrorCode.NO_BODY, logger);
+    }
+    return new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON2, logger, exception.getReason());
+  }
+
+  private IncidentException createNotValidException(WebExchangeBindException exception) {
+    ViolationAggregator aggregator = new ViolationAggregator();
+    for (FieldError fieldError : exception.getFieldErrors()) {
+      aggregator.add(fieldError.getField(), fieldError.getDefaultMessage(),
+          fieldError.getRejectedValue());
+    }
+    return aggregator.toIncidentException(logger);
+  }
+
+  private IncidentException createConstraintViolationException(
+      ConstraintViolationException exception) {
+    ViolationAggregator aggregator = new ViolationAggregator();
+    for (ConstraintViolation<?> violation : exception.getConstraintViolations()) {
+      aggregator.add(violation.getPropertyPath() != null ? violation.getPropertyPath().toString()
+          : null, violation.getMessage(), violation.getInvalidValue());
+    }
+    return aggregator.toIncidentException(logger);
+  }
+
+  private IncidentException createFallbackIncidentException(Exception exception) {
+    return new IncidentException(SdipErrorCode.UNKNOWN_REASON_ERROR, logger,
+        exception.getMessage(), SdipErrorParameter.SUPPORTMAIL);
+  }
+}
@@ -0,0 +1,27 @@
+package com.scania.sdip.exceptions;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+/**
+ * Registers the {@link ReactiveExceptionHandler} in WebFlux applications, ahead of the default
+ * error handler of Spring Boot. Servlet applications use the {@link RestExceptionHandler}.
+ */
+@Configuration
+@ConditionalOnClass(name = "reactor.core.publisher.Mono")
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveExceptionHandlerConfig {
+
+  @Bean
+  @Order(-2)
+  public ReactiveExceptionHandler reactiveExceptionHandler(
+      ObjectProvider<ObjectMapper> objectMapper) {
+    return new ReactiveExceptionHandler(objectMapper.getIfAvailable(ObjectMapper::new));
+  }
+}
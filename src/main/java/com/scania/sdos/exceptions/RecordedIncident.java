@@ -0,0 +1,79 @@
+package com.scania.sdip.exceptions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The RecordedIncident class is the entry kept by the {@link IncidentFlightRecorder} for an
+ * incident: its error codes, when it happened, the request line, the execution id and the
+ * fingerprint of its exception.
+ */
+public final class RecordedIncident {
+  private final long sequence;
+  private final int[] sdipErrorCodes;
+  private final long timestamp;
+  private final String request;
+  private final String executionId;
+  private final String fingerprint;
+
+  RecordedIncident(long sequence, int[] sdipErrorCodes, long timestamp, String request,
+      String executionId, String fingerprint) {
+    this.sequence = sequence;
+    this.sdipErrorCodes = sdipErrorCodes;
+    this.timestamp = timestamp;
+    this.request = request;
+    this.executionId = executionId;
+    this.fingerprint = fingerprint;
+  }
+
+  long getSequence() {
+    return sequence;
+  }
+
+  /**
+   * Returns the error codes of the incident, e.g. SDIP_40012.
+   * @return the error codes.
+   */
+  public List<String> getSdipErrorCodes() {
+    List<String> codes = new ArrayList<>(sdipErrorCodes.length);
+    for (int code : sdipErrorCodes) {
+      codes.add(SdipErrorParameter.ERRORCODE_PREFIX + code);
+    }
+    return codes;
+  }
+
+  /**
+   * Returns whether the incident has an error code.
+   * @param sdipErrorCode the SDIP error code number.
+   * @return true if one of the error bindings of the incident has the code.
+   */
+  public boolean hasSdipErrorCode(int sdipErrorCode) {
+    for (int code : sdipErrorCodes) {
+      if (code == sdipErrorCode) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  public String getRequest() {
+    return request;
+  }
+
+  public String getExecutionId() {
+    return executionId;
+  }
+
+  /**
+   * Returns the fingerprint of the exception of the incident, see
+   * {@link StackTraceRenderCache#fingerprint(Throwable)}.
+   * @return the fingerprint, or null if the incident had no exception.
+   */
+  public String getFingerprint() {
+    return fingerprint;
+  }
+}
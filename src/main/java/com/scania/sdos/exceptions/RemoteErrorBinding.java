@@ -0,0 +1,48 @@
+package com.scania.sdip.exceptions;
+
+/**
+ * The RemoteErrorBinding class is an error binding imported from the {@link Incident} of another
+ * SDIP service by {@link IncidentImporter}. It binds a {@link RemoteErrorCode} to the message the
+ * remote service rendered, and keeps the id of the service and the execution id it logged the
+ * incident with, so the log entry of the importing service can refer to the remote one instead of
+ * repeating it.
+ */
+public class RemoteErrorBinding extends ErrorBinding {
+  private final String serviceId;
+  private final String executionId;
+
+  /**
+   * Constructs a new remote error binding.
+   * @param errorCode the error code of the remote incident.
+   * @param message the Http message the remote service returned for the error code.
+   * @param serviceId the id of the remote service, may be null.
+   * @param executionId the execution id of the remote incident, may be null.
+   */
+  public RemoteErrorBinding(RemoteErrorCode errorCode, String message, String serviceId,
+      String executionId) {
+    super(errorCode, message == null ? "" : message);
+    this.serviceId = serviceId;
+    this.executionId = executionId;
+  }
+
+  @Override
+  public RemoteErrorCode getErrorCode() {
+    return (RemoteErrorCode) super.getErrorCode();
+  }
+
+  /**
+   * Returns the Http message the remote service returned for the error code.
+   * @return the message.
+   */
+  public String getMessage() {
+    return (String) getArgs()[0];
+  }
+
+  public String getServiceId() {
+    return serviceId;
+  }
+
+  public String getExecutionId() {
+    return executionId;
+  }
+}
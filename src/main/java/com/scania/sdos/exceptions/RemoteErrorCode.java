@@ -0,0 +1,87 @@
+package com.scania.sdip.exceptions;
+
+/**
+ * The RemoteErrorCode class is an error code received from another SDIP service, for example in an
+ * {@link Incident} decoded by {@link IncidentBinaryCodec}. The receiving service may not know the
+ * code, so it only carries the numbers: its message is the message the remote service rendered,
+ * given as the single argument of an {@link ErrorBinding}.
+ */
+public final class RemoteErrorCode implements ErrorCode {
+
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The template of both messages, the remote message is the only argument.
+   */
+  static final String MESSAGE_TEMPLATE = "{0}";
+
+  private final int sdipErrorCode;
+  private final int httpErrorCode;
+
+  /**
+   * Constructs a new remote error code.
+   *
+   * @param sdipErrorCode the SDIP error code number.
+   * @param httpErrorCode the HTTP status of the error code.
+   */
+  public RemoteErrorCode(int sdipErrorCode, int httpErrorCode) {
+    this.sdipErrorCode = sdipErrorCode;
+    this.httpErrorCode = httpErrorCode;
+  }
+
+  @Override
+  public int getHttpErrorCode() {
+    return httpErrorCode;
+  }
+
+  @Override
+  public int getSdipErrorCode() {
+    return sdipErrorCode;
+  }
+
+  @Override
+  public String getLogMessage() {
+    return MESSAGE_TEMPLATE;
+  }
+
+  @Override
+  public String getHttpMessage() {
+    return MESSAGE_TEMPLATE;
+  }
+
+  @Override
+  public int getExitCode() {
+    return sdipErrorCode;
+  }
+
+  @Override
+  public void setHttpMessage(String httpMessage) {
+    throw new UnsupportedOperationException("The message of a remote error code is set by the"
+        + " remote service.");
+  }
+
+  @Override
+  public void setLogMessage(String logMessage) {
+    throw new UnsupportedOperationException("The message of a remote error code is set by the"
+        + " remote service.");
+  }
+
+  @Override
+  public boolean equals(Object other) {
+    if (!(other instanceof RemoteErrorCode)) {
+      return false;
+    }
+    RemoteErrorCode that = (RemoteErrorCode) other;
+    return sdipErrorCode == that.sdipErrorCode && httpErrorCode == that.httpErrorCode;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * sdipErrorCode + httpErrorCode;
+  }
+
+  @Override
+  public String toString() {
+    return SdipErrorParameter.ERRORCODE_PREFIX + sdipErrorCode;
+  }
+}
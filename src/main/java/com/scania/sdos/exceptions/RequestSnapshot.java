@@ -0,0 +1,183 @@
+package com.scania.sdip.exceptions;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * The RequestSnapshot class is an immutable copy of the parts of a request that an incident
+ * reports: method, URI, query string and the headers approved by the {@link HeaderPolicy}. It is
+ * taken when the request is set on an {@link IncidentException}, so nothing refers to the servlet
+ * request once it has been recycled, and only copies references to the strings the servlet
+ * container already holds. The request line is rendered the first time a sink or the response
+ * asks for it.
+ */
+public final class RequestSnapshot {
+
+  private static volatile HeaderPolicy headerPolicy = HeaderPolicy.DEFAULT;
+
+  private final String method;
+  private final String uri;
+  private final String queryString;
+  private final String acceptLanguage;
+  private final String[] headers;
+  private String requestLine;
+
+  private RequestSnapshot(String method, String uri, String queryString, String acceptLanguage,
+      String[] headers) {
+    this.method = method;
+    this.uri = uri;
+    this.queryString = queryString;
+    this.acceptLanguage = acceptLanguage;
+    this.headers = headers;
+  }
+
+  /**
+   * Takes a snapshot of a request.
+   * @param request the request, may be null.
+   * @return the snapshot, or null if the request was null.
+   */
+  public static RequestSnapshot capture(ServletWebRequest request) {
+    if (request == null) {
+      return null;
+    }
+    return new RequestSnapshot(request.getRequest().getMethod(),
+        request.getRequest().getRequestURI(), request.getRequest().getQueryString(),
+        request.getHeader(HttpHeaders.ACCEPT_LANGUAGE), copyHeaders(request));
+  }
+
+  /**
+   * Takes a snapshot of a reactive request.
+   * @param request the request, may be null.
+   * @return the snapshot, or null if the request was null.
+   */
+  public static RequestSnapshot capture(ServerHttpRequest request) {
+    if (request == null) {
+      return null;
+    }
+    HttpHeaders headers = request.getHeaders();
+    return new RequestSnapshot(request.getMethod().name(), request.getURI().getRawPath(),
+        request.getURI().getRawQuery(), headers.getFirst(HttpHeaders.ACCEPT_LANGUAGE),
+        copyHeaders(headers));
+  }
+
+  /**
+   * Replace the policy deciding which headers are captured from requests.
+   * @param policy the header policy, {@link HeaderPolicy#DEFAULT} by default.
+   */
+  public static void setHeaderPolicy(HeaderPolicy policy) {
+    headerPolicy = policy == null ? HeaderPolicy.DEFAULT : policy;
+  }
+
+  /**
+   * Returns the policy deciding which headers are captured from requests.
+   * @return the header policy.
+   */
+  public static HeaderPolicy getHeaderPolicy() {
+    return headerPolicy;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  public String getUri() {
+    return uri;
+  }
+
+  public String getQueryString() {
+    return queryString;
+  }
+
+  String getAcceptLanguage() {
+    return acceptLanguage;
+  }
+
+  String[] getHeaders() {
+    return headers;
+  }
+
+  /**
+   * Returns the request line, rendered on the first call.
+   * @return the request method, URI and query string.
+   */
+  public String getRequestLine() {
+    // Racy but benign: every thread renders the same immutable string.
+    String line = requestLine;
+    if (line == null) {
+      line = method + " " + uri + (queryString == null ? "" : queryString);
+      requestLine = line;
+    }
+    return line;
+  }
+
+  /**
+   * Returns the request line with the value of every query parameter masked, for copies of the
+   * incident that are kept in memory, served or journaled to disk, where a parameter such as a
+   * token must not end up.
+   * @return the request method, URI and query string with masked values.
+   */
+  public String getRedactedRequestLine() {
+    return method + " " + uri + (queryString == null ? "" : redactQuery(queryString));
+  }
+
+  /**
+   * Masks the values of a query string, the parameter names are kept.
+   */
+  static String redactQuery(String queryString) {
+    StringBuilder sb = new StringBuilder(queryString.length());
+    int start = 0;
+    while (start <= queryString.length()) {
+      int end = queryString.indexOf('&', start);
+      if (end < 0) {
+        end = queryString.length();
+      }
+      int equals = queryString.indexOf('=', start);
+      if (start > 0) {
+        sb.append('&');
+      }
+      if (equals >= 0 && equals < end) {
+        sb.append(queryString, start, equals + 1).append(HeaderPolicy.MASK);
+      } else {
+        sb.append(queryString, start, end);
+      }
+      start = end + 1;
+    }
+    return sb.toString();
+  }
+
+  private static String[] copyHeaders(ServletWebRequest request) {
+    HeaderPolicy policy = headerPolicy;
+    List<String> copied = new ArrayList<>();
+    Iterator<String> headerNames = request.getHeaderNames();
+    while (headerNames.hasNext()) {
+      String headerName = headerNames.next();
+      HeaderPolicy.Action action = policy.getAction(headerName);
+      if (action != HeaderPolicy.Action.DROP) {
+        String value = request.getHeader(headerName);
+        copied.add(headerName);
+        copied.add(action == HeaderPolicy.Action.MASK ? HeaderPolicy.mask(value) : value);
+      }
+    }
+    return copied.toArray(new String[0]);
+  }
+
+  private static String[] copyHeaders(HttpHeaders headers) {
+    HeaderPolicy policy = headerPolicy;
+    List<String> copied = new ArrayList<>();
+    for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+      HeaderPolicy.Action action = policy.getAction(header.getKey());
+      if (action != HeaderPolicy.Action.DROP) {
+        List<String> values = header.getValue();
+        String value = values.size() == 1 ? values.get(0) : String.join(",", values);
+        copied.add(header.getKey());
+        copied.add(action == HeaderPolicy.Action.MASK ? HeaderPolicy.mask(value) : value);
+      }
+    }
+    return copied.toArray(new String[0]);
+  }
+}
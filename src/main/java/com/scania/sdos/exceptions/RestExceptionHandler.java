@@ -1,9 +1,11 @@
 package com.scania.sdip.exceptions;
 
+import com.fasterxml.jackson.core.JsonLocation;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.scania.sdip.exceptions.IncidentMetrics.Phase;
 import java.util.List;
-import java.util.Set;
+import java.util.function.Function;
 
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
@@ -12,7 +14,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
-import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
@@ -28,6 +29,53 @@ import org.springframework.web.servlet.NoHandlerFoundException;
 @RestControllerAdvice
 public class RestExceptionHandler {
   private static final Logger logger = LoggerFactory.getLogger(RestExceptionHandler.class);
+  private final IncidentFactoryRegistry incidentFactories = new IncidentFactoryRegistry();
+  private final IncidentMetrics incidentMetrics = IncidentMetrics.getInstance();
+  private volatile PayloadCapturePolicy payloadCapturePolicy = PayloadCapturePolicy.DEFAULT;
+
+  /**
+   * Constructs a new exception handler with the incident factories for the exceptions thrown by
+   * Spring MVC. Any other exception becomes an {@link SdipErrorCode#UNKNOWN_REASON_ERROR}.
+   */
+  public RestExceptionHandler() {
+    incidentFactories.register(Exception.class,
+        this::createFallbackIncidentExceptionFromOtherException);
+    incidentFactories.register(IncidentException.class, incidentException -> incidentException);
+    incidentFactories.register(HttpMessageNotReadableException.class,
+        this::createNotReadableException);
+    incidentFactories.register(NoHandlerFoundException.class, this::createNotFoundException);
+    incidentFactories.register(HttpMediaTypeNotSupportedException.class,
+        this::createMediaTypeNotSupportedException);
+    incidentFactories.register(HttpMediaTypeNotAcceptableException.class,
+        this::createNotAcceptableException);
+    incidentFactories.register(MethodArgumentNotValidException.class,
+        this::createNotValidException);
+    incidentFactories.register(ConstraintViolationException.class,
+        this::createNotValidException1);
+  }
+
+  /**
+   * Registers how exceptions of a type, and of its subclasses without a closer registration, are
+   * turned into an incident. Services use this for their own exception types instead of having
+   * them reported as {@link SdipErrorCode#UNKNOWN_REASON_ERROR}.
+   *
+   * @param type    the exception type.
+   * @param factory creates the incident exception for an exception of the type.
+   * @param <T>     the exception type.
+   */
+  public <T extends Exception> void registerIncidentFactory(Class<T> type,
+      Function<? super T, IncidentException> factory) {
+    incidentFactories.register(type, factory);
+  }
+
+  /**
+   * Sets how much of the request payload is kept when a request body is not valid JSON.
+   *
+   * @param payloadCapturePolicy the policy, {@link PayloadCapturePolicy#DEFAULT} keeps 4 KiB.
+   */
+  public void setPayloadCapturePolicy(PayloadCapturePolicy payloadCapturePolicy) {
+    this.payloadCapturePolicy = payloadCapturePolicy;
+  }
 
   /**
    * Handles the exception by printing it to the log and returning its HTTP error response.
@@ -37,6 +85,7 @@ public class RestExceptionHandler {
    */
   @ExceptionHandler(Exception.class)
   public ResponseEntity<Incident> handleAllExceptions(Exception exception, WebRequest request) {
+    long start = System.nanoTime();
     ServletWebRequest servletWebRequest;
 
     if (!(request instanceof ServletWebRequest)) {
@@ -45,101 +94,54 @@ public class RestExceptionHandler {
       servletWebRequest = (ServletWebRequest) request;
     }
     ResponseEntity<Incident> responseEntity = getException(exception, servletWebRequest) ;
+    incidentMetrics.recordLatency(Phase.TOTAL, System.nanoTime() - start);
     return responseEntity;
   }
 
   private ResponseEntity<Incident> getException(Exception exception, ServletWebRequest servletWebRequest){
-    ResponseEntity<Incident> responseEntityException = null ;
-    if (exception instanceof IncidentException) {
-      responseEntityException = handleIncidentException((IncidentException) exception, servletWebRequest);
-    } else if (exception instanceof HttpMessageNotReadableException) {
-      if (exception.getCause() instanceof JsonParseException) {
-        responseEntityException = handleIncidentException(
-                createJsonException((JsonParseException) exception.getCause()), servletWebRequest);
-      } else if (exception.getCause() instanceof JsonMappingException) {
-        responseEntityException = handleIncidentException(
-                createJsonMappingException((Exception) exception.getCause()), servletWebRequest);
-      } else if (exception.getMessage().toLowerCase()
-              .startsWith("required request body is missing")) {
-        responseEntityException = handleIncidentException(
-                createBodyEmptyException(),
-                servletWebRequest);
-      } else if (exception.getMessage().toLowerCase()
-              .startsWith("json parse error:")) {
-        responseEntityException = handleIncidentException(
-                createHttpNotReadableException((Exception) exception.getCause()), servletWebRequest);
-      } else {
-        responseEntityException = handleIncidentException(createFallbackIncidentExceptionFromOtherException(exception),
-                servletWebRequest);
-      }
-    } else if (exception instanceof NoHandlerFoundException) {
-      responseEntityException = handleIncidentException(createNotFoundException((NoHandlerFoundException) exception),
-              servletWebRequest);
-    } else if (exception instanceof HttpMediaTypeNotSupportedException) {
-      responseEntityException = handleIncidentException(
-              createMediaTypeNotSupportedException((HttpMediaTypeNotSupportedException) exception),
-              servletWebRequest);
-    } else if (exception instanceof HttpMediaTypeNotAcceptableException) {
-      responseEntityException = handleIncidentException(
-              createNotAcceptableException((HttpMediaTypeNotAcceptableException) exception),
-              servletWebRequest);
-    } else if (exception instanceof MethodArgumentNotValidException) {
-      responseEntityException = handleIncidentException(
-              createNotValidException((MethodArgumentNotValidException) exception), servletWebRequest);
-    } else if (exception instanceof ConstraintViolationException) {
-      responseEntityException = handleIncidentException(createNotValidException1((ConstraintViolationException) exception), servletWebRequest);
-    } else {
-      responseEntityException = handleIncidentException(createFallbackIncidentExceptionFromOtherException(exception),
-              servletWebRequest);
+    long start = System.nanoTime();
+    IncidentException incidentException = incidentFactories.createIncident(exception);
+    incidentMetrics.recordLatency(Phase.CREATE, System.nanoTime() - start);
+    return handleIncidentException(incidentException, servletWebRequest);
+  }
+
+  private IncidentException createNotReadableException(HttpMessageNotReadableException exception) {
+    if (exception.getCause() instanceof JsonParseException) {
+      return createJsonException((JsonParseException) exception.getCause());
+    } else if (exception.getCause() instanceof JsonMappingException) {
+      return createJsonMappingException((Exception) exception.getCause());
+    } else if (startsWithIgnoreCase(exception.getMessage(), "required request body is missing")) {
+      return createBodyEmptyException();
+    } else if (startsWithIgnoreCase(exception.getMessage(), "json parse error:")) {
+      return createHttpNotReadableException((Exception) exception.getCause());
     }
+    return createFallbackIncidentExceptionFromOtherException(exception);
+  }
 
-    return responseEntityException;
+  private static boolean startsWithIgnoreCase(String message, String prefix) {
+    return message != null && message.regionMatches(true, 0, prefix, 0, prefix.length());
   }
+
   private IncidentException createBodyEmptyException() {
     return new IncidentException(SdipErrorCode.NO_BODY, logger);
   }
 
   private IncidentException createNotValidException(MethodArgumentNotValidException exception) {
-    BindingResult bindingResult = exception.getBindingResult();
-
-    List<FieldError> fieldErrors = bindingResult.getFieldErrors();
-    StringBuilder httpMessageArgument = new StringBuilder("'");
-    StringBuilder logMessageArgument = new StringBuilder("'");
-
-    for (FieldError fieldError : fieldErrors) {
-      httpMessageArgument.append(fieldError.getField());
-      httpMessageArgument.append("', '");
-
-      logMessageArgument
-              .append(fieldError.getField() + "' had value '" + fieldError.getRejectedValue() + "', '");
+    ViolationAggregator aggregator = new ViolationAggregator();
+    for (FieldError fieldError : exception.getBindingResult().getFieldErrors()) {
+      aggregator.add(fieldError.getField(), fieldError.getDefaultMessage(),
+          fieldError.getRejectedValue());
     }
-
-    httpMessageArgument.delete(httpMessageArgument.length() - 4, httpMessageArgument.length());
-    logMessageArgument.delete(logMessageArgument.length() - 4, logMessageArgument.length());
-
-    return new IncidentException(SdipErrorCode.INVALID_FIELD, logger,
-            httpMessageArgument.toString(), logMessageArgument.toString());
+    return aggregator.toIncidentException(logger);
   }
 
   private IncidentException createNotValidException1(ConstraintViolationException exception) {
-    Set<ConstraintViolation<?>> result = exception.getConstraintViolations();
-
-    StringBuilder httpMessageArgument = new StringBuilder("'");
-    StringBuilder logMessageArgument = new StringBuilder("'");
-
-    for (ConstraintViolation violation : result) {
-      httpMessageArgument.append(violation.getMessage());
-      httpMessageArgument.append("', '");
-
-      logMessageArgument
-              .append(violation.getMessage() + "' had value '" + violation.getInvalidValue() + "', '");
+    ViolationAggregator aggregator = new ViolationAggregator();
+    for (ConstraintViolation<?> violation : exception.getConstraintViolations()) {
+      aggregator.add(violation.getPropertyPath() != null ? violation.getPropertyPath().toString()
+          : null, violation.getMessage(), violation.getInvalidValue());
     }
-
-    httpMessageArgument.delete(httpMessageArgument.length() - 4, httpMessageArgument.length());
-    logMessageArgument.delete(logMessageArgument.length() - 4, logMessageArgument.length());
-
-    return new IncidentException(SdipErrorCode.INVALID_FIELD, logger,
-            httpMessageArgument.toString(), logMessageArgument.toString());
+    return aggregator.toIncidentException(logger);
   }
 
   private IncidentException createMediaTypeNotSupportedException(
@@ -148,7 +150,7 @@ public class RestExceptionHandler {
             buildSupportedMediaTypesString(exception.getSupportedMediaTypes()));
   }
 
-  private StringBuilder buildSupportedMediaTypesString(List<MediaType> mediaTypes) {
+  static StringBuilder buildSupportedMediaTypesString(List<MediaType> mediaTypes) {
     StringBuilder supportedMediaTypes = new StringBuilder("[");
 
     for (MediaType mediaType : mediaTypes) {
@@ -181,8 +183,19 @@ public class RestExceptionHandler {
   }
 
   private IncidentException createJsonException(JsonParseException cause) {
-    return new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON, logger, cause.getMessage(),
-            cause.getRequestPayloadAsString());
+    return new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON, logger,
+            describeParseError(cause), payloadCapturePolicy.capture(cause.getRequestPayload()));
+  }
+
+  /**
+   * The message of a {@link JsonParseException} includes the whole request payload, so only the
+   * original message and the location are used.
+   */
+  static String describeParseError(JsonParseException cause) {
+    JsonLocation location = cause.getLocation();
+    return location == null ? cause.getOriginalMessage()
+        : cause.getOriginalMessage() + " at line " + location.getLineNr() + ", column "
+            + location.getColumnNr();
   }
 
   private IncidentException createJsonMappingException(Exception cause) {
@@ -197,7 +210,13 @@ public class RestExceptionHandler {
   private ResponseEntity<Incident> handleIncidentException(IncidentException e,
                                                            ServletWebRequest request) {
     e.setRequestUsed(request);
+    IncidentFlightRecorder.getInstance().record(e);
+    long start = System.nanoTime();
     e.printToLog();
-    return e.createHttpErrorResponse();
+    long logged = System.nanoTime();
+    incidentMetrics.recordLatency(Phase.LOG, logged - start);
+    ResponseEntity<Incident> responseEntity = e.createHttpErrorResponse();
+    incidentMetrics.recordLatency(Phase.FORMAT, System.nanoTime() - logged);
+    return responseEntity;
   }
 }
@@ -301,6 +301,9 @@ public enum SdipErrorCode implements ErrorCode {
   UNKNOWN_PARSING_ERROR(500, 50013,
       "An unknown Error occured while parsing JSONArray into Model object with the following error message: {0} ",
       "An unknown Error occured while parsing JSONArray into Model object with the following error message: {0} "),
+  ASYNC_TASK_FAILED(500, 50014,
+      "An asynchronous task failed for an unknown reason, contact support on mail {2} if the issue persists.",
+      "The asynchronous task {0} failed, it was called with parameters {1}. See stacktrace for more information."),
 
   // 503
   RDFSTORE_UNREACHEBLE(503, 5031,
@@ -335,8 +338,8 @@ public enum SdipErrorCode implements ErrorCode {
 
   private final int httpStatus;
   private final int sdipCode;
-  private String logMessage;
-  private String httpMessage;
+  private final String logMessage;
+  private final String httpMessage;
 
   private SdipErrorCode(int httpStatus, int sdipCode, String httpMessage, String logMessage) {
     this.httpStatus = httpStatus;
@@ -364,11 +367,21 @@ public enum SdipErrorCode implements ErrorCode {
 
   @Override
   public String getLogMessage() {
-    return logMessage;
+    String override = MessageCatalog.getInstance().getLogMessage(this);
+    return override == null ? logMessage : override;
   }
 
   @Override
   public String getHttpMessage() {
+    String override = MessageCatalog.getInstance().getHttpMessage(this);
+    return override == null ? httpMessage : override;
+  }
+
+  String getDefaultLogMessage() {
+    return logMessage;
+  }
+
+  String getDefaultHttpMessage() {
     return httpMessage;
   }
 
@@ -379,11 +392,11 @@ public enum SdipErrorCode implements ErrorCode {
 
   @Override
   public void setHttpMessage(String message) {
-    httpMessage = message;
+    MessageCatalog.getInstance().setHttpMessage(this, message);
   }
 
   @Override
   public void setLogMessage(String message) {
-    logMessage = message;
+    MessageCatalog.getInstance().setLogMessage(this, message);
   }
 }
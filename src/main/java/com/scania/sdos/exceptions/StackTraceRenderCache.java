@@ -0,0 +1,159 @@
+package com.scania.sdip.exceptions;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The StackTraceRenderCache class renders stack traces for the incident log and remembers the
+ * traces it has rendered by fingerprint. A fingerprint is computed from the class and the
+ * {@link StackTraceElement}s of a throwable and of its causes and suppressed exceptions, so it is
+ * the same for every throw from the same place. The first time a fingerprint is seen the full trace
+ * is rendered, later the throwable is only rendered as a one line reference to the fingerprint. The
+ * full trace can be recovered with {@link #lookup(String)} as long as it has not been evicted, a
+ * trace that was evicted is rendered in full again the next time it occurs.
+ *
+ * <p>Rendering by reference is off by default, every trace is then rendered in full as before. It
+ * is turned on with {@link #setReferencesEnabled(boolean)}, or in Spring applications with the
+ * property {@code sdip.incidents.stack-trace-references=true}.
+ */
+public final class StackTraceRenderCache {
+
+  private static final int DEFAULT_MAX_ENTRIES = 1024;
+  private static final StackTraceRenderCache instance =
+      new StackTraceRenderCache(DEFAULT_MAX_ENTRIES);
+
+  private final Map<String, String> renderedTraces;
+  private volatile boolean referencesEnabled;
+
+  /**
+   * Constructs a new cache.
+   * @param maxEntries the maximum number of rendered traces kept, the least recently used trace is
+   *                   evicted when it is exceeded.
+   */
+  public StackTraceRenderCache(int maxEntries) {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException(
+          "The cache must hold at least one trace, max entries was " + maxEntries + ".");
+    }
+    renderedTraces = new LinkedHashMap<String, String>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+        return size() > maxEntries;
+      }
+    };
+  }
+
+  /**
+   * Returns the cache used when incidents are logged.
+   * @return the stack trace render cache.
+   */
+  public static StackTraceRenderCache getInstance() {
+    return instance;
+  }
+
+  /**
+   * Turns rendering repeated traces by reference on or off.
+   * @param referencesEnabled true to render a repeated trace as a reference to its fingerprint,
+   *                          false to render every trace in full.
+   */
+  public void setReferencesEnabled(boolean referencesEnabled) {
+    this.referencesEnabled = referencesEnabled;
+  }
+
+  /**
+   * Returns if repeated traces are rendered by reference.
+   * @return true if repeated traces are rendered as a reference to their fingerprint.
+   */
+  public boolean isReferencesEnabled() {
+    return referencesEnabled;
+  }
+
+  /**
+   * Renders a throwable for the log. When references are enabled it is rendered in full the first
+   * time its fingerprint is seen and as a reference to the fingerprint after that, otherwise it is
+   * always rendered in full.
+   *
+   * @param throwable the throwable to render.
+   * @return the rendered throwable, ending with a line separator.
+   */
+  public String render(Throwable throwable) {
+    if (!referencesEnabled) {
+      StringWriter trace = new StringWriter();
+      throwable.printStackTrace(new PrintWriter(trace));
+      return trace.toString();
+    }
+    String fingerprint = fingerprint(throwable);
+    synchronized (renderedTraces) {
+      if (renderedTraces.get(fingerprint) != null) {
+        return throwable + " [stack trace " + fingerprint + " logged before]"
+            + System.lineSeparator();
+      }
+    }
+    StringWriter trace = new StringWriter();
+    trace.append("[stack trace ").append(fingerprint).append("] ");
+    throwable.printStackTrace(new PrintWriter(trace));
+    String rendered = trace.toString();
+    synchronized (renderedTraces) {
+      renderedTraces.put(fingerprint, rendered);
+    }
+    return rendered;
+  }
+
+  /**
+   * Returns the full trace that was rendered for a fingerprint.
+   *
+   * @param fingerprint the fingerprint, as printed in the log.
+   * @return the full trace, or null if the fingerprint is unknown or has been evicted.
+   */
+  public String lookup(String fingerprint) {
+    synchronized (renderedTraces) {
+      return renderedTraces.get(fingerprint);
+    }
+  }
+
+  /**
+   * Removes all rendered traces, every trace is rendered in full the next time it occurs.
+   */
+  public void clear() {
+    synchronized (renderedTraces) {
+      renderedTraces.clear();
+    }
+  }
+
+  /**
+   * Computes the fingerprint of a throwable from its class and stack frames, and those of its
+   * causes and suppressed exceptions. Messages are not part of the fingerprint.
+   *
+   * @param throwable the throwable.
+   * @return the fingerprint as 16 hexadecimal digits.
+   */
+  public static String fingerprint(Throwable throwable) {
+    long hash = hash(throwable, 0xcbf29ce484222325L,
+        Collections.newSetFromMap(new IdentityHashMap<>()));
+    String hex = Long.toHexString(hash);
+    return "0000000000000000".substring(hex.length()) + hex;
+  }
+
+  private static long hash(Throwable throwable, long hash, Set<Throwable> visited) {
+    if (throwable == null || !visited.add(throwable)) {
+      return mix(hash, 0);
+    }
+    hash = mix(hash, throwable.getClass().getName().hashCode());
+    for (StackTraceElement element : throwable.getStackTrace()) {
+      hash = mix(hash, element.hashCode());
+    }
+    for (Throwable suppressed : throwable.getSuppressed()) {
+      hash = hash(suppressed, mix(hash, 's'), visited);
+    }
+    return hash(throwable.getCause(), mix(hash, 'c'), visited);
+  }
+
+  private static long mix(long hash, int value) {
+    return (hash ^ value) * 0x100000001b3L;
+  }
+}
@@ -0,0 +1,21 @@
+package com.scania.sdip.exceptions;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Turns on rendering repeated stack traces by reference in the incident log when the property
+ * {@code sdip.incidents.stack-trace-references} is true. Without it every trace is logged in full.
+ */
+@Configuration
+@ConditionalOnProperty(name = "sdip.incidents.stack-trace-references", havingValue = "true")
+public class StackTraceRenderConfig {
+
+  @Bean
+  public StackTraceRenderCache stackTraceRenderCache() {
+    StackTraceRenderCache cache = StackTraceRenderCache.getInstance();
+    cache.setReferencesEnabled(true);
+    return cache;
+  }
+}
@@ -0,0 +1,42 @@
+package com.scania.sdip.exceptions;
+
+/**
+ * UTF-8 length calculations on char sequences, without encoding them.
+ */
+final class Utf8 {
+
+  private Utf8() {
+  }
+
+  /**
+   * Returns the number of bytes of a char sequence encoded as UTF-8.
+   */
+  static long length(CharSequence chars) {
+    long length = 0;
+    for (int i = 0; i < chars.length(); i++) {
+      length += length(chars, i);
+      if (Character.isHighSurrogate(chars.charAt(i)) && i + 1 < chars.length()
+          && Character.isLowSurrogate(chars.charAt(i + 1))) {
+        ++i;
+      }
+    }
+    return length;
+  }
+
+  /**
+   * Returns the number of bytes of the character at an index encoded as UTF-8, 4 for a
+   * surrogate pair starting at the index.
+   */
+  static int length(CharSequence chars, int index) {
+    char c = chars.charAt(index);
+    if (c < 0x80) {
+      return 1;
+    } else if (c < 0x800) {
+      return 2;
+    } else if (Character.isHighSurrogate(c) && index + 1 < chars.length()
+        && Character.isLowSurrogate(chars.charAt(index + 1))) {
+      return 4;
+    }
+    return 3;
+  }
+}
@@ -0,0 +1,40 @@
+package com.scania.sdip.exceptions;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * The Violation class is a validation failure returned to the user in an {@link Incident}: the
+ * field that failed, the validation message and how many times the same failure occurred.
+ */
+public class Violation {
+  private final String field;
+  private final String message;
+  private final int count;
+
+  /**
+   * Constructs a new violation.
+   * @param field the field that failed validation, may be null.
+   * @param message the validation message.
+   * @param count the number of times the same field failed with the same message.
+   */
+  @JsonCreator
+  public Violation(@JsonProperty("field") String field, @JsonProperty("message") String message,
+      @JsonProperty("count") int count) {
+    this.field = field;
+    this.message = message;
+    this.count = count;
+  }
+
+  public String getField() {
+    return field;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public int getCount() {
+    return count;
+  }
+}
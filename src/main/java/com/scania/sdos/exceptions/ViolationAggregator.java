@@ -0,0 +1,221 @@
+package com.scania.sdip.exceptions;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.slf4j.Logger;
+
+/**
+ * The ViolationAggregator class collects the validation failures of a request into a bounded
+ * summary. Identical failures, the same field with the same message, are grouped and counted. List
+ * indexes are left out when comparing fields, so rows[0].name and rows[1].name are the same field,
+ * and the first field of a group is kept as its example. Only
+ * the first distinct failures are listed and the rendered text is cut at a character budget, but
+ * the total always counts every failure. A request with thousands of invalid rows therefore gives
+ * an incident of bounded size.
+ */
+public class ViolationAggregator {
+
+  /**
+   * The default number of distinct failures listed.
+   */
+  public static final int DEFAULT_MAX_LISTED = 20;
+
+  /**
+   * The default budget of the rendered texts, in characters.
+   */
+  public static final int DEFAULT_MAX_RENDERED_CHARS = 2000;
+
+  private static final int MAX_VALUE_CHARS = 100;
+
+  private final int maxListed;
+  private final int maxRenderedChars;
+  private final Map<Key, Group> groups = new LinkedHashMap<>();
+  private int total;
+
+  /**
+   * Constructs a new aggregator with the default limits.
+   */
+  public ViolationAggregator() {
+    this(DEFAULT_MAX_LISTED, DEFAULT_MAX_RENDERED_CHARS);
+  }
+
+  /**
+   * Constructs a new aggregator.
+   *
+   * @param maxListed        the number of distinct failures listed.
+   * @param maxRenderedChars the budget of each rendered text, in characters.
+   */
+  public ViolationAggregator(int maxListed, int maxRenderedChars) {
+    if (maxListed < 1 || maxRenderedChars < 1) {
+      throw new IllegalArgumentException("The limits must be positive, max listed was "
+          + maxListed + " and max rendered chars was " + maxRenderedChars + ".");
+    }
+    this.maxListed = maxListed;
+    this.maxRenderedChars = maxRenderedChars;
+  }
+
+  /**
+   * Adds a validation failure.
+   *
+   * @param field         the field that failed, may be null.
+   * @param message       the validation message.
+   * @param rejectedValue the value that failed, only the first value of a group is kept.
+   */
+  public void add(String field, String message, Object rejectedValue) {
+    ++total;
+    Key key = new Key(withoutIndexes(field), message);
+    Group group = groups.get(key);
+    if (group != null) {
+      ++group.count;
+    } else if (groups.size() < maxListed) {
+      groups.put(key, new Group(field, message, abbreviate(String.valueOf(rejectedValue))));
+    }
+  }
+
+  /**
+   * Returns the number of failures added, listed or not.
+   * @return the total number of failures.
+   */
+  public int getTotal() {
+    return total;
+  }
+
+  /**
+   * Returns the listed failures, identical failures grouped.
+   * @return the failures in the order they were first added.
+   */
+  public List<Violation> getViolations() {
+    List<Violation> violations = new ArrayList<>(groups.size());
+    for (Group group : groups.values()) {
+      violations.add(new Violation(group.field, group.message, group.count));
+    }
+    return violations;
+  }
+
+  /**
+   * Renders the failing fields for the Http message, e.g. 'name', 'id' (x3) and 12 more. A
+   * failure without a field is rendered by its message.
+   * @return the rendered fields.
+   */
+  public String renderFields() {
+    return render(false);
+  }
+
+  /**
+   * Renders the failing fields with their values for the Log message, e.g. 'name' had value ''.
+   * @return the rendered failures.
+   */
+  public String renderDetails() {
+    return render(true);
+  }
+
+  /**
+   * Creates the {@link SdipErrorCode#INVALID_FIELD} incident for the failures, with the rendered
+   * fields as arguments and the grouped failures as its violations.
+   * @param logger a SLF4J logger.
+   * @return the incident exception.
+   */
+  public IncidentException toIncidentException(Logger logger) {
+    IncidentException incidentException = new IncidentException(SdipErrorCode.INVALID_FIELD,
+        logger, renderFields(), renderDetails() + " (" + total + " violations in total)");
+    incidentException.setViolations(getViolations());
+    return incidentException;
+  }
+
+  private String render(boolean withValues) {
+    StringBuilder sb = new StringBuilder();
+    int rendered = 0;
+    for (Group group : groups.values()) {
+      int length = sb.length();
+      if (length > 0) {
+        sb.append(", ");
+      }
+      sb.append('\'').append(group.field != null ? group.field : group.message).append('\'');
+      if (withValues) {
+        sb.append(" had value '").append(group.rejectedValue).append('\'');
+      }
+      if (group.count > 1) {
+        sb.append(" (x").append(group.count).append(')');
+      }
+      if (sb.length() > maxRenderedChars && rendered > 0) {
+        sb.setLength(length);
+        break;
+      }
+      rendered += group.count;
+    }
+    if (rendered < total) {
+      sb.append(" and ").append(total - rendered).append(" more");
+    }
+    return sb.toString();
+  }
+
+  /**
+   * Replaces the list indexes of a property path with [], e.g. rows[12].name with rows[].name.
+   */
+  private static String withoutIndexes(String field) {
+    if (field == null || field.indexOf('[') < 0) {
+      return field;
+    }
+    StringBuilder sb = new StringBuilder(field.length());
+    int i = 0;
+    while (i < field.length()) {
+      char c = field.charAt(i++);
+      sb.append(c);
+      if (c == '[') {
+        int end = i;
+        while (end < field.length() && Character.isDigit(field.charAt(end))) {
+          ++end;
+        }
+        if (end > i && end < field.length() && field.charAt(end) == ']') {
+          i = end;
+        }
+      }
+    }
+    return sb.toString();
+  }
+
+  private static String abbreviate(String value) {
+    return value.length() <= MAX_VALUE_CHARS ? value
+        : value.substring(0, MAX_VALUE_CHARS) + "... (" + value.length() + " chars)";
+  }
+
+  private static final class Key {
+    private final String field;
+    private final String message;
+
+    private Key(String field, String message) {
+      this.field = field;
+      this.message = message;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+      if (!(other instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) other;
+      return Objects.equals(field, that.field) && Objects.equals(message, that.message);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(field, message);
+    }
+  }
+
+  private static final class Group {
+    private final String field;
+    private final String message;
+    private final String rejectedValue;
+    private int count = 1;
+
+    private Group(String field, String message, String rejectedValue) {
+      this.field = field;
+      this.message = message;
+      this.rejectedValue = rejectedValue;
+    }
+  }
+}
@@ -0,0 +1,134 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.scania.sdip.exceptions.AsyncConfig;
+import com.scania.sdip.exceptions.AsyncExceptionHandler;
+import com.scania.sdip.exceptions.ErrorBinding;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.IncidentSnapshot;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.logging.log4j.LogManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.mock.env.MockEnvironment;
+
+public class AsyncExceptionHandlerTest {
+
+  private final List<IncidentSnapshot> logged = new ArrayList<>();
+
+  @AfterEach
+  public void restoreSink() {
+    IncidentException.setIncidentSink(null);
+  }
+
+  @Test
+  public void otherExceptionsAreWrappedWithMethodAndParams() throws Exception {
+    IncidentException.setIncidentSink(logged::add);
+    Method method = AsyncExceptionHandlerTest.class.getDeclaredMethod("asyncWork", String.class);
+    IllegalStateException failure = new IllegalStateException("boom");
+
+    new AsyncExceptionHandler().handleUncaughtException(failure, method, "line1\nline2");
+
+    assertEquals(1, logged.size());
+    ErrorBinding errorBinding = logged.get(0).getErrorBindings().get(0);
+    assertSame(SdipErrorCode.ASYNC_TASK_FAILED, errorBinding.getErrorCode());
+    assertEquals("AsyncExceptionHandlerTest.asyncWork", errorBinding.getArgs()[0]);
+    assertEquals("[line1 line2]", errorBinding.getArgs()[1]);
+    assertSame(failure, errorBinding.getArgs()[3]);
+  }
+
+  @Test
+  public void incidentExceptionsAreLoggedAsIs() throws Exception {
+    IncidentException.setIncidentSink(logged::add);
+    Method method = AsyncExceptionHandlerTest.class.getDeclaredMethod("asyncWork", String.class);
+    IncidentException incidentException = new IncidentException(SdipErrorCode.NO_BODY,
+        LogManager.getLogger(getClass()));
+
+    new AsyncExceptionHandler().handleUncaughtException(incidentException, method, "a");
+
+    assertSame(SdipErrorCode.NO_BODY,
+        logged.get(0).getErrorBindings().get(0).getErrorCode());
+  }
+
+  @Test
+  public void errorsAreWrappedToo() throws Exception {
+    IncidentException.setIncidentSink(logged::add);
+    Method method = AsyncExceptionHandlerTest.class.getDeclaredMethod("asyncWork", String.class);
+
+    new AsyncExceptionHandler().handleUncaughtException(new StackOverflowError(), method,
+        (Object[]) null);
+
+    Object[] args = logged.get(0).getErrorBindings().get(0).getArgs();
+    assertEquals("[]", args[1]);
+    assertTrue(((Throwable) args[3]).getCause() instanceof StackOverflowError);
+  }
+
+  @Test
+  public void boundedExecutorLimitsConcurrency() throws Exception {
+    SimpleAsyncTaskExecutor executor = AsyncConfig.createBoundedExecutor(2);
+    AtomicInteger running = new AtomicInteger();
+    AtomicInteger maxRunning = new AtomicInteger();
+    CountDownLatch done = new CountDownLatch(6);
+    for (int i = 0; i < 6; i++) {
+      executor.execute(() -> {
+        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+        sleepQuietly();
+        running.decrementAndGet();
+        done.countDown();
+      });
+    }
+
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertTrue(maxRunning.get() <= 2, "" + maxRunning.get());
+    assertThrows(IllegalArgumentException.class, () -> AsyncConfig.createBoundedExecutor(0));
+  }
+
+  @Test
+  public void boundedExecutorIsTheAsyncExecutorBean() {
+    try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+      context.setEnvironment(new MockEnvironment().withProperty("sdip.async.executor", "bounded"));
+      context.register(AsyncConfig.class, AsyncExceptionHandler.class);
+      context.refresh();
+
+      SimpleAsyncTaskExecutor executor = context.getBean("sdipAsyncExecutor",
+          SimpleAsyncTaskExecutor.class);
+      assertSame(executor, context.getBean(AsyncConfig.class).getAsyncExecutor());
+      assertEquals(AsyncConfig.DEFAULT_CONCURRENCY_LIMIT, executor.getConcurrencyLimit());
+    }
+  }
+
+  @Test
+  public void executorIsLeftToSpringByDefault() {
+    try (AnnotationConfigApplicationContext context =
+        new AnnotationConfigApplicationContext(AsyncConfig.class, AsyncExceptionHandler.class)) {
+      assertFalse(context.containsBean("sdipAsyncExecutor"));
+      assertNull(context.getBean(AsyncConfig.class).getAsyncExecutor());
+    }
+  }
+
+  private static void sleepQuietly() {
+    try {
+      Thread.sleep(20);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @SuppressWarnings("unused")
+  private void asyncWork(String value) {
+  }
+}
@@ -0,0 +1,175 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import com.scania.sdip.exceptions.AsyncIncidentSink;
+import com.scania.sdip.exceptions.AsyncIncidentSink.OverflowPolicy;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.IncidentSnapshot;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+
+public class AsyncIncidentSinkTest {
+
+  @Test
+  public void incidentIsWrittenByDrainThread() {
+    Logger logger = mock(Logger.class);
+    try (AsyncIncidentSink sink = new AsyncIncidentSink(16, OverflowPolicy.BLOCK, 4)) {
+      IncidentException.setIncidentSink(sink);
+      new IncidentException(SdipErrorCode.NO_BODY, logger).printToLog();
+      verify(logger, timeout(5000)).error(ArgumentMatchers.contains("SDIP_40026"));
+    } finally {
+      IncidentException.setIncidentSink(null);
+    }
+  }
+
+  @Test
+  public void dropNewestKeepsQueuedIncidentsAndCountsDropped() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    List<IncidentSnapshot> written = new CopyOnWriteArrayList<>();
+    Logger logger = mock(Logger.class);
+    IncidentSnapshot first = new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot();
+    IncidentSnapshot blocked = new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot();
+    IncidentSnapshot dropped = new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot();
+
+    AsyncIncidentSink sink = new AsyncIncidentSink(1, OverflowPolicy.DROP_NEWEST, 1, snapshot -> {
+      awaitQuietly(release);
+      written.add(snapshot);
+    });
+    sink.accept(first);
+    waitUntilEmpty(sink);
+    sink.accept(blocked);
+    sink.accept(dropped);
+    release.countDown();
+    sink.close();
+
+    assertEquals(1, sink.getDroppedCount());
+    assertEquals(List.of(first, blocked), written);
+  }
+
+  @Test
+  public void dropOldestReplacesQueuedIncident() throws InterruptedException {
+    CountDownLatch release = new CountDownLatch(1);
+    List<IncidentSnapshot> written = new CopyOnWriteArrayList<>();
+    Logger logger = mock(Logger.class);
+    IncidentSnapshot first = new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot();
+    IncidentSnapshot replaced = new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot();
+    IncidentSnapshot newest = new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot();
+
+    AsyncIncidentSink sink = new AsyncIncidentSink(1, OverflowPolicy.DROP_OLDEST, 1, snapshot -> {
+      awaitQuietly(release);
+      written.add(snapshot);
+    });
+    sink.accept(first);
+    waitUntilEmpty(sink);
+    sink.accept(replaced);
+    sink.accept(newest);
+    release.countDown();
+    sink.close();
+
+    assertEquals(1, sink.getDroppedCount());
+    assertEquals(2, sink.getWrittenCount());
+    assertEquals(List.of(first, newest), written);
+  }
+
+  @Test
+  public void closeDoesNotInterruptWriteInProgress() throws InterruptedException {
+    CountDownLatch writing = new CountDownLatch(1);
+    List<Boolean> interrupted = new CopyOnWriteArrayList<>();
+    AsyncIncidentSink sink = new AsyncIncidentSink(4, OverflowPolicy.BLOCK, 1, snapshot -> {
+      writing.countDown();
+      try {
+        Thread.sleep(100);
+        interrupted.add(false);
+      } catch (InterruptedException e) {
+        interrupted.add(true);
+      }
+    });
+    sink.accept(new IncidentException(SdipErrorCode.NO_BODY, mock(Logger.class)).toSnapshot());
+    assertTrue(writing.await(5, TimeUnit.SECONDS));
+
+    sink.close();
+
+    assertEquals(List.of(false), interrupted);
+  }
+
+  @Test
+  public void drainThreadSurvivesStackOverflowWhileRendering() {
+    List<IncidentSnapshot> written = new CopyOnWriteArrayList<>();
+    Logger logger = mock(Logger.class);
+    IncidentSnapshot deep = new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot();
+    IncidentSnapshot next = new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot();
+
+    AsyncIncidentSink sink = new AsyncIncidentSink(4, OverflowPolicy.BLOCK, 1, snapshot -> {
+      if (snapshot == deep) {
+        throw new StackOverflowError();
+      }
+      written.add(snapshot);
+    });
+    sink.accept(deep);
+    sink.accept(next);
+    sink.close();
+
+    assertEquals(List.of(next), written);
+    assertEquals(1, sink.getWrittenCount());
+  }
+
+  @Test
+  public void everyIncidentAcceptedDuringCloseIsWrittenOrCountedAsDropped() throws Exception {
+    IncidentSnapshot snapshot =
+        new IncidentException(SdipErrorCode.NO_BODY, mock(Logger.class)).toSnapshot();
+    for (OverflowPolicy policy : OverflowPolicy.values()) {
+      AsyncIncidentSink sink = new AsyncIncidentSink(8, policy, 4, s -> { });
+      int threads = 4;
+      int perThread = 2000;
+      CountDownLatch started = new CountDownLatch(threads);
+      List<Thread> producers = new CopyOnWriteArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        Thread producer = new Thread(() -> {
+          started.countDown();
+          for (int i = 0; i < perThread; i++) {
+            sink.accept(snapshot);
+          }
+        });
+        producers.add(producer);
+        producer.start();
+      }
+      started.await();
+      sink.close();
+      for (Thread producer : producers) {
+        producer.join(5000);
+        assertTrue(!producer.isAlive(), policy + " left a producer waiting");
+      }
+
+      assertEquals(threads * perThread, sink.getWrittenCount() + sink.getDroppedCount(),
+          policy.toString());
+      assertEquals(0, sink.getQueueSize(), policy.toString());
+    }
+  }
+
+  private static void waitUntilEmpty(AsyncIncidentSink sink) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (sink.getQueueSize() > 0) {
+      assertTrue(System.currentTimeMillis() < deadline);
+      Thread.sleep(1);
+    }
+  }
+
+  private static void awaitQuietly(CountDownLatch latch) {
+    try {
+      latch.await(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,163 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.scania.sdip.exceptions.DeduplicatingIncidentSink;
+import com.scania.sdip.exceptions.DeduplicationPolicy;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.IncidentSink;
+import com.scania.sdip.exceptions.IncidentSnapshot;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+public class DeduplicatingIncidentSinkTest {
+
+  @Test
+  public void identicalIncidentsAboveThresholdAreSuppressed() {
+    List<IncidentSnapshot> written = new ArrayList<>();
+    DeduplicatingIncidentSink sink = new DeduplicatingIncidentSink(written::add,
+        new DeduplicationPolicy(Duration.ofHours(1), 2), 5);
+    Logger logger = mock(Logger.class);
+
+    for (int i = 0; i < 5; i++) {
+      sink.accept(new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot());
+    }
+
+    assertEquals(2, written.size());
+    assertEquals(3, sink.getSuppressedCount());
+  }
+
+  @Test
+  public void differentErrorCodesAreNotDeduplicatedTogether() {
+    List<IncidentSnapshot> written = new ArrayList<>();
+    DeduplicatingIncidentSink sink = new DeduplicatingIncidentSink(written::add,
+        new DeduplicationPolicy(Duration.ofHours(1), 1), 5);
+    Logger logger = mock(Logger.class);
+
+    sink.accept(new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot());
+    sink.accept(new IncidentException(SdipErrorCode.EMPTY_DOCUMENT, logger).toSnapshot());
+    sink.accept(new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot());
+
+    assertEquals(2, written.size());
+    assertEquals(1, sink.getSuppressedCount());
+  }
+
+  @Test
+  public void summaryIsLoggedWhenWindowHasPassed() throws InterruptedException {
+    List<IncidentSnapshot> written = new ArrayList<>();
+    DeduplicatingIncidentSink sink = new DeduplicatingIncidentSink(written::add,
+        new DeduplicationPolicy(Duration.ofMillis(50), 1), 5);
+    Logger logger = mock(Logger.class);
+
+    for (int i = 0; i < 4; i++) {
+      sink.accept(new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot());
+    }
+    Thread.sleep(100);
+    sink.accept(new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot());
+
+    assertEquals(3, written.size());
+    assertEquals("Suppressed 3 identical incidents of SDIP_40026 in 50ms: "
+        + "No body was provided. Body is required.", written.get(1).getSummary());
+    assertNull(written.get(2).getSummary());
+  }
+
+  @Test
+  public void flushLogsPendingSummary() throws InterruptedException {
+    DeduplicatingIncidentSink sink = new DeduplicatingIncidentSink(IncidentSink.SYNCHRONOUS,
+        new DeduplicationPolicy(Duration.ofMillis(50), 1), 5);
+    Logger logger = mock(Logger.class);
+
+    sink.accept(new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot());
+    sink.accept(new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot());
+    Thread.sleep(100);
+    sink.flush();
+
+    verify(logger).error("Suppressed 1 identical incidents of SDIP_40026 in 50ms: "
+        + "No body was provided. Body is required.");
+  }
+
+  @Test
+  public void summaryOfStoppedBurstIsFlushedByTheFlushThread() throws InterruptedException {
+    List<IncidentSnapshot> written = new CopyOnWriteArrayList<>();
+    Logger logger = mock(Logger.class);
+    try (DeduplicatingIncidentSink sink = new DeduplicatingIncidentSink(written::add,
+        new DeduplicationPolicy(Duration.ofMillis(50), 1), 5, 100, Duration.ofMillis(20))) {
+      for (int i = 0; i < 3; i++) {
+        sink.accept(new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot());
+      }
+      for (int i = 0; i < 500 && written.size() < 2; i++) {
+        Thread.sleep(10);
+      }
+    }
+
+    assertEquals(2, written.size());
+    assertEquals("Suppressed 2 identical incidents of SDIP_40026 in 50ms: "
+        + "No body was provided. Body is required.", written.get(1).getSummary());
+  }
+
+  @Test
+  public void closeFlushesWindowsThatHaveNotPassed() {
+    List<IncidentSnapshot> written = new ArrayList<>();
+    Logger logger = mock(Logger.class);
+    DeduplicatingIncidentSink sink = new DeduplicatingIncidentSink(written::add,
+        new DeduplicationPolicy(Duration.ofHours(1), 1), 5);
+
+    sink.accept(new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot());
+    sink.accept(new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot());
+    sink.close();
+
+    assertEquals(2, written.size());
+    assertEquals("Suppressed 1 identical incidents of SDIP_40026 in 3600s: "
+        + "No body was provided. Body is required.", written.get(1).getSummary());
+  }
+
+  @Test
+  public void trackedWindowDoesNotKeepTheIncident() throws Exception {
+    DeduplicatingIncidentSink sink = new DeduplicatingIncidentSink(snapshot -> {
+    }, new DeduplicationPolicy(Duration.ofMinutes(1), 1), 5);
+    Logger logger = mock(Logger.class);
+    IncidentSnapshot first = new IncidentException(new IllegalStateException("boom"),
+        SdipErrorCode.UNKNOWN_REASON_ERROR, logger, "boom", "support").toSnapshot();
+    WeakReference<IncidentSnapshot> reference = new WeakReference<>(first);
+
+    sink.accept(first);
+    first = null;
+    for (int i = 0; i < 50 && reference.get() != null; i++) {
+      System.gc();
+      Thread.sleep(10);
+    }
+
+    assertNull(reference.get());
+  }
+
+  @Test
+  public void policyPerErrorCodeOverridesDefault() {
+    List<IncidentSnapshot> written = new ArrayList<>();
+    DeduplicatingIncidentSink sink = new DeduplicatingIncidentSink(written::add,
+        new DeduplicationPolicy(Duration.ofHours(1), 1), 5);
+    sink.setPolicy(SdipErrorCode.NO_BODY, DeduplicationPolicy.NONE);
+    Logger logger = mock(Logger.class);
+
+    for (int i = 0; i < 3; i++) {
+      sink.accept(new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot());
+    }
+
+    assertEquals(3, written.size());
+  }
+
+  @Test
+  public void invalidPolicyIsRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new DeduplicationPolicy(Duration.ofSeconds(1), 0));
+  }
+}
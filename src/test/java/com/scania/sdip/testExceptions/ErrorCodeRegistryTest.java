@@ -0,0 +1,154 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.scania.sdip.exceptions.ErrorCode;
+import com.scania.sdip.exceptions.ErrorCodeRegistry;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import org.junit.jupiter.api.Test;
+
+public class ErrorCodeRegistryTest {
+
+  @Test
+  public void everySdipErrorCodeIsFoundByNumberAndString() {
+    ErrorCodeRegistry registry = ErrorCodeRegistry.getInstance();
+    for (SdipErrorCode errorCode : SdipErrorCode.values()) {
+      assertSame(errorCode, registry.find(errorCode.getSdipErrorCode()));
+      assertSame(errorCode, registry.find("SDIP_" + errorCode.getSdipErrorCode()));
+    }
+  }
+
+  @Test
+  public void shortAndLongCodesAreDistinguished() {
+    ErrorCodeRegistry registry = ErrorCodeRegistry.getInstance();
+
+    assertSame(SdipErrorCode.INVALID_SPARQLENDPOINT_DATA, registry.find("SDIP_4001"));
+    assertSame(SdipErrorCode.EMPTY_DOCUMENT, registry.find("40012"));
+  }
+
+  @Test
+  public void unknownCodesAreNotFound() {
+    ErrorCodeRegistry registry = ErrorCodeRegistry.getInstance();
+
+    assertNull(registry.find(99999));
+    assertNull(registry.find("SDIP_"));
+    assertNull(registry.find("SDIP_40O12"));
+    assertNull(registry.find((String) null));
+  }
+
+  @Test
+  public void codesAreIndexedByHttpStatus() {
+    ErrorCodeRegistry registry = ErrorCodeRegistry.getInstance();
+
+    assertTrue(registry.findByHttpStatus(400).contains(SdipErrorCode.NO_BODY));
+    assertTrue(registry.findByHttpStatus(418).isEmpty());
+    assertTrue(registry.findByHttpStatus(-1).isEmpty());
+  }
+
+  @Test
+  public void serviceErrorCodesCanBeRegistered() {
+    ErrorCodeRegistry registry = new ErrorCodeRegistry();
+    registry.register(SdipErrorCode.values());
+    registry.register(ServiceErrorCode.values());
+    registry.register(ServiceErrorCode.values());
+
+    assertSame(ServiceErrorCode.TEAPOT, registry.find("SDIP_91801"));
+    assertEquals(1, registry.findByHttpStatus(418).size());
+  }
+
+  @Test
+  public void duplicateCodeIsRejected() {
+    ErrorCodeRegistry registry = new ErrorCodeRegistry();
+    registry.register(SdipErrorCode.values());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> registry.register(DuplicateErrorCode.values()));
+    assertSame(SdipErrorCode.NO_BODY, registry.find(SdipErrorCode.NO_BODY.getSdipErrorCode()));
+  }
+
+  private enum ServiceErrorCode implements ErrorCode {
+    TEAPOT(418, 91801);
+
+    private final int httpStatus;
+    private final int sdipCode;
+
+    ServiceErrorCode(int httpStatus, int sdipCode) {
+      this.httpStatus = httpStatus;
+      this.sdipCode = sdipCode;
+    }
+
+    @Override
+    public int getHttpErrorCode() {
+      return httpStatus;
+    }
+
+    @Override
+    public int getSdipErrorCode() {
+      return sdipCode;
+    }
+
+    @Override
+    public String getLogMessage() {
+      return "I'm a teapot";
+    }
+
+    @Override
+    public String getHttpMessage() {
+      return "I'm a teapot";
+    }
+
+    @Override
+    public int getExitCode() {
+      return sdipCode;
+    }
+
+    @Override
+    public void setHttpMessage(String httpMessage) {
+    }
+
+    @Override
+    public void setLogMessage(String logMessage) {
+    }
+  }
+
+  private enum DuplicateErrorCode implements ErrorCode {
+    NO_BODY;
+
+    @Override
+    public int getHttpErrorCode() {
+      return 400;
+    }
+
+    @Override
+    public int getSdipErrorCode() {
+      return SdipErrorCode.NO_BODY.getSdipErrorCode();
+    }
+
+    @Override
+    public String getLogMessage() {
+      return "";
+    }
+
+    @Override
+    public String getHttpMessage() {
+      return "";
+    }
+
+    @Override
+    public int getExitCode() {
+      return 0;
+    }
+
+    @Override
+    public void setHttpMessage(String httpMessage) {
+    }
+
+    @Override
+    public void setLogMessage(String logMessage) {
+    }
+  }
+}
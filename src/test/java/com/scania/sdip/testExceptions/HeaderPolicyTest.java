@@ -0,0 +1,76 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
+
+import com.scania.sdip.exceptions.HeaderPolicy;
+import com.scania.sdip.exceptions.HeaderPolicy.Action;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+
+public class HeaderPolicyTest {
+
+  @Test
+  public void defaultPolicyDropsCredentialsAndUnlistedHeaders() {
+    HeaderPolicy policy = HeaderPolicy.DEFAULT;
+
+    assertEquals(Action.CAPTURE, policy.getAction("content-type"));
+    assertEquals(Action.CAPTURE, policy.getAction("CONTENT-TYPE"));
+    assertEquals(Action.DROP, policy.getAction("Authorization"));
+    assertEquals(Action.DROP, policy.getAction("cookie"));
+    assertEquals(Action.DROP, policy.getAction("X-Custom"));
+    assertEquals(Action.DROP, policy.getAction(""));
+  }
+
+  @Test
+  public void denyWinsOverMaskAndMaskOverAllow() {
+    HeaderPolicy policy = new HeaderPolicy(List.of("Authorization", "X-Api-Key"),
+        List.of("x-api-key"), List.of("authorization"));
+
+    assertEquals(Action.MASK, policy.getAction("Authorization"));
+    assertEquals(Action.DROP, policy.getAction("X-API-KEY"));
+    assertEquals("Bearer ****", policy.apply("authorization", "Bearer abc.def"));
+    assertNull(policy.apply("x-api-key", "secret"));
+  }
+
+  @Test
+  public void withoutAllowlistEveryHeaderNotDeniedIsCaptured() {
+    HeaderPolicy policy = new HeaderPolicy(null, HeaderPolicy.CREDENTIAL_HEADERS, List.of());
+
+    assertEquals(Action.CAPTURE, policy.getAction("X-Custom"));
+    assertEquals(Action.DROP, policy.getAction("Set-Cookie"));
+    assertEquals("1", policy.apply("X-Custom", "1"));
+  }
+
+  @Test
+  public void everyListedHeaderIsFoundInLargePolicy() {
+    List<String> allowed = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      allowed.add("X-Header-" + i);
+    }
+    HeaderPolicy policy = new HeaderPolicy(allowed, List.of(), List.of());
+
+    for (String name : allowed) {
+      assertEquals(Action.CAPTURE, policy.getAction(name.toUpperCase(Locale.ROOT)));
+    }
+    assertEquals(Action.DROP, policy.getAction("X-Header-500"));
+  }
+
+  @Test
+  public void veryLargePolicyIsBuiltInLinearSpace() {
+    List<String> denied = new ArrayList<>();
+    for (int i = 0; i < 100_000; i++) {
+      denied.add("X-Denied-" + i);
+    }
+
+    HeaderPolicy policy = assertTimeout(Duration.ofSeconds(10),
+        () -> new HeaderPolicy(null, denied, List.of()));
+
+    assertEquals(Action.DROP, policy.getAction("x-denied-99999"));
+    assertEquals(Action.CAPTURE, policy.getAction("X-Denied-100000"));
+  }
+}
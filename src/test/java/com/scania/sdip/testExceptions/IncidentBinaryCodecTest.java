@@ -0,0 +1,176 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scania.sdip.exceptions.ErrorBinding;
+import com.scania.sdip.exceptions.Incident;
+import com.scania.sdip.exceptions.IncidentBinaryCodec;
+import com.scania.sdip.exceptions.IncidentBinaryHttpMessageConverter;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.RemoteErrorCode;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import com.scania.sdip.exceptions.Violation;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+
+public class IncidentBinaryCodecTest {
+
+  private final IncidentBinaryCodec codec = IncidentBinaryCodec.getInstance();
+
+  @Test
+  public void incidentRoundTrips() {
+    Incident incident = incident();
+
+    Incident decoded = codec.decode(ByteBuffer.wrap(codec.encode(incident)));
+
+    assertEquals(incident.getSdipErrorCodes(), decoded.getSdipErrorCodes());
+    assertEquals(incident.getMessages(), decoded.getMessages());
+    assertEquals(incident.getTimestamp(), decoded.getTimestamp());
+    assertEquals(incident.getRequest(), decoded.getRequest());
+    assertEquals(1, decoded.getViolations().size());
+    assertNull(decoded.getViolations().get(0).getField());
+    assertEquals("must not be blank", decoded.getViolations().get(0).getMessage());
+    assertEquals(3, decoded.getViolations().get(0).getCount());
+  }
+
+  @Test
+  public void encodingIsSmallerThanJson() throws Exception {
+    Incident incident = incident();
+
+    assertTrue(codec.encode(incident).length
+        < new ObjectMapper().writeValueAsBytes(incident).length);
+  }
+
+  @Test
+  public void errorBindingsKeepRemoteCodesStatusesAndMessages() {
+    IncidentException incidentException = new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON,
+        NOPLogger.NOP_LOGGER, "unexpected token", "{");
+    incidentException.addIncident(new ErrorBinding(SdipErrorCode.NO_BODY));
+    ResponseEntity<Incident> response = incidentException.createHttpErrorResponse();
+
+    List<ErrorBinding> errorBindings =
+        codec.decodeErrorBindings(ByteBuffer.wrap(codec.encode(response.getBody())));
+
+    assertEquals(2, errorBindings.size());
+    assertEquals(new RemoteErrorCode(SdipErrorCode.DOCUMENT_NOT_JSON.getSdipErrorCode(),
+        SdipErrorCode.DOCUMENT_NOT_JSON.getHttpErrorCode()), errorBindings.get(0).getErrorCode());
+    assertEquals(SdipErrorCode.NO_BODY.getSdipErrorCode(),
+        errorBindings.get(1).getErrorCode().getSdipErrorCode());
+    assertArrayEquals(new Object[] {response.getBody().getMessages().get(1)},
+        errorBindings.get(1).getArgs());
+
+    IncidentException rewrapped = new IncidentException(NOPLogger.NOP_LOGGER);
+    errorBindings.forEach(rewrapped::addIncident);
+    Incident rewrappedIncident = rewrapped.createHttpErrorResponse().getBody();
+    assertEquals(response.getBody().getSdipErrorCodes(), rewrappedIncident.getSdipErrorCodes());
+    assertEquals(response.getBody().getMessages(), rewrappedIncident.getMessages());
+    assertEquals(HttpStatus.BAD_REQUEST, rewrapped.createHttpErrorResponse().getStatusCode());
+  }
+
+  @Test
+  public void remoteStatusesArePassedOn() {
+    IncidentException incidentException = new IncidentException(NOPLogger.NOP_LOGGER);
+    incidentException.addIncident(new ErrorBinding(new RemoteErrorCode(77001, 503),
+        "Upstream unavailable."));
+    incidentException.addIncident(new ErrorBinding(new RemoteErrorCode(77002, 418),
+        "Teapot."));
+
+    byte[] encoded = codec.encode(incidentException.createHttpErrorResponse().getBody());
+    List<ErrorBinding> errorBindings = codec.decodeErrorBindings(ByteBuffer.wrap(encoded));
+    byte[] relayed = codec.encode(codec.decode(ByteBuffer.wrap(encoded)));
+
+    assertEquals(new RemoteErrorCode(77001, 503), errorBindings.get(0).getErrorCode());
+    assertEquals(new RemoteErrorCode(77002, 418), errorBindings.get(1).getErrorCode());
+    assertArrayEquals(encoded, relayed);
+  }
+
+  @Test
+  public void decodingStartsAtBufferPositionAndMovesPastIncident() {
+    byte[] encoded = codec.encode(incident());
+    byte[] framed = new byte[encoded.length + 5];
+    System.arraycopy(encoded, 0, framed, 2, encoded.length);
+    ByteBuffer buffer = ByteBuffer.wrap(framed, 2, encoded.length + 3).slice();
+    buffer.position(0);
+    ByteBuffer direct = ByteBuffer.allocateDirect(framed.length).put(framed);
+    direct.position(2);
+
+    assertEquals(2, codec.decodeErrorBindings(buffer).size());
+    assertEquals(encoded.length, buffer.position());
+    assertEquals(incident().getMessages(), codec.decode(direct).getMessages());
+    assertEquals(2 + encoded.length, direct.position());
+  }
+
+  @Test
+  public void nonAsciiIsEncodedAsUtf8() {
+    Incident incident = new Incident();
+    incident.addSdipErrorCode("SDIP_40012");
+    incident.addMessage("Fel i f\u00e4lt \u4e2d \ud83d\ude00 \ud800.");
+
+    Incident decoded = codec.decode(ByteBuffer.wrap(codec.encode(incident)));
+
+    assertEquals("Fel i f\u00e4lt \u4e2d \ud83d\ude00 ?.", decoded.getMessages().get(0));
+  }
+
+  @Test
+  public void malformedInputIsRejected() {
+    byte[] encoded = codec.encode(incident());
+
+    assertThrows(IllegalArgumentException.class,
+        () -> codec.decode(ByteBuffer.wrap(new byte[] {'{', '}'})));
+    assertThrows(IllegalArgumentException.class,
+        () -> codec.decode(ByteBuffer.wrap(Arrays.copyOf(encoded, encoded.length - 1))));
+    encoded[2] = 9;
+    assertThrows(IllegalArgumentException.class, () -> codec.decode(ByteBuffer.wrap(encoded)));
+    assertThrows(IllegalArgumentException.class,
+        () -> codec.decode(ByteBuffer.wrap(new byte[] {'S', 'I', 1, 0, 0, (byte) 0xFF, 0x7F})));
+  }
+
+  @Test
+  public void unknownCodeFormatIsRejected() {
+    Incident incident = new Incident();
+    incident.addSdipErrorCode("E42");
+
+    assertThrows(IllegalArgumentException.class, () -> codec.encode(incident));
+  }
+
+  @Test
+  public void converterWritesAndReadsBinaryIncidents() throws Exception {
+    IncidentBinaryHttpMessageConverter converter = new IncidentBinaryHttpMessageConverter();
+    MockHttpOutputMessage output = new MockHttpOutputMessage();
+
+    assertTrue(converter.canWrite(Incident.class, IncidentBinaryCodec.MEDIA_TYPE));
+    converter.write(incident(), IncidentBinaryCodec.MEDIA_TYPE, output);
+
+    assertEquals(IncidentBinaryCodec.MEDIA_TYPE, output.getHeaders().getContentType());
+    Incident read =
+        converter.read(Incident.class, new MockHttpInputMessage(output.getBodyAsBytes()));
+    assertEquals(incident().getSdipErrorCodes(), read.getSdipErrorCodes());
+  }
+
+  private static Incident incident() {
+    Incident incident = new Incident();
+    incident.addSdipErrorCode("SDIP_" + SdipErrorCode.INVALID_FIELD.getSdipErrorCode());
+    incident.addSdipErrorCode("SDIP_99999");
+    incident.addMessage("Field 'name' is invalid.");
+    incident.addMessage("Remote failure.");
+    incident.setTimestamp(1700000000000L);
+    incident.setRequest("POST /documents");
+    List<Violation> violations = new ArrayList<>();
+    violations.add(new Violation(null, "must not be blank", 3));
+    incident.setViolations(violations);
+    return incident;
+  }
+}
@@ -0,0 +1,114 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.scania.sdip.exceptions.ErrorBinding;
+import com.scania.sdip.exceptions.IncidentCollector;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+public class IncidentCollectorTest {
+
+  @Test
+  public void parallelStreamKeepsEncounterOrder() {
+    IncidentCollector collector = IntStream.range(0, 10000).parallel()
+        .mapToObj(i -> new ErrorBinding(SdipErrorCode.DOCUMENT_NOT_JSON, "row" + i, "value"))
+        .collect(IncidentCollector.toIncidentCollector());
+
+    List<ErrorBinding> errorBindings = collector.getErrorBindings();
+    assertEquals(10000, errorBindings.size());
+    for (int i = 0; i < errorBindings.size(); i++) {
+      assertEquals("row" + i, errorBindings.get(i).getArgs()[0]);
+    }
+  }
+
+  @Test
+  public void concurrentAddsAreNotLost() {
+    IncidentCollector collector = new IncidentCollector();
+    IntStream.range(0, 10000).parallel()
+        .forEach(i -> collector.add(SdipErrorCode.EMPTY_DOCUMENT));
+
+    assertEquals(10000, collector.getErrorBindings().size());
+  }
+
+  @Test
+  public void forkJoinTasksMerge() {
+    IncidentCollector collector = ForkJoinPool.commonPool().invoke(new Validate(0, 1000));
+
+    assertEquals(500, collector.getErrorBindings().size());
+  }
+
+  @Test
+  public void errorCodeOrderingIsDeterministic() {
+    IncidentCollector collector = new IncidentCollector(IncidentCollector.Ordering.ERROR_CODE);
+    collector.add(SdipErrorCode.DOCUMENT_NOT_JSON, "b", "x");
+    collector.add(SdipErrorCode.EMPTY_DOCUMENT);
+    collector.add(SdipErrorCode.DOCUMENT_NOT_JSON, "a", "x");
+
+    List<ErrorBinding> errorBindings = collector.getErrorBindings();
+    assertEquals(3, errorBindings.size());
+    for (int i = 1; i < errorBindings.size(); i++) {
+      assertTrue(errorBindings.get(i - 1).getErrorCode().getSdipErrorCode()
+          <= errorBindings.get(i).getErrorCode().getSdipErrorCode());
+    }
+    List<Object> notJsonArgs = errorBindings.stream()
+        .filter(binding -> binding.getErrorCode() == SdipErrorCode.DOCUMENT_NOT_JSON)
+        .map(binding -> binding.getArgs()[0]).collect(Collectors.toList());
+    assertEquals(List.of("a", "b"), notJsonArgs);
+  }
+
+  @Test
+  public void convertsToIncidentExceptionOnce() {
+    IncidentCollector collector = new IncidentCollector();
+    collector.throwIfAnyIncidents(mock(Logger.class));
+    collector.add(SdipErrorCode.EMPTY_DOCUMENT);
+    collector.add(SdipErrorCode.NO_BODY);
+
+    IncidentException incidentException = assertThrows(IncidentException.class,
+        () -> collector.throwIfAnyIncidents(mock(Logger.class)));
+    assertEquals(2, incidentException.getErrorBindings().size());
+    assertSame(SdipErrorCode.EMPTY_DOCUMENT,
+        incidentException.getErrorBindings().get(0).getErrorCode());
+  }
+
+  private static final class Validate extends RecursiveTask<IncidentCollector> {
+    private static final long serialVersionUID = 1L;
+
+    private final int from;
+    private final int to;
+
+    private Validate(int from, int to) {
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected IncidentCollector compute() {
+      if (to - from <= 100) {
+        IncidentCollector collector = new IncidentCollector();
+        for (int i = from; i < to; i++) {
+          if (i % 2 == 0) {
+            collector.add(SdipErrorCode.EMPTY_DOCUMENT);
+          }
+        }
+        return collector;
+      }
+      int middle = (from + to) >>> 1;
+      Validate left = new Validate(from, middle);
+      left.fork();
+      IncidentCollector right = new Validate(middle, to).compute();
+      return left.join().merge(right);
+    }
+  }
+}
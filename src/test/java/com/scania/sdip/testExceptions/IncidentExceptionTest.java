@@ -493,4 +493,20 @@ public class IncidentExceptionTest {
     assertEquals("The provided document is not JSON(https://www.json.org/), {jsonthingy}",
         incident.getMessages().get(0));
   }
+
+  @Test
+  public void clientErrorIncidentShouldNotFillInStackTrace() {
+    Logger logger = mock(Logger.class);
+    IncidentException incidentException =
+        new IncidentException(SdipErrorCode.NO_BODY, logger);
+    assertEquals(0, incidentException.getStackTrace().length);
+  }
+
+  @Test
+  public void serverErrorIncidentShouldFillInStackTrace() {
+    Logger logger = mock(Logger.class);
+    IncidentException incidentException = new IncidentException(
+        SdipErrorCode.UNKNOWN_REASON_ERROR, logger, "Test", SdipErrorParameter.SUPPORTMAIL);
+    assertTrue(incidentException.getStackTrace().length > 0);
+  }
 }
@@ -0,0 +1,145 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.IncidentFlightRecorder;
+import com.scania.sdip.exceptions.IncidentFlightRecorderController;
+import com.scania.sdip.exceptions.RecordedIncident;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+public class IncidentFlightRecorderTest {
+
+  private final Logger logger = mock(Logger.class);
+
+  @Test
+  public void capacityIsRoundedUpToPowerOfTwo() {
+    assertEquals(8, new IncidentFlightRecorder(5).getCapacity());
+    assertEquals(1, new IncidentFlightRecorder(1).getCapacity());
+    assertThrows(IllegalArgumentException.class, () -> new IncidentFlightRecorder(0));
+  }
+
+  @Test
+  public void oldestIncidentsAreOverwritten() {
+    IncidentFlightRecorder recorder = new IncidentFlightRecorder(4);
+    for (int i = 0; i < 10; i++) {
+      IncidentException incidentException =
+          new IncidentException(SdipErrorCode.EMPTY_DOCUMENT, logger);
+      incidentException.setExecutionId("run" + i);
+      recorder.record(incidentException);
+    }
+
+    List<RecordedIncident> incidents = recorder.query(null, 0, Long.MAX_VALUE, null, 100);
+    assertEquals(4, incidents.size());
+    assertEquals("run9", incidents.get(0).getExecutionId());
+    assertEquals("run6", incidents.get(3).getExecutionId());
+    assertEquals(List.of("SDIP_40012"), incidents.get(0).getSdipErrorCodes());
+    assertEquals("REQUEST DATA NOT AVAILABLE", incidents.get(0).getRequest());
+  }
+
+  @Test
+  public void queryFiltersByCodeTimeAndExecutionId() {
+    IncidentFlightRecorder recorder = new IncidentFlightRecorder(16);
+    long before = System.currentTimeMillis();
+    recorder.record(new IncidentException(SdipErrorCode.EMPTY_DOCUMENT, logger));
+    IncidentException withExecutionId = new IncidentException(SdipErrorCode.NO_BODY, logger);
+    withExecutionId.setExecutionId("abc");
+    recorder.record(withExecutionId);
+
+    assertEquals(1, recorder.query(SdipErrorCode.EMPTY_DOCUMENT.getSdipErrorCode(), 0,
+        Long.MAX_VALUE, null, 100).size());
+    assertEquals(List.of("SDIP_" + SdipErrorCode.NO_BODY.getSdipErrorCode()),
+        recorder.query(null, 0, Long.MAX_VALUE, "abc", 100).get(0).getSdipErrorCodes());
+    assertEquals(0, recorder.query(null, 0, before - 1, null, 100).size());
+    assertEquals(1, recorder.query(null, 0, Long.MAX_VALUE, null, 1).size());
+  }
+
+  @Test
+  public void queryParameterValuesAreMaskedWhenRecorded() {
+    IncidentFlightRecorder recorder = new IncidentFlightRecorder(4);
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/documents");
+    request.setQueryString("access_token=abc&page=2&flag");
+    IncidentException incidentException =
+        new IncidentException(SdipErrorCode.EMPTY_DOCUMENT, logger);
+    incidentException.setRequestUsed(new ServletWebRequest(request));
+
+    recorder.record(incidentException);
+
+    assertEquals("GET /documentsaccess_token=****&page=****&flag",
+        recorder.query(null, 0, Long.MAX_VALUE, null, 1).get(0).getRequest());
+  }
+
+  @Test
+  public void endpointAnswersLocalRequestsOnly() {
+    IncidentFlightRecorder recorder = new IncidentFlightRecorder(4);
+    recorder.record(new IncidentException(SdipErrorCode.EMPTY_DOCUMENT, logger));
+    MockHttpServletRequest local = new MockHttpServletRequest();
+    local.setRemoteAddr("127.0.0.1");
+    MockHttpServletRequest localIpv6 = new MockHttpServletRequest();
+    localIpv6.setRemoteAddr("0:0:0:0:0:0:0:1");
+    MockHttpServletRequest remote = new MockHttpServletRequest();
+    remote.setRemoteAddr("10.1.2.3");
+
+    IncidentFlightRecorderController localOnly =
+        new IncidentFlightRecorderController(recorder, true);
+    assertEquals(HttpStatus.OK, query(localOnly, local).getStatusCode());
+    assertEquals(1, query(localOnly, localIpv6).getBody().size());
+    assertEquals(HttpStatus.FORBIDDEN, query(localOnly, remote).getStatusCode());
+    assertEquals(HttpStatus.OK,
+        query(new IncidentFlightRecorderController(recorder, false), remote).getStatusCode());
+  }
+
+  @Test
+  public void malformedCodeIsABadRequest() {
+    IncidentFlightRecorder recorder = new IncidentFlightRecorder(4);
+    recorder.record(new IncidentException(SdipErrorCode.EMPTY_DOCUMENT, logger));
+    IncidentFlightRecorderController controller =
+        new IncidentFlightRecorderController(recorder, false);
+    MockHttpServletRequest request = new MockHttpServletRequest();
+
+    assertEquals(HttpStatus.BAD_REQUEST, controller.getRecentIncidents(request, "SDIP_abc", 0,
+        Long.MAX_VALUE, null, 100).getStatusCode());
+    assertEquals(1, controller.getRecentIncidents(request, "SDIP_40012", 0, Long.MAX_VALUE, null,
+        100).getBody().size());
+  }
+
+  private static ResponseEntity<List<RecordedIncident>> query(
+      IncidentFlightRecorderController controller, MockHttpServletRequest request) {
+    return controller.getRecentIncidents(request, null, 0, Long.MAX_VALUE, null, 100);
+  }
+
+  @Test
+  public void fingerprintIsTakenFromException() {
+    IncidentFlightRecorder recorder = new IncidentFlightRecorder(4);
+    recorder.record(new IncidentException(new IllegalStateException("boom"),
+        SdipErrorCode.UNKNOWN_REASON_ERROR, logger, "boom", "support"));
+    recorder.record(new IncidentException(SdipErrorCode.EMPTY_DOCUMENT, logger));
+
+    List<RecordedIncident> incidents = recorder.query(null, 0, Long.MAX_VALUE, null, 100);
+    assertNull(incidents.get(0).getFingerprint());
+    assertNotNull(incidents.get(1).getFingerprint());
+  }
+
+  @Test
+  public void concurrentRecordsFillEverySlot() {
+    IncidentFlightRecorder recorder = new IncidentFlightRecorder(1024);
+    IntStream.range(0, 5000).parallel().forEach(
+        i -> recorder.record(new IncidentException(SdipErrorCode.EMPTY_DOCUMENT, logger)));
+
+    List<RecordedIncident> incidents = recorder.query(null, 0, Long.MAX_VALUE, null, 5000);
+    assertTrue(incidents.size() > 900 && incidents.size() <= 1024, "" + incidents.size());
+  }
+}
@@ -0,0 +1,248 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scania.sdip.exceptions.ErrorBinding;
+import com.scania.sdip.exceptions.Incident;
+import com.scania.sdip.exceptions.IncidentBinaryCodec;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.IncidentImporter;
+import com.scania.sdip.exceptions.IncidentJsonEncoder;
+import com.scania.sdip.exceptions.IncidentSnapshot;
+import com.scania.sdip.exceptions.RemoteErrorBinding;
+import com.scania.sdip.exceptions.RemoteErrorCode;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+public class IncidentImporterTest {
+
+  private final IncidentImporter importer = new IncidentImporter();
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @AfterEach
+  public void restoreSink() {
+    IncidentException.setIncidentSink(null);
+  }
+
+  @Test
+  public void remoteIncidentKeepsCodesMessagesServiceAndExecutionId() throws Exception {
+    Incident remote = remoteIncident();
+
+    List<RemoteErrorBinding> bindings = importer.read(json(remote), 400, "sdcs", "exec-7");
+
+    assertEquals(2, bindings.size());
+    assertEquals(SdipErrorCode.DOCUMENT_NOT_JSON.getSdipErrorCode(),
+        bindings.get(0).getErrorCode().getSdipErrorCode());
+    assertEquals(remote.getMessages().get(0), bindings.get(0).getMessage());
+    assertEquals("sdcs", bindings.get(1).getServiceId());
+    assertEquals("exec-7", bindings.get(1).getExecutionId());
+
+    IncidentException incidentException = new IncidentException(NOPLogger.NOP_LOGGER);
+    incidentException.addRemoteIncident(bindings);
+    Incident imported = incidentException.createHttpErrorResponse().getBody();
+    assertEquals(remote.getSdipErrorCodes(), imported.getSdipErrorCodes());
+    assertEquals(remote.getMessages(), imported.getMessages());
+  }
+
+  @Test
+  public void statusIsTakenFromKnownCodeThenResponse() throws Exception {
+    List<RemoteErrorBinding> bindings = importer.read(stream("{\"sdipErrorCodes\":[\"SDIP_"
+        + SdipErrorCode.NO_BODY.getSdipErrorCode() + "\",\"SDIP_99901\"],\"messages\":[\"a\"]}"),
+        503, null, null);
+
+    assertEquals(SdipErrorCode.NO_BODY.getHttpErrorCode(),
+        bindings.get(0).getErrorCode().getHttpErrorCode());
+    assertEquals(503, bindings.get(1).getErrorCode().getHttpErrorCode());
+    assertEquals("", bindings.get(1).getMessage());
+    assertEquals(502, importer.read(stream("{\"sdipErrorCodes\":[\"SDIP_99901\"]}"), 200, null,
+        null).get(0).getErrorCode().getHttpErrorCode());
+  }
+
+  @Test
+  public void combinedStatusIsPickedOverLocalAndRemoteBindings() throws Exception {
+    IncidentException sameStatus = new IncidentException(SdipErrorCode.NO_BODY,
+        NOPLogger.NOP_LOGGER);
+    sameStatus.addRemoteIncident(importer.read(
+        stream("{\"sdipErrorCodes\":[\"SDIP_99901\"]}"), 400, "sdcs", null));
+    IncidentException mixedStatus = new IncidentException(SdipErrorCode.NO_BODY,
+        NOPLogger.NOP_LOGGER);
+    mixedStatus.addRemoteIncident(importer.read(
+        stream("{\"sdipErrorCodes\":[\"SDIP_99901\"]}"), 503, "sdcs", null));
+
+    assertEquals(HttpStatus.BAD_REQUEST, sameStatus.createHttpErrorResponse().getStatusCode());
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR,
+        mixedStatus.createHttpErrorResponse().getStatusCode());
+  }
+
+  @Test
+  public void nonErrorStatusGivesSameResultInAnyOrder() {
+    RemoteErrorBinding ok = new RemoteErrorBinding(new RemoteErrorCode(99902, 200), "ok", null,
+        null);
+    IncidentException okFirst = new IncidentException(NOPLogger.NOP_LOGGER);
+    okFirst.addIncident(ok);
+    okFirst.addIncident(new ErrorBinding(SdipErrorCode.NO_BODY));
+    IncidentException okLast = new IncidentException(SdipErrorCode.NO_BODY,
+        NOPLogger.NOP_LOGGER);
+    okLast.addIncident(ok);
+
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR,
+        okFirst.createHttpErrorResponse().getStatusCode());
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR,
+        okLast.createHttpErrorResponse().getStatusCode());
+  }
+
+  @Test
+  public void unknownFieldsAreSkipped() throws Exception {
+    List<RemoteErrorBinding> bindings = importer.read(stream("{\"timestamp\":1,\"request\":null,"
+        + "\"violations\":[{\"field\":\"a\",\"message\":\"b\",\"count\":2}],\"extra\":{\"x\":[1]},"
+        + "\"sdipErrorCodes\":[\"SDIP_40012\"],\"messages\":[\"m\"]}"), 400, null, null);
+
+    assertEquals(1, bindings.size());
+    assertEquals("m", bindings.get(0).getMessage());
+  }
+
+  @Test
+  public void bodyLargerThanLimitIsRejectedWithoutReadingIt() {
+    IncidentImporter small = new IncidentImporter(100, 10, 100);
+    CountingInputStream body = new CountingInputStream(1 << 20);
+
+    assertThrows(IllegalArgumentException.class, () -> small.read(body, 500, null, null));
+    assertTrue(body.read < 64 * 1024, "read " + body.read + " bytes");
+  }
+
+  @Test
+  public void bindingsAndMessagesAreBounded() throws Exception {
+    IncidentImporter small = new IncidentImporter(64 * 1024, 2, 5);
+    StringBuilder json = new StringBuilder("{\"sdipErrorCodes\":[");
+    for (int i = 0; i < 100; i++) {
+      json.append(i == 0 ? "" : ",").append("\"SDIP_").append(99000 + i).append('"');
+    }
+    json.append("],\"messages\":[\"0123456789\",\"b\",\"c\"]}");
+
+    List<RemoteErrorBinding> bindings = small.read(stream(json.toString()), 500, null, null);
+
+    assertEquals(2, bindings.size());
+    assertEquals("01234...", bindings.get(0).getMessage());
+    assertEquals("b", bindings.get(1).getMessage());
+  }
+
+  @Test
+  public void malformedBodiesAreRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> importer.read(stream("[\"SDIP_1\"]"), 500, null, null));
+    assertThrows(IllegalArgumentException.class,
+        () -> importer.read(stream("{\"sdipErrorCodes\":[\"SDIP_1\""), 500, null, null));
+    assertThrows(IllegalArgumentException.class,
+        () -> importer.read(stream("{\"sdipErrorCodes\":[\"E1\"]}"), 500, null, null));
+    assertThrows(IllegalArgumentException.class,
+        () -> importer.read(stream("{\"sdipErrorCodes\":[{\"a\":1}]}"), 500, null, null));
+  }
+
+  @Test
+  public void binaryIncidentIsImported() {
+    Incident remote = remoteIncident();
+    byte[] encoded = IncidentBinaryCodec.getInstance().encode(remote);
+
+    List<RemoteErrorBinding> bindings =
+        importer.readBinary(ByteBuffer.wrap(encoded), 400, "sdcs", "exec-7");
+
+    assertEquals(remote.getMessages().get(1), bindings.get(1).getMessage());
+    assertEquals(SdipErrorCode.NO_BODY.getHttpErrorCode(),
+        bindings.get(1).getErrorCode().getHttpErrorCode());
+    assertThrows(IllegalArgumentException.class, () -> new IncidentImporter(10, 10, 10)
+        .readBinary(ByteBuffer.wrap(encoded), 400, null, null));
+  }
+
+  @Test
+  public void logRefersToRemoteExecutionInsteadOfRepeatingIt() throws Exception {
+    List<IncidentSnapshot> snapshots = new ArrayList<>();
+    IncidentException.setIncidentSink(snapshots::add);
+    Logger logger = mock(Logger.class);
+    IncidentException incidentException = new IncidentException(logger);
+    incidentException.addRemoteIncident(importer.read(
+        stream("{\"sdipErrorCodes\":[\"SDIP_40012\"],\"messages\":[\"empty\"]}"), 400, "sdcs",
+        "exec-7"));
+
+    incidentException.printToLog();
+    snapshots.get(0).printToLog();
+
+    ArgumentCaptor<String> entries = ArgumentCaptor.forClass(String.class);
+    verify(logger, atLeastOnce()).error(entries.capture());
+    assertTrue(entries.getAllValues().get(0).contains("_sdcs_SDIP_40012: (remote execution exec-7)"
+        + " empty"), entries.getAllValues().get(0));
+    String event = IncidentJsonEncoder.getInstance().encode(snapshots.get(0));
+    assertTrue(event.contains("\"remote\":{\"serviceId\":\"sdcs\",\"executionId\":\"exec-7\"}"),
+        event);
+    assertNull(snapshots.get(0).getExecutionId());
+  }
+
+  private Incident remoteIncident() {
+    IncidentException remote = new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON,
+        NOPLogger.NOP_LOGGER, "unexpected token", "{");
+    remote.addIncident(new ErrorBinding(SdipErrorCode.NO_BODY));
+    ResponseEntity<Incident> response = remote.createHttpErrorResponse();
+    return response.getBody();
+  }
+
+  private InputStream json(Incident incident) throws IOException {
+    return new ByteArrayInputStream(objectMapper.writeValueAsBytes(incident));
+  }
+
+  private static InputStream stream(String json) {
+    return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * An endless JSON string, counting how much of it was read.
+   */
+  private static final class CountingInputStream extends InputStream {
+    private final int size;
+    private int read;
+
+    private CountingInputStream(int size) {
+      this.size = size;
+    }
+
+    @Override
+    public int read() {
+      if (read >= size) {
+        return -1;
+      }
+      return read++ == 0 ? '"' : 'a';
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      int count = 0;
+      while (count < len) {
+        int value = read();
+        if (value < 0) {
+          break;
+        }
+        b[off + count++] = (byte) value;
+      }
+      return count == 0 && len > 0 ? -1 : count;
+    }
+  }
+}
@@ -0,0 +1,204 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.IncidentJournal;
+import com.scania.sdip.exceptions.IncidentJournalReader;
+import com.scania.sdip.exceptions.IncidentSnapshot;
+import com.scania.sdip.exceptions.JournalRecord;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+
+public class IncidentJournalTest {
+
+  private static final int SEGMENT_BYTES = 64 * 1024;
+
+  @TempDir
+  Path directory;
+
+  private final Logger logger = mock(Logger.class);
+
+  @Test
+  public void queryParameterValuesAreMaskedWhenJournaled() throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest("GET", "/documents");
+    request.setQueryString("access_token=abc&page=2");
+    IncidentException incidentException =
+        new IncidentException(SdipErrorCode.EMPTY_DOCUMENT, logger);
+    incidentException.setRequestUsed(new ServletWebRequest(request));
+    try (IncidentJournal journal = new IncidentJournal(directory, SEGMENT_BYTES, 4,
+        snapshot -> { })) {
+      journal.accept(incidentException.toSnapshot());
+    }
+
+    List<JournalRecord> records =
+        IncidentJournalReader.read(IncidentJournalReader.listSegments(directory).get(0));
+    assertEquals("GET /documentsaccess_token=****&page=****", records.get(0).getRequest());
+  }
+
+  @Test
+  public void recordsAreReadBack() throws Exception {
+    List<IncidentSnapshot> delegated = new ArrayList<>();
+    try (IncidentJournal journal = new IncidentJournal(directory, SEGMENT_BYTES, 4,
+        delegated::add)) {
+      IncidentException incidentException = new IncidentException(
+          SdipErrorCode.DOCUMENT_NOT_JSON, logger, "line 1", "{\"a\":");
+      incidentException.setExecutionId("exec-1");
+      journal.accept(incidentException.toSnapshot());
+      journal.accept(new IncidentException(SdipErrorCode.EMPTY_DOCUMENT, logger).toSnapshot());
+    }
+
+    assertEquals(2, delegated.size());
+    List<Path> segments = IncidentJournalReader.listSegments(directory);
+    assertEquals(1, segments.size());
+    List<JournalRecord> records = IncidentJournalReader.read(segments.get(0));
+    assertEquals(2, records.size());
+    JournalRecord first = records.get(0);
+    assertEquals("exec-1", first.getExecutionId());
+    assertNull(first.getRequest());
+    assertEquals("SDIP_" + SdipErrorCode.DOCUMENT_NOT_JSON.getSdipErrorCode(),
+        first.getErrorBindings().get(0).getSdipErrorCode());
+    assertEquals(List.of("line 1", "{\"a\":"), first.getErrorBindings().get(0).getArgs());
+    assertTrue(first.getTimestamp() > 0);
+  }
+
+  @Test
+  public void segmentsRollAndAreRetained() throws Exception {
+    try (IncidentJournal journal = new IncidentJournal(directory, SEGMENT_BYTES, 3,
+        snapshot -> { })) {
+      String payload = "x".repeat(4000);
+      for (int i = 0; i < 200; i++) {
+        journal.accept(new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON, logger,
+            "row" + i, payload).toSnapshot());
+      }
+      assertEquals(200, journal.getWrittenCount());
+    }
+
+    List<Path> segments = IncidentJournalReader.listSegments(directory);
+    assertEquals(3, segments.size());
+    List<JournalRecord> records = new ArrayList<>();
+    for (Path segment : segments) {
+      records.addAll(IncidentJournalReader.read(segment));
+    }
+    assertEquals("row199", records.get(records.size() - 1).getErrorBindings().get(0)
+        .getArgs().get(0));
+    assertTrue(records.size() < 200);
+  }
+
+  @Test
+  public void concurrentWritersDoNotOverlap() throws Exception {
+    try (IncidentJournal journal = new IncidentJournal(directory, SEGMENT_BYTES, 100,
+        snapshot -> { })) {
+      IntStream.range(0, 2000).parallel().forEach(i -> journal.accept(
+          new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON, logger, "row" + i, "v")
+              .toSnapshot()));
+    }
+
+    int count = 0;
+    for (Path segment : IncidentJournalReader.listSegments(directory)) {
+      for (JournalRecord record : IncidentJournalReader.read(segment)) {
+        assertEquals("v", record.getErrorBindings().get(0).getArgs().get(1));
+        count++;
+      }
+    }
+    assertEquals(2000, count);
+  }
+
+  @Test
+  public void newJournalContinuesAfterExistingSegments() throws Exception {
+    new IncidentJournal(directory, SEGMENT_BYTES, 4, snapshot -> { }).close();
+    new IncidentJournal(directory, SEGMENT_BYTES, 4, snapshot -> { }).close();
+
+    assertEquals(2, IncidentJournalReader.listSegments(directory).size());
+  }
+
+  @Test
+  public void newJournalAppliesRetention() throws Exception {
+    for (int i = 0; i < 4; i++) {
+      new IncidentJournal(directory, SEGMENT_BYTES, 2, snapshot -> { }).close();
+    }
+
+    List<Path> segments = IncidentJournalReader.listSegments(directory);
+    assertEquals(2, segments.size());
+    assertTrue(segments.get(1).getFileName().toString().endsWith("3.journal"),
+        segments.toString());
+  }
+
+  @Test
+  public void uncommittedRecordsAreSkipped() throws Exception {
+    try (IncidentJournal journal = new IncidentJournal(directory, SEGMENT_BYTES, 4,
+        snapshot -> { })) {
+      for (int i = 0; i < 4; i++) {
+        journal.accept(new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON, logger,
+            "row" + i, "v").toSnapshot());
+      }
+    }
+    Path segment = IncidentJournalReader.listSegments(directory).get(0);
+    byte[] bytes = Files.readAllBytes(segment);
+    int[] offsets = new int[4];
+    for (int i = 0; i < offsets.length; i++) {
+      offsets[i] = indexOf(bytes, ("row" + i).getBytes(StandardCharsets.UTF_8));
+    }
+    // The records have the same layout and the first one starts at the beginning of the segment.
+    int recordStart1 = offsets[1] - offsets[0];
+    int recordStart2 = offsets[2] - offsets[0];
+    // Record 1 was reserved but never written, record 2 was written but not committed.
+    Arrays.fill(bytes, recordStart1, recordStart2, (byte) 0);
+    bytes[offsets[2]] = 'R';
+    Files.write(segment, bytes);
+
+    List<JournalRecord> records = IncidentJournalReader.read(segment);
+
+    assertEquals(List.of("row0", "row3"), records.stream()
+        .map(record -> record.getErrorBindings().get(0).getArgs().get(0))
+        .collect(Collectors.toList()));
+  }
+
+  @Test
+  public void readerPrintsJsonLines() throws Exception {
+    try (IncidentJournal journal = new IncidentJournal(directory, SEGMENT_BYTES, 4,
+        snapshot -> { })) {
+      journal.accept(new IncidentException(SdipErrorCode.EMPTY_DOCUMENT, logger).toSnapshot());
+    }
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    IncidentJournalReader.printJson(List.of(directory), new PrintStream(out, true, "UTF-8"));
+
+    String json = out.toString(StandardCharsets.UTF_8);
+    assertTrue(json.contains("\"errorBindings\":[{\"sdipErrorCode\":\"SDIP_40012\",\"args\":[]}]"),
+        json);
+  }
+
+  @Test
+  public void tooSmallSegmentsAreRejected() {
+    assertThrows(IllegalArgumentException.class,
+        () -> new IncidentJournal(directory, 1024, 4, snapshot -> { }));
+  }
+
+  private static int indexOf(byte[] bytes, byte[] part) {
+    for (int i = 0; i <= bytes.length - part.length; i++) {
+      if (Arrays.equals(bytes, i, i + part.length, part, 0, part.length)) {
+        return i;
+      }
+    }
+    throw new AssertionError("Not found");
+  }
+}
@@ -0,0 +1,92 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scania.sdip.exceptions.ErrorBinding;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.IncidentJsonEncoder;
+import com.scania.sdip.exceptions.IncidentSink;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.web.context.request.ServletWebRequest;
+
+public class IncidentJsonEncoderTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  public void incidentIsEncodedWithTypedFields() throws Exception {
+    IncidentException incidentException = new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON,
+        mock(Logger.class), "unexpected \"token\"", "{\n", new IllegalStateException("cause"));
+    incidentException.setExecutionId("42");
+    incidentException.setRequestUsed(mockRequest());
+
+    JsonNode event = objectMapper.readTree(
+        IncidentJsonEncoder.getInstance().encode(incidentException.toSnapshot()));
+
+    assertEquals("incident", event.get("event").asText());
+    assertEquals("42", event.get("executionId").asText());
+    assertTrue(event.get("action").isNull());
+    assertEquals(400, event.get("httpStatus").asInt());
+    assertEquals("POST", event.at("/request/method").asText());
+    assertEquals("/documents", event.at("/request/uri").asText());
+    assertEquals("application/json", event.at("/request/headers/Content-Type").asText());
+    assertEquals("SDIP_4007", event.at("/errors/0/code").asText());
+    assertEquals(4007, event.at("/errors/0/sdipErrorCode").asInt());
+    assertEquals("unexpected \"token\"", event.at("/errors/0/args/0").asText());
+    assertEquals("{\n", event.at("/errors/0/args/1").asText());
+    assertEquals(2, event.at("/errors/0/args").size());
+    assertTrue(event.at("/errors/0/message").asText().contains("unexpected \"token\""));
+    assertEquals("java.lang.IllegalStateException", event.at("/exceptions/0/class").asText());
+    assertEquals("cause", event.at("/exceptions/0/message").asText());
+  }
+
+  @Test
+  public void httpStatusMatchesTheErrorResponse() throws Exception {
+    IncidentException incidentException = new IncidentException(SdipErrorCode.NO_BODY,
+        mock(Logger.class));
+    incidentException.addIncident(new ErrorBinding(SdipErrorCode.PAGE_NOT_FOUND, "/missing",
+        "/swagger-ui"));
+
+    JsonNode event = objectMapper.readTree(
+        IncidentJsonEncoder.getInstance().encode(incidentException.toSnapshot()));
+
+    assertEquals(400, event.get("httpStatus").asInt());
+    assertEquals(incidentException.createHttpErrorResponse().getStatusCode().value(),
+        event.get("httpStatus").asInt());
+  }
+
+  @Test
+  public void structuredSinkWritesSingleJsonLine() throws Exception {
+    Logger logger = mock(Logger.class);
+    IncidentSink.STRUCTURED.accept(
+        new IncidentException(SdipErrorCode.NO_BODY, logger).toSnapshot());
+
+    verify(logger).error(ArgumentMatchers.<String>argThat(entry -> !entry.contains("\n")
+        && entry.startsWith("{\"event\":\"incident\"") && entry.contains("\"request\":null")));
+  }
+
+  private static ServletWebRequest mockRequest() {
+    ServletWebRequest request = mock(ServletWebRequest.class);
+    HttpServletRequest httpRequest = mock(HttpServletRequest.class);
+    Iterator<String> headerNames = List.of("Content-Type").iterator();
+    doReturn(httpRequest).when(request).getRequest();
+    doReturn(headerNames).when(request).getHeaderNames();
+    doReturn("application/json").when(request).getHeader(anyString());
+    doReturn("POST").when(httpRequest).getMethod();
+    doReturn("/documents").when(httpRequest).getRequestURI();
+    return request;
+  }
+}
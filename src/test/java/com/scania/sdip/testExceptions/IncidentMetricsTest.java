@@ -0,0 +1,86 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.IncidentMetrics;
+import com.scania.sdip.exceptions.IncidentMetrics.Phase;
+import com.scania.sdip.exceptions.LatencyHistogram;
+import com.scania.sdip.exceptions.RemoteErrorCode;
+import com.scania.sdip.exceptions.RestExceptionHandler;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.util.Map;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.context.request.WebRequest;
+
+public class IncidentMetricsTest {
+
+  private final IncidentMetrics metrics = IncidentMetrics.getInstance();
+
+  @Test
+  public void handledExceptionIsCountedPerErrorCodeStatusAndPhase() {
+    long codeCount = metrics.getErrorCodeCounts().getOrDefault("SDIP_4044", 0L);
+    long statusCount = metrics.getHttpStatusCounts().getOrDefault(404, 0L);
+    long totalCount = metrics.getLatency(Phase.TOTAL).getCount();
+
+    new RestExceptionHandler().handleAllExceptions(
+        new IncidentException(SdipErrorCode.TOKEN_NOT_FOUND, mock(Logger.class)),
+        mock(WebRequest.class));
+
+    assertEquals(codeCount + 1, metrics.getErrorCodeCounts().get("SDIP_4044"));
+    assertEquals(statusCount + 1, metrics.getHttpStatusCounts().get(404));
+    assertEquals(totalCount + 1, metrics.getLatency(Phase.TOTAL).getCount());
+    assertTrue(metrics.getLatency(Phase.LOG).getCount() > 0);
+    assertTrue(metrics.getLatency(Phase.FORMAT).getCount() > 0);
+  }
+
+  @Test
+  public void unknownRemoteErrorCodesShareOneCounter() {
+    long remoteCount = metrics.getErrorCodeCounts()
+        .getOrDefault(IncidentMetrics.REMOTE_ERROR_CODE, 0L);
+    long knownCount = metrics.getErrorCodeCounts().getOrDefault("SDIP_40026", 0L);
+    metrics.recordErrorCode(new RemoteErrorCode(1, 500));
+    int codes = metrics.getErrorCodeCounts().size();
+
+    for (int i = 0; i < 1000; i++) {
+      metrics.recordErrorCode(new RemoteErrorCode(900_000 + i, 500));
+    }
+    metrics.recordErrorCode(new RemoteErrorCode(SdipErrorCode.NO_BODY.getSdipErrorCode(), 400));
+
+    assertEquals(codes, metrics.getErrorCodeCounts().size());
+    assertEquals(remoteCount + 1001,
+        metrics.getErrorCodeCounts().get(IncidentMetrics.REMOTE_ERROR_CODE));
+    assertEquals(knownCount + 1, metrics.getErrorCodeCounts().get("SDIP_40026"));
+  }
+
+  @Test
+  public void histogramPutsDurationsInPowerOfTwoBuckets() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(1);
+    histogram.record(1000);
+    histogram.record(1024);
+    histogram.record(1025);
+
+    assertEquals(1, histogram.getBucketCount(0));
+    assertEquals(2, histogram.getBucketCount(10));
+    assertEquals(1, histogram.getBucketCount(11));
+    assertEquals(4, histogram.getCount());
+    assertEquals(3050, histogram.getSumNanos());
+  }
+
+  @Test
+  public void metricsAreAvailableAsMapAndPrometheusText() {
+    new IncidentException(SdipErrorCode.NO_BODY, mock(Logger.class)).createHttpErrorResponse();
+
+    Map<String, Object> map = metrics.toMap();
+    String text = metrics.toPrometheusText();
+
+    assertTrue(((Map<?, ?>) map.get("errorCodes")).containsKey("SDIP_40026"));
+    assertTrue(text.contains("sdip_incidents_total{code=\"SDIP_40026\"}"));
+    assertTrue(text.contains("sdip_incident_responses_total{status=\"400\"}"));
+    assertTrue(text.contains("sdip_incident_handling_seconds_bucket{phase=\"total\",le=\"+Inf\"}"));
+  }
+}
@@ -0,0 +1,104 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+import com.scania.sdip.exceptions.Incident;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.LocalizedMessages;
+import com.scania.sdip.exceptions.MessageTemplateCache;
+import com.scania.sdip.exceptions.PreSerializedIncident;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.context.request.ServletWebRequest;
+
+public class LocalizedMessagesTest {
+
+  private static final Locale SWEDISH = new Locale("sv");
+
+  private final LocalizedMessages localizedMessages = LocalizedMessages.getInstance();
+
+  @BeforeEach
+  public void configure() {
+    localizedMessages.configure("sdip-messages-test", Locale.ENGLISH, SWEDISH);
+  }
+
+  @AfterEach
+  public void turnOff() {
+    localizedMessages.configure(LocalizedMessages.DEFAULT_BASE_NAME);
+  }
+
+  @Test
+  public void translationWithExtraArgumentsFallsBackToDefaultTemplate() {
+    assertSame(MessageTemplateCache.getHttpTemplate(SdipErrorCode.EMPTY_DOCUMENT),
+        localizedMessages.getHttpTemplate(SWEDISH, SdipErrorCode.EMPTY_DOCUMENT));
+  }
+
+  @Test
+  public void bestSupportedLanguageIsNegotiated() {
+    assertEquals(SWEDISH, localizedMessages.negotiate(mockRequest("sv-SE,sv;q=0.9,en;q=0.5")));
+    assertEquals(Locale.ENGLISH, localizedMessages.negotiate(mockRequest("de, en;q=0.3")));
+    assertNull(localizedMessages.negotiate(mockRequest("fi")));
+    assertNull(localizedMessages.negotiate(mockRequest("not a language range")));
+    assertNull(localizedMessages.negotiate(mockRequest(null)));
+  }
+
+  @Test
+  public void missingTranslationFallsBackToDefaultTemplate() {
+    assertSame(MessageTemplateCache.getHttpTemplate(SdipErrorCode.CONFIGURATION_NOT_FOUND),
+        localizedMessages.getHttpTemplate(SWEDISH, SdipErrorCode.CONFIGURATION_NOT_FOUND));
+    assertSame(localizedMessages.getHttpTemplate(SWEDISH, SdipErrorCode.NO_BODY),
+        localizedMessages.getHttpTemplate(SWEDISH, SdipErrorCode.NO_BODY));
+  }
+
+  @Test
+  public void httpErrorResponseIsLocalized() {
+    IncidentException incidentException = new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON,
+        mock(Logger.class), "rad 1", "{");
+    incidentException.setRequestUsed(mockRequest("sv"));
+
+    ResponseEntity<Incident> response = incidentException.createHttpErrorResponse();
+
+    assertEquals(List.of("Dokumentet \u00e4r inte JSON, rad 1"),
+        response.getBody().getMessages());
+  }
+
+  @Test
+  public void localizedArgumentFreeMessageIsNotPreSerialized() {
+    IncidentException swedish = new IncidentException(SdipErrorCode.NO_BODY, mock(Logger.class));
+    swedish.setRequestUsed(mockRequest("sv"));
+    IncidentException english = new IncidentException(SdipErrorCode.NO_BODY, mock(Logger.class));
+    english.setRequestUsed(mockRequest("en"));
+
+    Incident swedishBody = swedish.createHttpErrorResponse().getBody();
+    Incident englishBody = english.createHttpErrorResponse().getBody();
+
+    assertFalse(swedishBody instanceof PreSerializedIncident);
+    assertEquals(List.of("Ingen body skickades. En body kr\u00e4vs."), swedishBody.getMessages());
+    assertTrue(englishBody instanceof PreSerializedIncident);
+  }
+
+  private static ServletWebRequest mockRequest(String acceptLanguage) {
+    ServletWebRequest request = mock(ServletWebRequest.class);
+    HttpServletRequest httpRequest = mock(HttpServletRequest.class);
+    doReturn(httpRequest).when(request).getRequest();
+    doReturn(acceptLanguage).when(request).getHeader("Accept-Language");
+    doReturn(Collections.emptyIterator()).when(request).getHeaderNames();
+    doReturn("GET").when(httpRequest).getMethod();
+    doReturn("/documents").when(httpRequest).getRequestURI();
+    return request;
+  }
+}
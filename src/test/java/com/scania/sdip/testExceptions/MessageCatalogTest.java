@@ -0,0 +1,130 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.scania.sdip.exceptions.MessageCatalog;
+import com.scania.sdip.exceptions.MessageTemplateCache;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MessageCatalogTest {
+
+  private final MessageCatalog catalog = MessageCatalog.getInstance();
+
+  @AfterEach
+  public void resetCatalog() {
+    catalog.reset();
+  }
+
+  @Test
+  public void loadedOverridesReplaceMessagesAndTemplates() {
+    String defaultLogMessage = SdipErrorCode.CONFIGURATION_NOT_FOUND.getLogMessage();
+    Properties properties = new Properties();
+    properties.setProperty("SDIP_4043.http", "Configuration {0} is missing.");
+
+    catalog.load(properties);
+
+    assertEquals("Configuration {0} is missing.",
+        SdipErrorCode.CONFIGURATION_NOT_FOUND.getHttpMessage());
+    assertEquals(defaultLogMessage, SdipErrorCode.CONFIGURATION_NOT_FOUND.getLogMessage());
+    assertEquals("Configuration a is missing.",
+        MessageTemplateCache.getHttpTemplate(SdipErrorCode.CONFIGURATION_NOT_FOUND).format("a"));
+  }
+
+  @Test
+  public void loadReplacesPreviousOverridesAndBumpsVersion() {
+    SdipErrorCode.NO_BODY.setHttpMessage("No body.");
+    long version = catalog.getVersion();
+    Properties properties = new Properties();
+    properties.setProperty("SDIP_40012.log", "Empty.");
+
+    catalog.load(properties);
+
+    assertTrue(catalog.getVersion() > version);
+    assertNull(catalog.getHttpMessage(SdipErrorCode.NO_BODY));
+    assertEquals("Empty.", SdipErrorCode.EMPTY_DOCUMENT.getLogMessage());
+  }
+
+  @Test
+  public void invalidOverridesAreRejectedAndCurrentOnesKept() {
+    SdipErrorCode.NO_BODY.setHttpMessage("No body.");
+    Properties unknownCode = new Properties();
+    unknownCode.setProperty("SDIP_99999.http", "Unknown.");
+    Properties invalidTemplate = new Properties();
+    invalidTemplate.setProperty("SDIP_40012.http", "Broken {0");
+    Properties unknownSuffix = new Properties();
+    unknownSuffix.setProperty("SDIP_40012.text", "Text.");
+
+    assertThrows(IllegalArgumentException.class, () -> catalog.load(unknownCode));
+    assertThrows(IllegalArgumentException.class, () -> catalog.load(invalidTemplate));
+    assertThrows(IllegalArgumentException.class, () -> catalog.load(unknownSuffix));
+    assertEquals("No body.", SdipErrorCode.NO_BODY.getHttpMessage());
+  }
+
+  @Test
+  public void overridesChangingTheArgumentsAreRejected() {
+    Properties moreArguments = new Properties();
+    moreArguments.setProperty("SDIP_40012.http", "Empty document sent to {0}.");
+    Properties otherIndex = new Properties();
+    otherIndex.setProperty("SDIP_4043.http", "No configuration with id {1}.");
+    otherIndex.setProperty("SDIP_4043.log", "No configuration with id {1}.");
+    Properties fewerArguments = new Properties();
+    fewerArguments.setProperty("SDIP_4043.http", "No configuration.");
+    fewerArguments.setProperty("SDIP_4043.log", "No configuration.");
+
+    assertThrows(IllegalArgumentException.class, () -> catalog.load(moreArguments));
+    assertThrows(IllegalArgumentException.class, () -> catalog.load(otherIndex));
+    assertThrows(IllegalArgumentException.class, () -> catalog.load(fewerArguments));
+    assertThrows(IllegalArgumentException.class,
+        () -> SdipErrorCode.NO_BODY.setLogMessage("No body, request was {0}."));
+    assertThrows(IllegalArgumentException.class,
+        () -> SdipErrorCode.CONFIGURATION_NOT_FOUND.setHttpMessage("Nothing with id {0} or {1}."));
+    assertNull(catalog.getHttpMessage(SdipErrorCode.EMPTY_DOCUMENT));
+    assertNull(catalog.getLogMessage(SdipErrorCode.NO_BODY));
+    assertNull(catalog.getHttpMessage(SdipErrorCode.CONFIGURATION_NOT_FOUND));
+  }
+
+  @Test
+  public void overrideCanLeaveOutAnArgumentOfOneMessage() {
+    SdipErrorCode.CONFIGURATION_NOT_FOUND.setHttpMessage("No such configuration.");
+
+    assertEquals(1, MessageTemplateCache.getArgumentCount(SdipErrorCode.CONFIGURATION_NOT_FOUND));
+    assertEquals("No such configuration.", MessageTemplateCache
+        .getHttpTemplate(SdipErrorCode.CONFIGURATION_NOT_FOUND).format("a"));
+  }
+
+  @Test
+  public void settingDefaultMessageRemovesOverride() {
+    String original = SdipErrorCode.NO_BODY.getHttpMessage();
+    SdipErrorCode.NO_BODY.setHttpMessage("No body.");
+    SdipErrorCode.NO_BODY.setHttpMessage(original);
+
+    assertNull(catalog.getHttpMessage(SdipErrorCode.NO_BODY));
+  }
+
+  @Test
+  public void overridesAreLoadedFromPropertiesAndYamlFiles(@TempDir Path directory)
+      throws Exception {
+    Path properties = directory.resolve("messages.properties");
+    Files.write(properties, "SDIP_40026.http=Ingen body.\n".getBytes(StandardCharsets.UTF_8));
+    Path yaml = directory.resolve("messages.yml");
+    Files.write(yaml, "SDIP_40026:\n  http: Body missing.\n  log: Body missing, nothing to read.\n"
+        .getBytes(StandardCharsets.UTF_8));
+
+    catalog.load(properties);
+    assertEquals("Ingen body.", SdipErrorCode.NO_BODY.getHttpMessage());
+
+    catalog.load(yaml);
+    assertEquals("Body missing.", SdipErrorCode.NO_BODY.getHttpMessage());
+    assertEquals("Body missing, nothing to read.", SdipErrorCode.NO_BODY.getLogMessage());
+  }
+}
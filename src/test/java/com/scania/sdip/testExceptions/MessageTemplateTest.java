@@ -0,0 +1,68 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.scania.sdip.exceptions.MessageTemplate;
+import com.scania.sdip.exceptions.MessageTemplateCache;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.text.MessageFormat;
+import org.junit.jupiter.api.Test;
+
+public class MessageTemplateTest {
+
+  @Test
+  public void formatMatchesMessageFormatForAllErrorCodes() {
+    for (SdipErrorCode errorCode : SdipErrorCode.values()) {
+      assertSameAsMessageFormat(errorCode.getHttpMessage());
+      assertSameAsMessageFormat(errorCode.getLogMessage());
+    }
+  }
+
+  @Test
+  public void formatMatchesMessageFormatForQuotesAndMissingArgs() {
+    assertSameAsMessageFormat("field 'searchString' was {0}");
+    assertSameAsMessageFormat("it''s {1} and '{0}' and {0,}");
+    assertEquals(new MessageFormat("{0,number,integer} items").format(new Object[] {12345}),
+        MessageTemplate.compile("{0,number,integer} items").format(12345));
+    assertEquals(new MessageFormat("{0} {3}").format(new Object[] {"a", 1234}),
+        MessageTemplate.compile("{0} {3}").format("a", 1234));
+  }
+
+  @Test
+  public void argumentCountIsHighestIndexPlusOne() {
+    assertEquals(4, MessageTemplate.compile("{3} {3}").getArgumentCount());
+    assertEquals(0, MessageTemplate.compile("no args").getArgumentCount());
+    assertEquals(3, MessageTemplate.compile("a {0} b {2} c").getSegments().length);
+  }
+
+  @Test
+  public void unmatchedBraceShouldThrowException() {
+    assertThrows(IllegalArgumentException.class, () -> MessageTemplate.compile("{0"));
+  }
+
+  @Test
+  public void cacheIsRebuiltWhenMessageIsChanged() {
+    SdipErrorCode errorCode = SdipErrorCode.CONFIGURATION_NOT_FOUND;
+    String original = errorCode.getHttpMessage();
+    MessageTemplate before = MessageTemplateCache.getHttpTemplate(errorCode);
+    assertSame(before, MessageTemplateCache.getHttpTemplate(errorCode));
+    try {
+      errorCode.setHttpMessage("Nothing with id {0}.");
+      MessageTemplate after = MessageTemplateCache.getHttpTemplate(errorCode);
+      assertNotSame(before, after);
+      assertEquals("Nothing with id a.", after.format("a"));
+      assertEquals(1, MessageTemplateCache.getArgumentCount(errorCode));
+    } finally {
+      errorCode.setHttpMessage(original);
+    }
+  }
+
+  private void assertSameAsMessageFormat(String pattern) {
+    Object[] args = {"arg0", "arg1", "arg2"};
+    assertEquals(MessageFormat.format(pattern, args), MessageTemplate.compile(pattern).format(args),
+        pattern);
+  }
+}
@@ -0,0 +1,128 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.util.RequestPayload;
+import com.scania.sdip.exceptions.CapturedPayload;
+import com.scania.sdip.exceptions.Incident;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.IncidentSnapshot;
+import com.scania.sdip.exceptions.PayloadCapturePolicy;
+import com.scania.sdip.exceptions.RestExceptionHandler;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.context.request.WebRequest;
+
+public class PayloadCapturePolicyTest {
+
+  @Test
+  public void payloadWithinBudgetIsKeptAsIs() {
+    CapturedPayload captured = new PayloadCapturePolicy(16, null).capture("{\"a\":1}");
+
+    assertFalse(captured.isTruncated());
+    assertEquals("{\"a\":1}", captured.toString());
+  }
+
+  @Test
+  public void largePayloadIsCutToHeadAndTailWithHash() {
+    String payload = "{\"head\":\"" + "x".repeat(10_000) + "\",\"tail\":1}";
+    CapturedPayload fromChars = new PayloadCapturePolicy(20, null).capture(payload);
+    CapturedPayload fromBytes = new PayloadCapturePolicy(20, null)
+        .capture(payload.getBytes(StandardCharsets.UTF_8));
+
+    assertEquals("{\"head\":\"x", fromChars.getHead());
+    assertEquals(",\"tail\":1}", fromChars.getTail());
+    assertEquals(payload.length(), fromChars.getTotalBytes());
+    assertEquals(64, fromChars.getSha256().length());
+    assertEquals(fromChars.getSha256(), fromBytes.getSha256());
+    assertEquals(fromChars.toString(), fromBytes.toString());
+    assertTrue(fromChars.toString().contains((payload.length() - 20) + " of " + payload.length()
+        + " bytes omitted"));
+  }
+
+  @Test
+  public void multiByteCharactersAreNotSplit() {
+    String payload = "\u00e5\u00e4\u00f6".repeat(100);
+    CapturedPayload fromBytes = new PayloadCapturePolicy(5, null)
+        .capture(payload.getBytes(StandardCharsets.UTF_8));
+    CapturedPayload fromChars = new PayloadCapturePolicy(5, null).capture(payload);
+
+    assertEquals("\u00e5", fromBytes.getHead());
+    assertEquals("\u00f6", fromBytes.getTail());
+    assertEquals(fromBytes.toString(), fromChars.toString());
+  }
+
+  @Test
+  public void surrogatePairsAreCountedAsFourBytes() {
+    String emoji = new String(Character.toChars(0x1F600));
+
+    CapturedPayload single = new PayloadCapturePolicy(8, null).capture(emoji);
+    CapturedPayload pair = new PayloadCapturePolicy(8, null).capture(emoji + emoji);
+
+    assertEquals(4, single.getTotalBytes());
+    assertEquals(8, pair.getTotalBytes());
+    assertEquals(emoji + emoji, pair.getHead());
+    assertNull(pair.getTail());
+    assertFalse(pair.isTruncated());
+  }
+
+  @Test
+  public void truncatedPayloadIsSpilled(@TempDir Path directory) throws Exception {
+    String payload = "[" + "1,".repeat(5_000) + "]";
+
+    CapturedPayload captured = new PayloadCapturePolicy(8, directory).capture(payload);
+
+    assertEquals(directory.resolve("payload-" + captured.getSha256() + ".json"),
+        captured.getSpillFile());
+    assertArrayEquals(payload.getBytes(StandardCharsets.UTF_8),
+        Files.readAllBytes(captured.getSpillFile()));
+    assertTrue(captured.toString().contains("full payload in " + captured.getSpillFile()));
+  }
+
+  @Test
+  public void missingPayloadIsNotCaptured() {
+    assertNull(PayloadCapturePolicy.DEFAULT.capture((RequestPayload) null));
+    assertThrows(IllegalArgumentException.class, () -> new PayloadCapturePolicy(1, null));
+  }
+
+  @Test
+  public void jsonParseIncidentKeepsCapturedPayload() {
+    String payload = "{\"graph\":[" + "{},".repeat(100_000);
+    JsonParseException cause = new JsonParseException(null, "Unexpected end-of-input")
+        .withRequestPayload(new RequestPayload(payload));
+    RestExceptionHandler restExceptionHandler = new RestExceptionHandler();
+    restExceptionHandler.setPayloadCapturePolicy(new PayloadCapturePolicy(64, null));
+    List<IncidentSnapshot> snapshots = new ArrayList<>();
+    IncidentException.setIncidentSink(snapshots::add);
+    try {
+      ResponseEntity<Incident> response = restExceptionHandler.handleAllExceptions(
+          new HttpMessageNotReadableException("JSON parse error", cause,
+              mock(HttpInputMessage.class)), mock(WebRequest.class));
+
+      assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    } finally {
+      IncidentException.setIncidentSink(null);
+    }
+    Object[] args = snapshots.get(0).getErrorBindings().get(0).getArgs();
+    assertEquals("Unexpected end-of-input", args[0]);
+    CapturedPayload captured = (CapturedPayload) args[1];
+    assertTrue(captured.isTruncated());
+    assertEquals(payload.length(), captured.getTotalBytes());
+  }
+}
@@ -0,0 +1,134 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.scania.sdip.exceptions.Incident;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.IncidentMetrics;
+import com.scania.sdip.exceptions.IncidentMetrics.Phase;
+import com.scania.sdip.exceptions.LatencyHistogram;
+import com.scania.sdip.exceptions.PreSerializedIncident;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.util.List;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+public class PreSerializedIncidentTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  public void argumentFreeCodeSerializesLikePlainIncident() throws Exception {
+    for (SdipErrorCode errorCode : SdipErrorCode.values()) {
+      PreSerializedIncident preSerialized =
+          PreSerializedIncident.create(errorCode, 1234L, "GET /a?b=\"c\"");
+      if (preSerialized == null) {
+        continue;
+      }
+      assertEquals(objectMapper.writeValueAsString(toPlainIncident(preSerialized)),
+          objectMapper.writeValueAsString(preSerialized));
+    }
+  }
+
+  @Test
+  public void codeWithArgumentsIsNotPreSerialized() {
+    assertNull(PreSerializedIncident.create(SdipErrorCode.DOCUMENT_NOT_JSON, 1L, "GET /"));
+  }
+
+  @Test
+  public void incidentExceptionReturnsPreSerializedIncidentForArgumentFreeCode() throws Exception {
+    IncidentException incidentException =
+        new IncidentException(SdipErrorCode.EMPTY_DOCUMENT, mock(Logger.class));
+
+    ResponseEntity<Incident> response = incidentException.createHttpErrorResponse();
+
+    assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
+    assertTrue(response.getBody() instanceof PreSerializedIncident);
+    assertEquals(List.of("SDIP_40012"), response.getBody().getSdipErrorCodes());
+    assertTrue(objectMapper.writeValueAsString(response.getBody())
+        .contains("\"request\":\"REQUEST DATA NOT AVAILABLE\""));
+  }
+
+  @Test
+  public void addedMessageIsSerialized() throws Exception {
+    PreSerializedIncident preSerialized =
+        PreSerializedIncident.create(SdipErrorCode.NO_BODY, 1L, "GET /");
+    preSerialized.addMessage("another");
+
+    assertEquals(2, preSerialized.getMessages().size());
+    assertEquals(objectMapper.writeValueAsString(toPlainIncident(preSerialized)),
+        objectMapper.writeValueAsString(preSerialized));
+    assertEquals(1, PreSerializedIncident.create(SdipErrorCode.NO_BODY, 1L, "GET /")
+        .getMessages().size());
+  }
+
+  @Test
+  public void prettyPrintedIncidentIsSerializedLikePlainIncident() throws Exception {
+    ObjectMapper prettyMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    PreSerializedIncident preSerialized =
+        PreSerializedIncident.create(SdipErrorCode.NO_BODY, 1L, "GET /");
+
+    assertEquals(prettyMapper.writeValueAsString(toPlainIncident(preSerialized)),
+        prettyMapper.writeValueAsString(preSerialized));
+  }
+
+  @Test
+  public void returnedListsCanBeModifiedWithoutChangingTheCache() throws Exception {
+    PreSerializedIncident preSerialized =
+        PreSerializedIncident.create(SdipErrorCode.NO_BODY, 1L, "GET /");
+    preSerialized.getMessages().set(0, "replaced");
+    preSerialized.getSdipErrorCodes().add("SDIP_1");
+
+    assertEquals(List.of("replaced"), preSerialized.getMessages());
+    assertEquals(objectMapper.writeValueAsString(toPlainIncident(preSerialized)),
+        objectMapper.writeValueAsString(preSerialized));
+    PreSerializedIncident fresh = PreSerializedIncident.create(SdipErrorCode.NO_BODY, 1L, "GET /");
+    assertEquals(1, fresh.getSdipErrorCodes().size());
+    assertTrue(!fresh.getMessages().get(0).equals("replaced"));
+  }
+
+  @Test
+  public void defaultMapperWritesCachedFragments() throws Exception {
+    LatencyHistogram serialize = IncidentMetrics.getInstance().getLatency(Phase.SERIALIZE);
+    long before = serialize.getCount();
+
+    objectMapper.writeValueAsString(
+        PreSerializedIncident.create(SdipErrorCode.NO_BODY, 1L, "GET /"));
+
+    assertEquals(before + 1, serialize.getCount());
+  }
+
+  @Test
+  public void mapperSettingsAreRespected() throws Exception {
+    ObjectMapper snakeCase = new ObjectMapper()
+        .setPropertyNamingStrategy(PropertyNamingStrategies.SNAKE_CASE);
+    ObjectMapper nonNull = new ObjectMapper()
+        .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+    PreSerializedIncident preSerialized =
+        PreSerializedIncident.create(SdipErrorCode.NO_BODY, 1L, null);
+
+    assertEquals(snakeCase.writeValueAsString(toPlainIncident(preSerialized)),
+        snakeCase.writeValueAsString(preSerialized));
+    assertEquals(nonNull.writeValueAsString(toPlainIncident(preSerialized)),
+        nonNull.writeValueAsString(preSerialized));
+    assertTrue(nonNull.writeValueAsString(preSerialized).indexOf("request") < 0);
+  }
+
+  private Incident toPlainIncident(Incident incident) {
+    Incident plain = new Incident();
+    incident.getSdipErrorCodes().forEach(plain::addSdipErrorCode);
+    incident.getMessages().forEach(plain::addMessage);
+    plain.setTimestamp(incident.getTimestamp());
+    plain.setRequest(incident.getRequest());
+    return plain;
+  }
+}
@@ -0,0 +1,210 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.util.RequestPayload;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scania.sdip.exceptions.Incident;
+import com.scania.sdip.exceptions.IncidentBinaryCodec;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.IncidentSink;
+import com.scania.sdip.exceptions.PayloadCapturePolicy;
+import com.scania.sdip.exceptions.ReactiveExceptionHandler;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.server.ServerWebInputException;
+import org.springframework.web.server.UnsupportedMediaTypeStatusException;
+
+public class ReactiveExceptionHandlerTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final List<Runnable> logTasks = new ArrayList<>();
+  private final ReactiveExceptionHandler handler =
+      new ReactiveExceptionHandler(objectMapper, logTasks::add);
+
+  @TempDir
+  Path spillDirectory;
+
+  @AfterEach
+  public void restoreSink() {
+    IncidentException.setIncidentSink(null);
+  }
+
+  @Test
+  public void incidentExceptionIsWrittenAsIncidentBody() throws Exception {
+    MockServerWebExchange exchange = exchange(MockServerHttpRequest.post("/documents?id=1"));
+
+    handler.handle(exchange, new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON,
+        LoggerFactory.getLogger(getClass()), "a", "b")).block();
+
+    assertEquals(HttpStatus.BAD_REQUEST, exchange.getResponse().getStatusCode());
+    assertEquals(MediaType.APPLICATION_JSON,
+        exchange.getResponse().getHeaders().getContentType());
+    JsonNode body = objectMapper.readTree(exchange.getResponse().getBodyAsString().block());
+    assertEquals("SDIP_" + SdipErrorCode.DOCUMENT_NOT_JSON.getSdipErrorCode(),
+        body.at("/sdipErrorCodes/0").asText());
+    assertEquals("POST /documentsid=1", body.get("request").asText());
+  }
+
+  @Test
+  public void incidentIsWrittenAsBinaryWhenAccepted() {
+    MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/documents")
+        .accept(IncidentBinaryCodec.MEDIA_TYPE, MediaType.APPLICATION_JSON));
+
+    handler.handle(exchange, new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON,
+        LoggerFactory.getLogger(getClass()), "a", "b")).block();
+
+    assertEquals(HttpStatus.BAD_REQUEST, exchange.getResponse().getStatusCode());
+    assertEquals(IncidentBinaryCodec.MEDIA_TYPE,
+        exchange.getResponse().getHeaders().getContentType());
+    byte[] body = DataBufferUtils.join(exchange.getResponse().getBody()).map(buffer -> {
+      byte[] bytes = new byte[buffer.readableByteCount()];
+      buffer.read(bytes);
+      return bytes;
+    }).block();
+    Incident incident = IncidentBinaryCodec.getInstance().decode(ByteBuffer.wrap(body));
+    assertEquals(List.of("SDIP_" + SdipErrorCode.DOCUMENT_NOT_JSON.getSdipErrorCode()),
+        incident.getSdipErrorCodes());
+    assertEquals("GET /documents", incident.getRequest());
+  }
+
+  @Test
+  public void wildcardAcceptGetsJson() {
+    MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/documents")
+        .accept(MediaType.ALL));
+
+    handler.handle(exchange, new IllegalStateException("boom")).block();
+
+    assertEquals(MediaType.APPLICATION_JSON,
+        exchange.getResponse().getHeaders().getContentType());
+  }
+
+  @Test
+  public void loggingIsHandedToExecutor() {
+    List<String> logged = new ArrayList<>();
+    Thread caller = Thread.currentThread();
+    List<Thread> sinkThreads = new ArrayList<>();
+    IncidentException.setIncidentSink(snapshot -> {
+      sinkThreads.add(Thread.currentThread());
+      logged.add(snapshot.getRequestLine());
+    });
+    MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/a"));
+
+    handler.handle(exchange, new IllegalStateException("boom")).block();
+
+    assertTrue(logged.isEmpty());
+    assertEquals(1, logTasks.size());
+    Thread worker = new Thread(logTasks.get(0));
+    worker.start();
+    joinQuietly(worker);
+    assertEquals(List.of("GET /a"), logged);
+    assertNotEquals(caller, sinkThreads.get(0));
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exchange.getResponse().getStatusCode());
+  }
+
+  @Test
+  public void payloadIsCapturedAndSpilledOnTheLogExecutor() throws Exception {
+    List<String> logged = new ArrayList<>();
+    IncidentException.setIncidentSink(snapshot -> logged.add(
+        String.valueOf(snapshot.getErrorBindings().get(0).getArgs()[1])));
+    handler.setPayloadCapturePolicy(new PayloadCapturePolicy(16, spillDirectory));
+    byte[] payload = "{\"name\":\"0123456789abcdefghijklmnopqrstuvwxyz\"".getBytes(
+        StandardCharsets.UTF_8);
+    JsonParseException parseException = new JsonParseException(null, "Unexpected end")
+        .withRequestPayload(new RequestPayload(payload, "UTF-8"));
+    MockServerWebExchange exchange = exchange(MockServerHttpRequest.post("/documents"));
+
+    handler.handle(exchange, new ServerWebInputException("Failed to read", null,
+        parseException)).block();
+
+    assertEquals(HttpStatus.BAD_REQUEST, exchange.getResponse().getStatusCode());
+    try (Stream<Path> files = Files.list(spillDirectory)) {
+      assertEquals(0, files.count());
+    }
+    logTasks.get(0).run();
+    try (Stream<Path> files = Files.list(spillDirectory)) {
+      assertEquals(1, files.count());
+    }
+    assertEquals(1, logged.size());
+    assertTrue(logged.get(0).contains("sha256"), logged.get(0));
+  }
+
+  @Test
+  public void rejectedLoggingIsCountedAndResponseStillWritten() {
+    ReactiveExceptionHandler rejecting = new ReactiveExceptionHandler(objectMapper, task -> {
+      throw new RejectedExecutionException("full");
+    });
+    MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/a"));
+
+    rejecting.handle(exchange, new IllegalStateException("boom")).block();
+
+    assertEquals(1, rejecting.getDroppedCount());
+    assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exchange.getResponse().getStatusCode());
+    assertTrue(exchange.getResponse().getBodyAsString().block().contains("sdipErrorCodes"));
+  }
+
+  @Test
+  public void statusExceptionsAreMappedLikeServletHandler() {
+    assertStatus(new ResponseStatusException(HttpStatus.NOT_FOUND), HttpStatus.NOT_FOUND);
+    assertStatus(new UnsupportedMediaTypeStatusException(MediaType.TEXT_PLAIN,
+        List.of(MediaType.APPLICATION_JSON)), HttpStatus.UNSUPPORTED_MEDIA_TYPE);
+    assertStatus(new ServerWebInputException("No request body"), HttpStatus.BAD_REQUEST);
+  }
+
+  @Test
+  public void committedResponseIsLeftAlone() {
+    MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/a"));
+    exchange.getResponse().setComplete().block();
+    IllegalStateException exception = new IllegalStateException("late");
+
+    Throwable thrown = null;
+    try {
+      handler.handle(exchange, exception).block();
+    } catch (IllegalStateException e) {
+      thrown = e;
+    }
+    assertEquals(exception, thrown);
+    assertTrue(logTasks.isEmpty());
+  }
+
+  private void assertStatus(Exception exception, HttpStatus status) {
+    MockServerWebExchange exchange = exchange(MockServerHttpRequest.get("/a"));
+    handler.handle(exchange, exception).block();
+    assertEquals(status, exchange.getResponse().getStatusCode());
+  }
+
+  private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+    return MockServerWebExchange.from(request.header(HttpHeaders.HOST, "localhost")
+        .header(HttpHeaders.AUTHORIZATION, "Bearer secret"));
+  }
+
+  private static void joinQuietly(Thread thread) {
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
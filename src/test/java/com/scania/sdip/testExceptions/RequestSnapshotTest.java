@@ -0,0 +1,96 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.scania.sdip.exceptions.HeaderPolicy;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.RequestSnapshot;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.List;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.springframework.web.context.request.ServletWebRequest;
+
+public class RequestSnapshotTest {
+
+  @AfterEach
+  public void restoreCapturedHeaders() {
+    RequestSnapshot.setHeaderPolicy(HeaderPolicy.DEFAULT);
+  }
+
+  @Test
+  public void nullRequestGivesNoSnapshot() {
+    assertNull(RequestSnapshot.capture((ServletWebRequest) null));
+  }
+
+  @Test
+  public void requestLineIsRenderedOnce() {
+    RequestSnapshot snapshot = RequestSnapshot.capture(mockRequest());
+
+    assertEquals("POST /documents?id=1", snapshot.getRequestLine());
+    assertSame(snapshot.getRequestLine(), snapshot.getRequestLine());
+    assertEquals("POST", snapshot.getMethod());
+    assertEquals("/documents", snapshot.getUri());
+  }
+
+  @Test
+  public void onlyAllowlistedHeadersAreLogged() {
+    Logger logger = mock(Logger.class);
+    IncidentException incidentException = new IncidentException(SdipErrorCode.NO_BODY, logger);
+    incidentException.setRequestUsed(mockRequest());
+
+    incidentException.printToLog();
+
+    verify(logger).error(ArgumentMatchers.<String>argThat(entry ->
+        entry.contains("content-type: application/json") && !entry.contains("secret")
+            && entry.contains("POST /documents?id=1")));
+  }
+
+  @Test
+  public void maskedHeadersAreLoggedWithoutValue() {
+    RequestSnapshot.setHeaderPolicy(new HeaderPolicy(null, List.of(), List.of("authorization")));
+    Logger logger = mock(Logger.class);
+    IncidentException incidentException = new IncidentException(SdipErrorCode.NO_BODY, logger);
+    incidentException.setRequestUsed(mockRequest());
+
+    incidentException.printToLog();
+
+    verify(logger).error(ArgumentMatchers.<String>argThat(entry ->
+        entry.contains("Authorization: ****") && entry.contains("content-type")));
+  }
+
+  @Test
+  public void snapshotDoesNotReadRequestAfterCapture() {
+    ServletWebRequest request = mockRequest();
+    IncidentException incidentException = new IncidentException(SdipErrorCode.NO_BODY,
+        mock(Logger.class));
+    incidentException.setRequestUsed(request);
+    doReturn(null).when(request).getRequest();
+
+    assertEquals("POST /documents?id=1",
+        incidentException.createHttpErrorResponse().getBody().getRequest());
+    assertEquals("POST /documents?id=1", incidentException.toSnapshot().getRequestLine());
+  }
+
+  private static ServletWebRequest mockRequest() {
+    ServletWebRequest request = mock(ServletWebRequest.class);
+    HttpServletRequest httpRequest = mock(HttpServletRequest.class);
+    doReturn(httpRequest).when(request).getRequest();
+    doReturn(List.of("content-type", "Authorization").iterator()).when(request)
+        .getHeaderNames();
+    doReturn("application/json").when(request).getHeader("content-type");
+    doReturn("secret").when(request).getHeader("Authorization");
+    doReturn("POST").when(httpRequest).getMethod();
+    doReturn("/documents").when(httpRequest).getRequestURI();
+    doReturn("?id=1").when(httpRequest).getQueryString();
+    return request;
+  }
+}
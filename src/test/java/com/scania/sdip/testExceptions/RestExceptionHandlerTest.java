@@ -9,7 +9,9 @@ import com.fasterxml.jackson.core.JsonParseException;
 import com.scania.sdip.exceptions.Incident;
 import com.scania.sdip.exceptions.IncidentException;
 import com.scania.sdip.exceptions.RestExceptionHandler;
+import com.scania.sdip.exceptions.SdipErrorCode;
 import java.net.InetSocketAddress;
+import java.nio.channels.ClosedSelectorException;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Set;
@@ -188,6 +190,36 @@ public class RestExceptionHandlerTest {
   }
 
 
+  @Test
+  public void ensure400WhenBodyIsMissingRegardlessOfCase() {
+    ServletWebRequest request = mock(ServletWebRequest.class);
+    HttpMessageNotReadableException httpMessageNotReadableException =
+        mock(HttpMessageNotReadableException.class);
+
+    doReturn("Required request body is missing: public void Controller.post()")
+        .when(httpMessageNotReadableException).getMessage();
+
+    mockIterator(request);
+
+    assertStatusCode(request, httpMessageNotReadableException, HttpStatus.BAD_REQUEST);
+  }
+
+  @Test
+  public void ensureRegisteredFactoryIsUsedForSubclassesOfRegisteredType() {
+    ServletWebRequest request = mock(ServletWebRequest.class);
+    mockIterator(request);
+    RestExceptionHandler restExceptionHandler = new RestExceptionHandler();
+    restExceptionHandler.registerIncidentFactory(IllegalStateException.class,
+        exception -> new IncidentException(SdipErrorCode.CONFIGURATION_NOT_FOUND,
+            mock(org.slf4j.Logger.class), exception.getMessage()));
+
+    ResponseEntity<Incident> response = restExceptionHandler
+        .handleAllExceptions(new ClosedSelectorException(), request);
+
+    assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
+    assertEquals("SDIP_4043", response.getBody().getSdipErrorCodes().get(0));
+  }
+
   private void mockIterator(ServletWebRequest request) {
     HttpServletRequest httpServletRequest = mock(HttpServletRequest.class);
     @SuppressWarnings("unchecked")
@@ -0,0 +1,57 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.Mockito.mock;
+
+import com.scania.sdip.exceptions.ErrorBinding;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.MessageTemplateCache;
+import com.scania.sdip.exceptions.SdipErrorBindings;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+
+public class SdipErrorBindingsTest {
+
+  @Test
+  public void factoryArityMatchesTemplateArguments() throws Exception {
+    for (SdipErrorCode errorCode : SdipErrorCode.values()) {
+      int argumentCount = MessageTemplateCache.getArgumentCount(errorCode);
+      Class<?>[] parameterTypes = new Class<?>[argumentCount];
+      Arrays.fill(parameterTypes, Object.class);
+      Method factory = SdipErrorBindings.class.getMethod(toMethodName(errorCode), parameterTypes);
+      Object[] args = new Object[argumentCount];
+
+      ErrorBinding errorBinding = (ErrorBinding) factory.invoke(null, args);
+
+      assertSame(errorCode, errorBinding.getErrorCode(), errorCode.name());
+    }
+  }
+
+  @Test
+  public void generatedBindingIsUsedInIncident() {
+    IllegalStateException cause = new IllegalStateException("cause");
+    ErrorBinding errorBinding = SdipErrorBindings.documentNotJson("line 1", "{", cause);
+    IncidentException incidentException = new IncidentException(mock(Logger.class));
+    incidentException.addIncident(errorBinding);
+
+    assertArrayEquals(new Object[] {"line 1", "{", cause}, errorBinding.getArgs());
+    assertEquals(List.of("SDIP_4007"),
+        incidentException.createHttpErrorResponse().getBody().getSdipErrorCodes());
+  }
+
+  private static String toMethodName(SdipErrorCode errorCode) {
+    StringBuilder name = new StringBuilder();
+    for (String part : errorCode.name().toLowerCase(Locale.ROOT).split("_")) {
+      name.append(name.length() == 0 ? part
+          : Character.toUpperCase(part.charAt(0)) + part.substring(1));
+    }
+    return name.toString();
+  }
+}
@@ -0,0 +1,90 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.scania.sdip.exceptions.StackTraceRenderCache;
+import org.junit.jupiter.api.Test;
+
+public class StackTraceRenderCacheTest {
+
+  @Test
+  public void repeatedTraceIsRenderedAsReference() {
+    StackTraceRenderCache cache = new StackTraceRenderCache(16);
+    cache.setReferencesEnabled(true);
+    Exception[] exceptions = new Exception[2];
+    for (int i = 0; i < exceptions.length; i++) {
+      exceptions[i] = throwFromSamePlace(i == 0 ? "first" : "second");
+    }
+    Exception first = exceptions[0];
+    Exception second = exceptions[1];
+    String fingerprint = StackTraceRenderCache.fingerprint(first);
+
+    String full = cache.render(first);
+    String reference = cache.render(second);
+
+    assertEquals(fingerprint, StackTraceRenderCache.fingerprint(second));
+    assertTrue(full.contains("throwFromSamePlace"));
+    assertTrue(reference.startsWith("java.lang.IllegalStateException: second [stack trace "
+        + fingerprint + " logged before]"));
+    assertEquals(full, cache.lookup(fingerprint));
+  }
+
+  @Test
+  public void everyTraceIsRenderedInFullByDefault() {
+    StackTraceRenderCache cache = new StackTraceRenderCache(16);
+    Exception[] exceptions = new Exception[2];
+    for (int i = 0; i < exceptions.length; i++) {
+      exceptions[i] = throwFromSamePlace("a");
+    }
+
+    String first = cache.render(exceptions[0]);
+    String second = cache.render(exceptions[1]);
+
+    assertFalse(cache.isReferencesEnabled());
+    assertTrue(first.startsWith("java.lang.IllegalStateException: a"));
+    assertTrue(second.contains("throwFromSamePlace"));
+    assertNull(cache.lookup(StackTraceRenderCache.fingerprint(exceptions[0])));
+  }
+
+  @Test
+  public void differentCauseGivesDifferentFingerprint() {
+    Exception[] exceptions = new Exception[2];
+    for (int i = 0; i < exceptions.length; i++) {
+      exceptions[i] = throwFromSamePlace("a");
+    }
+    Exception plain = exceptions[0];
+    Exception withCause = exceptions[1];
+    assertEquals(StackTraceRenderCache.fingerprint(plain),
+        StackTraceRenderCache.fingerprint(withCause));
+    withCause.initCause(new RuntimeException());
+
+    assertNotEquals(StackTraceRenderCache.fingerprint(plain),
+        StackTraceRenderCache.fingerprint(withCause));
+  }
+
+  @Test
+  public void evictedTraceIsRenderedInFullAgain() {
+    StackTraceRenderCache cache = new StackTraceRenderCache(1);
+    cache.setReferencesEnabled(true);
+    Exception first = throwFromSamePlace("a");
+    Exception other = new RuntimeException("b");
+
+    cache.render(first);
+    cache.render(other);
+
+    assertNull(cache.lookup(StackTraceRenderCache.fingerprint(first)));
+    assertTrue(cache.render(first).contains("throwFromSamePlace"));
+  }
+
+  private static Exception throwFromSamePlace(String message) {
+    try {
+      throw new IllegalStateException(message);
+    } catch (IllegalStateException e) {
+      return e;
+    }
+  }
+}
@@ -0,0 +1,148 @@
+package com.scania.sdip.testExceptions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.scania.sdip.exceptions.Incident;
+import com.scania.sdip.exceptions.IncidentException;
+import com.scania.sdip.exceptions.SdipErrorCode;
+import com.scania.sdip.exceptions.Violation;
+import com.scania.sdip.exceptions.ViolationAggregator;
+import java.util.List;
+import org.apache.logging.log4j.Logger;
+import org.junit.jupiter.api.Test;
+import org.slf4j.helpers.NOPLogger;
+
+public class ViolationAggregatorTest {
+
+  @Test
+  public void fewViolationsAreRenderedAsBefore() {
+    ViolationAggregator aggregator = new ViolationAggregator();
+    aggregator.add("name", "must not be blank", "");
+    aggregator.add("id", "must be positive", -1);
+
+    assertEquals("'name', 'id'", aggregator.renderFields());
+    assertEquals("'name' had value '', 'id' had value '-1'", aggregator.renderDetails());
+    assertEquals(2, aggregator.getTotal());
+  }
+
+  @Test
+  public void identicalViolationsAreGrouped() {
+    ViolationAggregator aggregator = new ViolationAggregator();
+    for (int i = 0; i < 3; i++) {
+      aggregator.add("rows.name", "must not be blank", "row" + i);
+    }
+    aggregator.add(null, "must not be null", null);
+
+    List<Violation> violations = aggregator.getViolations();
+    assertEquals(2, violations.size());
+    assertEquals("rows.name", violations.get(0).getField());
+    assertEquals(3, violations.get(0).getCount());
+    assertNull(violations.get(1).getField());
+    assertEquals("'rows.name' (x3), 'must not be null'", aggregator.renderFields());
+    assertEquals("'rows.name' had value 'row0' (x3), 'must not be null' had value 'null'",
+        aggregator.renderDetails());
+  }
+
+  @Test
+  public void indexedFieldsAreGroupedWithTheFirstPathAsExample() {
+    ViolationAggregator aggregator = new ViolationAggregator();
+    for (int i = 0; i < 12; i++) {
+      aggregator.add("rows[" + i + "].name", "must not be blank", "");
+    }
+    aggregator.add("rows[3].id", "must be positive", -1);
+    aggregator.add("rows[x].name", "must not be blank", "");
+
+    List<Violation> violations = aggregator.getViolations();
+    assertEquals(3, violations.size());
+    assertEquals("rows[0].name", violations.get(0).getField());
+    assertEquals(12, violations.get(0).getCount());
+    assertEquals("rows[3].id", violations.get(1).getField());
+    assertEquals("rows[x].name", violations.get(2).getField());
+    assertEquals("'rows[0].name' (x12), 'rows[3].id', 'rows[x].name'",
+        aggregator.renderFields());
+  }
+
+  @Test
+  public void listedViolationsAreCappedButTotalIsKept() {
+    ViolationAggregator aggregator = new ViolationAggregator(2, 1000);
+    for (int i = 0; i < 50000; i++) {
+      aggregator.add("field" + i, "invalid", i);
+    }
+
+    assertEquals(50000, aggregator.getTotal());
+    assertEquals(2, aggregator.getViolations().size());
+    assertEquals("'field0', 'field1' and 49998 more", aggregator.renderFields());
+  }
+
+  @Test
+  public void renderedTextIsBounded() {
+    ViolationAggregator aggregator = new ViolationAggregator(100, 40);
+    for (int i = 0; i < 100; i++) {
+      aggregator.add("field" + i, "invalid", "x".repeat(500));
+    }
+
+    String details = aggregator.renderDetails();
+    assertTrue(details.length() < 250, details);
+    assertTrue(details.endsWith(" and 99 more"), details);
+    assertTrue(aggregator.renderFields().length() <= 40 + " and 95 more".length());
+  }
+
+  @Test
+  public void invalidLimitsAreRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new ViolationAggregator(0, 10));
+    assertThrows(IllegalArgumentException.class, () -> new ViolationAggregator(10, 0));
+  }
+
+  @Test
+  public void violationsAreReturnedInIncident() throws Exception {
+    ViolationAggregator aggregator = new ViolationAggregator();
+    aggregator.add("name", "must not be blank", "");
+    aggregator.add("name", "must not be blank", " ");
+    IncidentException incidentException = new IncidentException(SdipErrorCode.INVALID_FIELD,
+        mock(Logger.class), aggregator.renderFields(), aggregator.renderDetails());
+    incidentException.setViolations(aggregator.getViolations());
+
+    Incident incident = incidentException.createHttpErrorResponse().getBody();
+
+    assertEquals(1, incident.getViolations().size());
+    String json = new ObjectMapper().writeValueAsString(incident);
+    assertTrue(json.contains(
+        "\"violations\":[{\"field\":\"name\",\"message\":\"must not be blank\",\"count\":2}]"),
+        json);
+  }
+
+  @Test
+  public void incidentWithViolationsSurvivesJsonRoundTrip() throws Exception {
+    ViolationAggregator aggregator = new ViolationAggregator();
+    aggregator.add("rows[0].name", "must not be blank", "");
+    aggregator.add("rows[1].name", "must not be blank", "");
+    aggregator.add(null, "must not be null", null);
+    Incident incident = aggregator.toIncidentException(NOPLogger.NOP_LOGGER)
+        .createHttpErrorResponse().getBody();
+    ObjectMapper objectMapper = new ObjectMapper();
+
+    Incident read = objectMapper.readValue(objectMapper.writeValueAsString(incident),
+        Incident.class);
+
+    assertEquals(2, read.getViolations().size());
+    assertEquals("rows[0].name", read.getViolations().get(0).getField());
+    assertEquals("must not be blank", read.getViolations().get(0).getMessage());
+    assertEquals(2, read.getViolations().get(0).getCount());
+    assertNull(read.getViolations().get(1).getField());
+    assertEquals(incident.getSdipErrorCodes(), read.getSdipErrorCodes());
+  }
+
+  @Test
+  public void incidentWithoutViolationsOmitsThem() throws Exception {
+    Incident incident = new IncidentException(SdipErrorCode.DOCUMENT_NOT_JSON,
+        mock(Logger.class), "a", "b").createHttpErrorResponse().getBody();
+
+    assertFalse(new ObjectMapper().writeValueAsString(incident).contains("violations"));
+  }
+}